@@ -44,11 +44,7 @@ public class POQTListConstants {
 	// keys for passing information between classes about task information
 	public static final String TASK_INFO_KEY_DESCRIPTION = "task_info_description";
 	public static final String TASK_INFO_KEY_HAS_DUE_DATE = "task_info_has_due_date";
-	public static final String TASK_INFO_KEY_DUE_DAY = "task_info_due_date_day";
-	public static final String TASK_INFO_KEY_DUE_MONTH = "task_info_due_date_month";
-	public static final String TASK_INFO_KEY_DUE_YEAR = "task_info_due_date_year";
-	public static final String TASK_INFO_KEY_DUE_HOUR = "task_info_due_date_hour";
-	public static final String TASK_INFO_KEY_DUE_MINUTE = "task_info_due_date_minute";
+	public static final String TASK_INFO_KEY_DUE_MILLIS = "task_info_due_date_millis";
 	public static final String TASK_INFO_KEY_PRIORITY_ORDINAL = "task_info_priority_ordinal";
 	public static final String TASK_INFO_KEY_ALARM_ORDINAL = "task_info_alarm_ordinal";
 	
@@ -162,13 +158,14 @@ public class POQTListConstants {
 	
 	// ========== Database Constants ==========
 	public static final String DB_NAME = "TaskDatabase";
-	public static final String DB_DATE_STORAGE_FORMAT = "dd MM yyyy hh:mm aa";		// changing this format makes the database unreadable
+	public static final String DB_DATE_STORAGE_FORMAT = "dd MM yyyy hh:mm aa";		// format due dates were stored in before version 3 (read by its migration only)
 	
 	/*	Task Table	*/
 	public static final String DB_TASK_TABLE_NAME = "Task";
 	public static final String DB_TASK_KEY_ID = "taskID";
 	public static final String DB_TASK_COLUMN_DESCRIPTION = "taskDescription";
-	public static final String DB_TASK_COLUMN_DUEDATE = "taskDueDate";
+	public static final String DB_TASK_COLUMN_DUEDATE = "taskDueDate";			// due date as DB_DATE_STORAGE_FORMAT text (before version 3 only)
+	public static final String DB_TASK_COLUMN_DUE_MILLIS = "dueMillis";			// due date in epoch milliseconds (NULL if none)
 	public static final String DB_TASK_COLUMN_PRIORITY = "taskPriorityOrdinal";
 	public static final String DB_TASK_COLUMN_ALARM_MILLIS = "alarmTimeMillis";
 	public static final String DB_TASK_COLUMN_ALARM_ORDINAL = "alarmOrdinal";
@@ -183,6 +180,7 @@ public class POQTListConstants {
 	public static final String DB_HASTASK_TABLE_NAME = "HasTask";
 	public static final String DB_HASTASK_KEY_LISTID = "parentListID";
 	public static final String DB_HASTASK_KEY_TASKID = "containedTaskID";
+	public static final String DB_HASTASK_INDEX_BY_LIST = "HasTaskByList";		// orders each list's rows by rowid, for paging
 	
 	
 	
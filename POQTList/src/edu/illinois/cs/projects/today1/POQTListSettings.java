@@ -0,0 +1,198 @@
+package edu.illinois.cs.projects.today1;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Application-wide, in-memory copy of the POQTList preferences
+ * Every preference is read from SharedPreferences once and kept current through a change listener, so hot
+ * 	paths (urgency scoring, row coloring) read plain fields instead of looking keys up by string.
+ * NOTE: Fields are for reading only! Write preferences through SharedPreferences; the cache follows along.
+ *
+ * @author Kevin Today
+ */
+public class POQTListSettings implements SharedPreferences.OnSharedPreferenceChangeListener {
+	// ========== Static Variables ==========
+	private static volatile POQTListSettings s_instance;	// the application's single settings cache
+
+
+	// ========== Member Variables ==========
+	private final SharedPreferences m_preferences;		// backing preferences
+
+	// bumped every time a preference other than an ID counter changes so dependents can tell their derived data is stale
+	public volatile int version;
+
+	public boolean preferencesLoaded;
+	public int taskListTitleColor;
+
+	// Task urgency calculation
+	public int timeWindow;
+	public int urgencyScale;
+	public float lowPriorityWeight;
+	public float normalPriorityWeight;
+	public float highPriorityWeight;
+	public float midUrgencyWeight;
+	public float highUrgencyWeight;
+
+	// new Task options
+	public String newTaskDescription;
+	public int newTaskPriorityOrdinal;
+	public int newTaskAlarmOrdinal;
+
+	// Task background colors
+	public int noUrgencyBackgroundColor;
+	public int lowUrgencyBackgroundColor;
+	public int midUrgencyBackgroundColor;
+	public int highUrgencyBackgroundColor;
+	public int dueBackgroundColor;
+	public int overdueBackgroundColor;
+
+	// Task text colors
+	public int noUrgencyTextColor;
+	public int lowUrgencyTextColor;
+	public int midUrgencyTextColor;
+	public int highUrgencyTextColor;
+	public int dueTextColor;
+	public int overdueTextColor;
+
+	// Task subtext colors
+	public int noUrgencySubTextColor;
+	public int lowUrgencySubTextColor;
+	public int midUrgencySubTextColor;
+	public int highUrgencySubTextColor;
+	public int dueSubTextColor;
+	public int overdueSubTextColor;
+
+	// ID counters
+	private long m_taskIDCounter;
+	private long m_taskListIDCounter;
+
+
+	// ========== Constructors ==========
+	/**
+	 * Private constructor; use getInstance
+	 */
+	private POQTListSettings(Context context) {
+		m_preferences = context.getSharedPreferences(POQTListConstants.PREFERENCES_FILEPATH, Context.MODE_PRIVATE);
+		load();
+		m_preferences.registerOnSharedPreferenceChangeListener(this);
+	}
+
+
+	// ========== Public Functions ==========
+	/**
+	 * Gets the application's settings cache, loading it on first use
+	 *
+	 * @param context Any Context in the application (cannot be null)
+	 * @return The application's settings cache
+	 */
+	public static POQTListSettings getInstance(Context context) {
+		POQTListSettings instance = s_instance;
+		if (instance != null) {
+			return instance;
+		}
+
+		// sanity check
+		if (context == null) {
+			throw new IllegalArgumentException("POQTListSettings context cannot be null");
+		}
+
+		synchronized (POQTListSettings.class) {
+			if (s_instance == null) {
+				// hold the application context so no Activity is leaked by the cache
+				Context appContext = context.getApplicationContext();
+				s_instance = new POQTListSettings((appContext != null) ? appContext : context);
+			}
+			return s_instance;
+		}
+	}
+
+	/**
+	 * Reloads the cache whenever a preference is written
+	 * The ID counters are only written by claimTaskID() and claimTaskListID(), which keep their own copies current,
+	 * 	so claiming an ID neither reloads the cache nor counts as a settings change.
+	 */
+	@Override
+	public void onSharedPreferenceChanged(SharedPreferences preferences, String key) {
+		if (POQTListConstants.PREF_KEY_TASK_ID_COUNTER.equals(key) || POQTListConstants.PREF_KEY_TASKLIST_ID_COUNTER.equals(key)) {
+			return;
+		}
+		load();
+	}
+
+	/**
+	 * Claims the next unused Task ID, persisting the incremented counter
+	 *
+	 * @return Free Task ID
+	 */
+	public synchronized long claimTaskID() {
+		long freeID = m_taskIDCounter++;
+		SharedPreferences.Editor editor = m_preferences.edit();
+		editor.putLong(POQTListConstants.PREF_KEY_TASK_ID_COUNTER, m_taskIDCounter);
+		editor.commit();
+		return freeID;
+	}
+
+	/**
+	 * Claims the next unused TaskList ID, persisting the incremented counter
+	 *
+	 * @return Free TaskList ID
+	 */
+	public synchronized long claimTaskListID() {
+		long freeID = m_taskListIDCounter++;
+		SharedPreferences.Editor editor = m_preferences.edit();
+		editor.putLong(POQTListConstants.PREF_KEY_TASKLIST_ID_COUNTER, m_taskListIDCounter);
+		editor.commit();
+		return freeID;
+	}
+
+
+	// ========== Helper Functions ==========
+	/**
+	 * Reads every preference into the cache
+	 */
+	private synchronized void load() {
+		SharedPreferences preferences = m_preferences;
+
+		preferencesLoaded = preferences.getBoolean(POQTListConstants.PREF_KEY_PREFERENCES_LOADED, false);
+		taskListTitleColor = preferences.getInt(POQTListConstants.PREF_KEY_TASK_LIST_TITLE_COLR, POQTListConstants.DEFAULT_TASK_LIST_TITLE_COLOR);
+
+		timeWindow = preferences.getInt(POQTListConstants.PREF_KEY_TIME_WINDOW, POQTListConstants.DEFAULT_TIME_WINDOW);
+		urgencyScale = preferences.getInt(POQTListConstants.PREF_KEY_URGENCY_SCALE, POQTListConstants.DEFAULT_URGENCY_SCALE);
+		lowPriorityWeight = preferences.getFloat(POQTListConstants.PREF_KEY_LOW_PRIORITY_WEIGHT, POQTListConstants.DEFAULT_LOW_PRIORITY_WEIGHT);
+		normalPriorityWeight = preferences.getFloat(POQTListConstants.PREF_KEY_NORMAL_PRIORITY_WEIGHT, POQTListConstants.DEFAULT_NORMAL_PRIORITY_WEIGHT);
+		highPriorityWeight = preferences.getFloat(POQTListConstants.PREF_KEY_HIGH_PRIORITY_WEIGHT, POQTListConstants.DEFAULT_HIGH_PRIORITY_WEIGHT);
+		midUrgencyWeight = preferences.getFloat(POQTListConstants.PREF_KEY_MID_URGENCY_WEIGHT, POQTListConstants.DEFAULT_MID_URGENCY_WEIGHT);
+		highUrgencyWeight = preferences.getFloat(POQTListConstants.PREF_KEY_HIGH_URGENCY_WEIGHT, POQTListConstants.DEFAULT_HIGH_URGENCY_WEIGHT);
+
+		newTaskDescription = preferences.getString(POQTListConstants.PREF_KEY_NEW_TASK_DESCRIPTION, POQTListConstants.DEFAULT_NEW_TASK_DESCRIPTION);
+		newTaskPriorityOrdinal = preferences.getInt(POQTListConstants.PREF_KEY_NEW_TASK_PRIORITY_ORDINAL, POQTListConstants.DEFAULT_NEW_TASK_PRIORITY.ordinal());
+		newTaskAlarmOrdinal = preferences.getInt(POQTListConstants.PREF_KEY_NEW_TASK_ALARM_ORDINAL, POQTListConstants.DEFAULT_NEW_TASK_ALARM.ordinal());
+
+		noUrgencyBackgroundColor = preferences.getInt(POQTListConstants.PREF_KEY_NO_URGNCY_BKGRND_COLR, POQTListConstants.DEFAULT_NO_URGENCY_BKGRND_COLOR);
+		lowUrgencyBackgroundColor = preferences.getInt(POQTListConstants.PREF_KEY_LOW_URGNCY_BKGRND_COLR, POQTListConstants.DEFAULT_LOW_URGENCY_BKGRND_COLOR);
+		midUrgencyBackgroundColor = preferences.getInt(POQTListConstants.PREF_KEY_MID_URGNCY_BKGRND_COLR, POQTListConstants.DEFAULT_MID_URGENCY_BKGRND_COLOR);
+		highUrgencyBackgroundColor = preferences.getInt(POQTListConstants.PREF_KEY_HI_URGNCY_BKGRND_COLR, POQTListConstants.DEFAULT_HIGH_URGENCY_BKGRND_COLOR);
+		dueBackgroundColor = preferences.getInt(POQTListConstants.PREF_KEY_DUE_BKGRND_COLR, POQTListConstants.DEFAULT_DUE_BKGRND_COLOR);
+		overdueBackgroundColor = preferences.getInt(POQTListConstants.PREF_KEY_OVERDUE_BKGRND_COLR, POQTListConstants.DEFAULT_OVERDUE_BKGRND_COLOR);
+
+		noUrgencyTextColor = preferences.getInt(POQTListConstants.PREF_KEY_NO_URGNCY_TEXT_COLR, POQTListConstants.DEFAULT_NO_URGENCY_TEXT_COLOR);
+		lowUrgencyTextColor = preferences.getInt(POQTListConstants.PREF_KEY_LOW_URGNCY_TEXT_COLR, POQTListConstants.DEFAULT_LOW_URGENCY_TEXT_COLOR);
+		midUrgencyTextColor = preferences.getInt(POQTListConstants.PREF_KEY_MID_URGNCY_TEXT_COLR, POQTListConstants.DEFAULT_MID_URGENCY_TEXT_COLOR);
+		highUrgencyTextColor = preferences.getInt(POQTListConstants.PREF_KEY_HI_URGNCY_TEXT_COLR, POQTListConstants.DEFAULT_HIGH_URGENCY_TEXT_COLOR);
+		dueTextColor = preferences.getInt(POQTListConstants.PREF_KEY_DUE_TEXT_COLR, POQTListConstants.DEFAULT_DUE_TEXT_COLOR);
+		overdueTextColor = preferences.getInt(POQTListConstants.PREF_KEY_OVERDUE_TEXT_COLR, POQTListConstants.DEFAULT_OVERDUE_TEXT_COLOR);
+
+		noUrgencySubTextColor = preferences.getInt(POQTListConstants.PREF_KEY_NO_URGNCY_SUBTEXT_COLR, POQTListConstants.DEFAULT_NO_URGENCY_SUBTEXT_COLOR);
+		lowUrgencySubTextColor = preferences.getInt(POQTListConstants.PREF_KEY_LOW_URGNCY_SUBTEXT_COLR, POQTListConstants.DEFAULT_LOW_URGENCY_SUBTEXT_COLOR);
+		midUrgencySubTextColor = preferences.getInt(POQTListConstants.PREF_KEY_MID_URGNCY_SUBTEXT_COLR, POQTListConstants.DEFAULT_MID_URGENCY_SUBTEXT_COLOR);
+		highUrgencySubTextColor = preferences.getInt(POQTListConstants.PREF_KEY_HI_URGNCY_SUBTEXT_COLR, POQTListConstants.DEFAULT_HIGH_URGENCY_SUBTEXT_COLOR);
+		dueSubTextColor = preferences.getInt(POQTListConstants.PREF_KEY_DUE_SUBTEXT_COLR, POQTListConstants.DEFAULT_DUE_SUBTEXT_COLOR);
+		overdueSubTextColor = preferences.getInt(POQTListConstants.PREF_KEY_OVERDUE_SUBTEXT_COLR, POQTListConstants.DEFAULT_OVERDUE_SUBTEXT_COLOR);
+
+		m_taskIDCounter = preferences.getLong(POQTListConstants.PREF_KEY_TASK_ID_COUNTER, 0);
+		m_taskListIDCounter = preferences.getLong(POQTListConstants.PREF_KEY_TASKLIST_ID_COUNTER, 0);
+
+		version++;
+	}
+}
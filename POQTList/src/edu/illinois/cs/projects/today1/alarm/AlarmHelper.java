@@ -1,6 +1,4 @@
 package edu.illinois.cs.projects.today1.alarm;
-import java.util.Calendar;
-
 import android.app.AlarmManager;
 import android.app.PendingIntent;
 import android.content.Context;
@@ -130,12 +128,12 @@ public class AlarmHelper {
 	private boolean addDueAlarm(Task task) {
 		try {
 			// sanity check
-			if (task.getDueDate() == null) {
+			if (!task.hasDueDate()) {
 				return false;
 			}
 			
 			// get task information
-			long dueDateMillis = task.getDueDate().getTimeInMillis();
+			long dueDateMillis = task.getDueMillis();
 			
 			// prepare alarm information
 			Bundle alarmInformation = new Bundle();
@@ -166,14 +164,13 @@ public class AlarmHelper {
 	private boolean deleteDueAlarm(Task task) {
 		try {
 			// sanity check
-			if (task.getDueDate() == null) {
+			if (!task.hasDueDate()) {
 				return false;
 			}
 			
 			// don't add alarm when due date is in past
-			Calendar currentTime = Calendar.getInstance();
-			long dueDateMillis = task.getDueDate().getTimeInMillis();
-			if (dueDateMillis < currentTime.getTimeInMillis()) {
+			long dueDateMillis = task.getDueMillis();
+			if (dueDateMillis < System.currentTimeMillis()) {
 				return true;
 			}
 			
@@ -199,18 +196,17 @@ public class AlarmHelper {
 	private boolean addCustomAlarm(Task task) {
 		try {
 			// sanity check
-			if (task.getDueDate() == null || task.getAlarm() == Task.Alarm.NONE) {
+			if (!task.hasDueDate() || task.getAlarm() == Task.Alarm.NONE) {
 				return false;
 			}
 			
 			// get time alarm should go off in millis
-			long dueDateMillis = task.getDueDate().getTimeInMillis();
+			long dueDateMillis = task.getDueMillis();
 			long alarmMillisOffset = task.getAlarm().getMillisOffset();
 			long alarmTimeMillis = dueDateMillis - alarmMillisOffset;
 			
 			// don't add alarm when reminder is in past
-			Calendar currentTime = Calendar.getInstance();
-			if (alarmTimeMillis < currentTime.getTimeInMillis()) {
+			if (alarmTimeMillis < System.currentTimeMillis()) {
 				return true;
 			}
 			
@@ -244,7 +240,7 @@ public class AlarmHelper {
 	private boolean deleteCustomAlarm(Task task) {
 		try {
 			// sanity check
-			if (task.getDueDate() == null || task.getAlarm() == Task.Alarm.NONE) {
+			if (!task.hasDueDate() || task.getAlarm() == Task.Alarm.NONE) {
 				return false;
 			}
 			
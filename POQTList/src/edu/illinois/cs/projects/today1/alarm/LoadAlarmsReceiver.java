@@ -26,6 +26,7 @@ public class LoadAlarmsReceiver extends BroadcastReceiver {
 		// get all Tasks with alarms in the future from the database
 		TaskDBApparatus DBApparatus = new TaskDBApparatus(context);
 		List<Task> alarmTasks = DBApparatus.getAlarmTasks();
+		DBApparatus.close();
 		
 		// prepare AlarmApparatus to handle task alarm management
 		AlarmHelper alarmHelper = new AlarmHelper(context);
@@ -0,0 +1,139 @@
+package edu.illinois.cs.projects.today1.database;
+
+import java.text.DateFormatSymbols;
+import java.util.Calendar;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+import edu.illinois.cs.projects.today1.POQTListConstants;
+
+/**
+ * Version 3 migration: stores due dates as INTEGER epoch milliseconds instead of DB_DATE_STORAGE_FORMAT text
+ * Text dates cannot be ordered or compared by SQLite and had to be decoded on every load. Each row's text is
+ * 	decoded once here into the new column; the old column cannot be dropped on older SQLite versions, so it is
+ * 	only emptied and left unused.
+ *
+ * @author Kevin Today
+ */
+class DueMillisMigration extends TaskDBMigration {
+	// ========== Constants ==========
+	private static final long INVALID_DUE_DATE = Long.MIN_VALUE;	// marks a stored due date that could not be decoded
+
+
+	// ========== Constructors ==========
+	DueMillisMigration() {
+		super(3);
+	}
+
+
+	// ========== Public Functions ==========
+	@Override
+	void migrate(SQLiteDatabase db) {
+		// ALTER TABLE Task ADD COLUMN dueMillis INTEGER
+		db.execSQL("ALTER TABLE " + POQTListConstants.DB_TASK_TABLE_NAME
+				+ " ADD COLUMN " + POQTListConstants.DB_TASK_COLUMN_DUE_MILLIS + " INTEGER;");
+
+		// SELECT taskID, taskDueDate FROM Task WHERE taskDueDate IS NOT NULL
+		Cursor datedTasks = db.rawQuery("SELECT " + POQTListConstants.DB_TASK_KEY_ID + ", " + POQTListConstants.DB_TASK_COLUMN_DUEDATE
+				+ " FROM " + POQTListConstants.DB_TASK_TABLE_NAME
+				+ " WHERE " + POQTListConstants.DB_TASK_COLUMN_DUEDATE + " IS NOT NULL", null);
+
+		// UPDATE Task SET dueMillis = ? WHERE taskID = ?
+		SQLiteStatement setDueMillis = db.compileStatement("UPDATE " + POQTListConstants.DB_TASK_TABLE_NAME
+				+ " SET " + POQTListConstants.DB_TASK_COLUMN_DUE_MILLIS + " = ? WHERE " + POQTListConstants.DB_TASK_KEY_ID + " = ?");
+
+		// one Calendar and one lookup of the AM/PM markers serve every row
+		Calendar decodingCalendar = Calendar.getInstance();
+		String[] amPmMarkers = new DateFormatSymbols().getAmPmStrings();
+		try {
+			while (datedTasks.moveToNext()) {
+				long taskID = datedTasks.getLong(0);
+				long dueMillis = decodeDueDate(datedTasks.getString(1), decodingCalendar, amPmMarkers);
+
+				// a due date that cannot be decoded is kept as no due date, so the Task itself is not lost
+				if (dueMillis == INVALID_DUE_DATE) {
+					Log.w(POQTListConstants.LOG_TAG, "Could not decode due date of Task with ID: " + taskID + "; keeping it with no due date");
+					continue;
+				}
+
+				setDueMillis.bindLong(1, dueMillis);
+				setDueMillis.bindLong(2, taskID);
+				setDueMillis.execute();
+			}
+		}
+		finally {
+			setDueMillis.close();
+			datedTasks.close();
+		}
+
+		// the text is no longer read, so its space is given back
+		db.execSQL("UPDATE " + POQTListConstants.DB_TASK_TABLE_NAME + " SET " + POQTListConstants.DB_TASK_COLUMN_DUEDATE + " = NULL;");
+	}
+
+
+	// ========== Helper Functions ==========
+	/**
+	 * Decodes a due date written in the DB_DATE_STORAGE_FORMAT ("dd MM yyyy hh:mm aa") into milliseconds
+	 * Every field sits at a fixed position, so the String is read in place rather than through a SimpleDateFormat
+	 *
+	 * @param encodedDueDate Due date as stored in the database
+	 * @param calendar Calendar to assemble the date in (its contents are overwritten)
+	 * @param amPmMarkers The AM and PM markers the date was written with
+	 * @return Due date in milliseconds, or INVALID_DUE_DATE if the String could not be decoded
+	 */
+	private static long decodeDueDate(String encodedDueDate, Calendar calendar, String[] amPmMarkers) {
+		// sanity check
+		if (encodedDueDate.length() < 18
+				|| encodedDueDate.charAt(2) != ' '
+				|| encodedDueDate.charAt(5) != ' '
+				|| encodedDueDate.charAt(10) != ' '
+				|| encodedDueDate.charAt(13) != ':'
+				|| encodedDueDate.charAt(16) != ' ') {
+			return INVALID_DUE_DATE;
+		}
+
+		int day = decodeDigits(encodedDueDate, 0, 2);
+		int month = decodeDigits(encodedDueDate, 3, 5);
+		int year = decodeDigits(encodedDueDate, 6, 10);
+		int hour = decodeDigits(encodedDueDate, 11, 13);
+		int minute = decodeDigits(encodedDueDate, 14, 16);
+		if (day < 1 || month < 1 || year < 0 || hour < 1 || hour > 12 || minute < 0) {
+			return INVALID_DUE_DATE;
+		}
+
+		// convert the 12-hour clock to the 24-hour clock
+		String marker = encodedDueDate.substring(17);
+		if (marker.equalsIgnoreCase(amPmMarkers[Calendar.AM])) {
+			hour = hour % 12;
+		}
+		else if (marker.equalsIgnoreCase(amPmMarkers[Calendar.PM])) {
+			hour = hour % 12 + 12;
+		}
+		else {
+			return INVALID_DUE_DATE;
+		}
+
+		calendar.clear();
+		calendar.set(year, month - 1, day, hour, minute);
+		return calendar.getTimeInMillis();
+	}
+
+	/**
+	 * Reads the decimal digits in the given range of a String
+	 *
+	 * @return The number the digits represent, or -1 if any character is not a digit
+	 */
+	private static int decodeDigits(String source, int start, int end) {
+		int value = 0;
+		for (int index = start; index < end; index++) {
+			char digit = source.charAt(index);
+			if (digit < '0' || digit > '9') {
+				return -1;
+			}
+			value = value * 10 + (digit - '0');
+		}
+		return value;
+	}
+}
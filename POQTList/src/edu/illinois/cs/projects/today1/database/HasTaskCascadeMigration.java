@@ -0,0 +1,47 @@
+package edu.illinois.cs.projects.today1.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import edu.illinois.cs.projects.today1.POQTListConstants;
+
+/**
+ * Version 4 migration: rebuilds HasTask so its foreign keys cascade deletes of a TaskList or Task to its memberships
+ * SQLite cannot alter a table's constraints, so the rows are copied into a new table. Their rowids are copied
+ * 	with them, since the completed list is paged by HasTask rowid.
+ *
+ * @author Kevin Today
+ */
+class HasTaskCascadeMigration extends TaskDBMigration {
+	// ========== Constants ==========
+	private static final String REBUILT_TABLE_NAME = POQTListConstants.DB_HASTASK_TABLE_NAME + "Rebuilt";	// table rows are copied into
+
+
+	// ========== Constructors ==========
+	HasTaskCascadeMigration() {
+		super(4);
+	}
+
+
+	// ========== Public Functions ==========
+	@Override
+	void migrate(SQLiteDatabase db) {
+		String hasTask = POQTListConstants.DB_HASTASK_TABLE_NAME;
+		String listID = POQTListConstants.DB_HASTASK_KEY_LISTID;
+		String taskID = POQTListConstants.DB_HASTASK_KEY_TASKID;
+
+		// memberships left behind by deletions would break the new foreign keys, so they are dropped first
+		// DELETE FROM HasTask WHERE listID NOT IN (SELECT listID FROM TaskList) OR taskID NOT IN (SELECT taskID FROM Task)
+		db.execSQL("DELETE FROM " + hasTask
+				+ " WHERE " + listID + " NOT IN (SELECT " + POQTListConstants.DB_TASKLIST_KEY_ID + " FROM " + POQTListConstants.DB_TASKLIST_TABLE_NAME + ")"
+				+ " OR " + taskID + " NOT IN (SELECT " + POQTListConstants.DB_TASK_KEY_ID + " FROM " + POQTListConstants.DB_TASK_TABLE_NAME + ");");
+
+		// INSERT INTO HasTaskRebuilt (rowid, listID, taskID) SELECT rowid, listID, taskID FROM HasTask
+		db.execSQL(TaskDBHelper.buildHasTaskTableQuery(REBUILT_TABLE_NAME));
+		db.execSQL("INSERT INTO " + REBUILT_TABLE_NAME + " (rowid, " + listID + ", " + taskID + ")"
+				+ " SELECT rowid, " + listID + ", " + taskID + " FROM " + hasTask + ";");
+
+		// dropping the old table drops its index too, so the index is rebuilt on the new one
+		db.execSQL("DROP TABLE " + hasTask + ";");
+		db.execSQL("ALTER TABLE " + REBUILT_TABLE_NAME + " RENAME TO " + hasTask + ";");
+		db.execSQL(TaskDBHelper.buildHasTaskByListIndexQuery());
+	}
+}
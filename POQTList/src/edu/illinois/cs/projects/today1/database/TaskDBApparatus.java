@@ -1,17 +1,11 @@
 package edu.illinois.cs.projects.today1.database;
 
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
-import java.util.Calendar;
-import java.util.Date;
-import java.util.GregorianCalendar;
 import java.util.List;
 
-import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
-import android.text.format.DateFormat;
 import android.util.Log;
 import edu.illinois.cs.projects.today1.POQTListConstants;
 import edu.illinois.cs.projects.today1.task.Task;
@@ -19,57 +13,125 @@ import edu.illinois.cs.projects.today1.task.Task.Alarm;
 import edu.illinois.cs.projects.today1.task.Task.Priority;
 import edu.illinois.cs.projects.today1.task.TaskAdapter;
 import edu.illinois.cs.projects.today1.task.TaskList;
+import edu.illinois.cs.projects.today1.task.TaskPageSource;
+import edu.illinois.cs.projects.today1.task.TaskStore;
 
 /**
  * Contains all functionality for the database containing tasks
+ * The completed TaskList grows without bound, so it is never loaded whole; its adapter reads it a page at a time
+ * 	through the apparatus' TaskPageSource functions instead.
  * 
  * @author Kevin Today
  * 
  * Code helped by tutorial at www.vogella.de
  *
  */
-public class TaskDBApparatus {
+public class TaskDBApparatus implements TaskPageSource {
+	// ========== Constants ==========
+	private static final String ROW_KEY_COLUMN = "rowKey";				// alias of a HasTask row's rowid in paged queries
+	
+	// indices into the column array built by findTaskColumns
+	private static final int TASK_COLUMN_ID = 0;
+	private static final int TASK_COLUMN_DESCRIPTION = 1;
+	private static final int TASK_COLUMN_DUE_MILLIS = 2;
+	private static final int TASK_COLUMN_PRIORITY = 3;
+	private static final int TASK_COLUMN_ALARM = 4;
+	private static final int TASK_COLUMN_COUNT = 5;
+	
+	
 	// ========== Member Variables ==========
 	private Context m_context;				// handle to context database is within
+	private TaskStore m_taskStore;			// store holding the data of Tasks unpacked from the database
 	private SQLiteDatabase m_database;		// handle to database
 	private TaskDBHelper m_helper;			// helper to manage database operation
+	private TaskDBStatements m_statements;	// precompiled writes and existence checks (null while closed)
 	
 	
 	// ========== Constructors ==========
 	/**
 	 * Creates a new TaskDBApparatus in the given context and opens the database it should be managing
+	 * Tasks unpacked from the database are held in a TaskStore of the apparatus' own
 	 * WARNING: The user is responsible for calling close() on the apparatus when they are finished with it!
 	 * 
 	 * @param context Context to create TaskDBAdapter in
 	 */
 	public TaskDBApparatus(Context context) {
+		this(context, new TaskStore());
+	}
+	
+	/**
+	 * Creates a new TaskDBApparatus in the given context and opens the database it should be managing
+	 * WARNING: The user is responsible for calling close() on the apparatus when they are finished with it!
+	 * 
+	 * @param context Context to create TaskDBAdapter in
+	 * @param taskStore TaskStore to hold the data of Tasks unpacked from the database
+	 */
+	public TaskDBApparatus(Context context, TaskStore taskStore) {
 		if (context == null) {
 			throw new IllegalArgumentException("TaskDBAdapter context cannot be null");
 		}
+		if (taskStore == null) {
+			throw new IllegalArgumentException("TaskDBAdapter task store cannot be null");
+		}
 		
 		m_context = context;
+		m_taskStore = taskStore;
 		open();
 	}
 	
 	
 	// ========== Public Functions ==========
 	/**
-	 * Opens the apparatus
+	 * Opens the apparatus, compiling the statements it writes through
 	 */
 	public void open() {
+		// statements compiled against an earlier connection are released before it is replaced
+		if (m_statements != null) {
+			m_statements.close();
+		}
 		m_helper = new TaskDBHelper(m_context);
 		m_database = m_helper.getWritableDatabase();
+		m_statements = new TaskDBStatements(m_database, TaskDBHelper.areForeignKeysEnforced(m_database));
 	}
 	
 	/**
-	 * Closes the apparatus
+	 * Closes the apparatus, releasing its compiled statements
 	 */
 	public void close() {
+		if (m_statements != null) {
+			m_statements.close();
+			m_statements = null;
+		}
 		if (m_helper != null) {
 			m_helper.close();
 		}
 	}
 	
+	/**
+	 * Starts a batch: the writes up to the matching endBatch() are committed together in one transaction, with one
+	 * 	journal sync, instead of each in its own
+	 * Batches nest; the outermost one commits only if every batch inside it was committed. Use as:
+	 * 	beginBatch(); try { ...; commitBatch(); } finally { endBatch(); }
+	 */
+	public void beginBatch() {
+		m_database.beginTransaction();
+	}
+	
+	/**
+	 * Marks the current batch's writes to be kept when it ends
+	 * NOTE: This must be the batch's last database call before endBatch()
+	 */
+	public void commitBatch() {
+		m_database.setTransactionSuccessful();
+	}
+	
+	/**
+	 * Ends the current batch, committing its writes if commitBatch() was called and rolling them back otherwise
+	 */
+	public void endBatch() {
+		m_database.endTransaction();
+	}
+	
 	/**
 	 * Adds the given Task to the database
 	 * 
@@ -82,42 +144,21 @@ public class TaskDBApparatus {
 			return false;
 		}
 		
-		// if the Task already exists, fail
-		if (doesTaskExist(task.getID())) {
-			Log.d(POQTListConstants.LOG_TAG, "Cannot add Task with ID: " + task.getID() + " to database; ID already exists");
-			return false;
-		}
-		
-		// encode DueDate into String using date storage format string constant
-		Calendar dueDate = task.getDueDate();
-		String encodedDueDate;
-		if (dueDate == null) {
-			encodedDueDate = null;
-		}
-		else {
-			final String FORMAT = POQTListConstants.DB_DATE_STORAGE_FORMAT;
-			encodedDueDate = DateFormat.format(FORMAT, task.getDueDate()).toString();
-		}
+		long dueDateMillis = task.getDueMillis();
 		
 		// encode alarm time into date in milliseconds
 		long alarmDateMillis = 0;
-		if (dueDate != null) {
-			long dueDateMillis = dueDate.getTimeInMillis();
+		if (task.hasDueDate()) {
 			long alarmOffsetMillis = task.getAlarm().getMillisOffset();
 			alarmDateMillis = dueDateMillis - alarmOffsetMillis;
 		}
 
-		// insert new task into database
-		// INSERT INTO Task (ID, description, dueDate, priority) VALUES(task id, description, due date, priority)
-		ContentValues taskValues = new ContentValues();
-		taskValues.put(POQTListConstants.DB_TASK_KEY_ID, task.getID());
-		taskValues.put(POQTListConstants.DB_TASK_COLUMN_DESCRIPTION, task.getDescription());
-		taskValues.put(POQTListConstants.DB_TASK_COLUMN_DUEDATE, encodedDueDate);
-		taskValues.put(POQTListConstants.DB_TASK_COLUMN_PRIORITY, task.getPriority().ordinal());
-		taskValues.put(POQTListConstants.DB_TASK_COLUMN_ALARM_MILLIS, alarmDateMillis);
-		taskValues.put(POQTListConstants.DB_TASK_COLUMN_ALARM_ORDINAL, task.getAlarm().ordinal());
-		m_database.insert(POQTListConstants.DB_TASK_TABLE_NAME, null, taskValues);
-		
+		// insert new task into database; a taken ID leaves the existing row alone and inserts nothing
+		// INSERT OR IGNORE INTO Task (description, dueMillis, priority, alarm, alarm ordinal, ID) VALUES (?, ?, ?, ?, ?, ?)
+		if (m_statements.insertTask(task, alarmDateMillis) == 0) {
+			Log.d(POQTListConstants.LOG_TAG, "Cannot add Task with ID: " + task.getID() + " to database; ID already exists");
+			return false;
+		}
 		return true;
 	}
 	
@@ -133,21 +174,13 @@ public class TaskDBApparatus {
 			return false;
 		}
 		
-		// check if already in database
-		if (doesListExist(list.getID())) {
+		// insert the given TaskList into the database, unless it is already there
+		// INSERT OR IGNORE INTO TaskList (name, type ordinal, ID) VALUES (?, ?, ?)
+		if (m_statements.insertList(list) == 0) {
 			Log.d(POQTListConstants.LOG_TAG, "List with ID: " + list.getID() + " and name: " + list.getName() + " already exists");
 			return false;
 		}
 		
-		// insert the given TaskList into the database
-		// INSERT INTO TaskList(ID, name, type ordinal) VALUES(ID, new name, new type ordinal)
-		int adapterTypeOrdinal = list.getAdapter().getType().ordinal();
-		ContentValues values = new ContentValues();
-		values.put(POQTListConstants.DB_TASKLIST_KEY_ID, list.getID());
-		values.put(POQTListConstants.DB_TASKLIST_COLUMN_NAME, list.getName());
-		values.put(POQTListConstants.DB_TASKLIST_COLUMN_ADAPTERTYPE_ORDINAL, adapterTypeOrdinal);
-		m_database.insert(POQTListConstants.DB_TASKLIST_TABLE_NAME, null, values);
-		
 		Log.d(POQTListConstants.LOG_TAG, "List with ID: " + list.getID() + " and name: " + list.getName() + " successfully inserted");
 		
 		return true;
@@ -166,28 +199,13 @@ public class TaskDBApparatus {
 			return false;
 		}
 		
-		// if the relation already exists, no need to do insertion
-		if (doesListContain(list.getID(), task.getID())) {
+		// INSERT OR IGNORE INTO HasTask (listID, taskID) SELECT ?, ? WHERE the TaskList and the Task exist
+		if (m_statements.insertMembership(list.getID(), task.getID()) != 0) {
 			return true;
 		}
 		
-		// if the TaskList doesn't exist, fail
-		if (doesListExist(list.getID()) == false) {
-			return false;
-		}
-		
-		// if the Task doesn't exist, fail
-		if (doesTaskExist(task.getID()) == false) {
-			return false;
-		}
-		
-		// INSERT INTO HasTask(listID, taskID) VALUES (list ID, task ID)
-		ContentValues customHasTaskValues = new ContentValues();
-		customHasTaskValues.put(POQTListConstants.DB_HASTASK_KEY_LISTID, list.getID());
-		customHasTaskValues.put(POQTListConstants.DB_HASTASK_KEY_TASKID, task.getID());
-		m_database.insert(POQTListConstants.DB_HASTASK_TABLE_NAME, null, customHasTaskValues);
-			
-		return true;
+		// nothing inserted: either the relation already exists, which counts as success, or the TaskList or Task does not
+		return doesListContain(list.getID(), task.getID());
 	}
 	
 	/**
@@ -201,41 +219,24 @@ public class TaskDBApparatus {
 			return false;
 		}
 		
-		// if Task doesn't exist, do nothing
-		if (!doesTaskExist(task.getID())) {
-			return false;
-		}
-		
-		// remove from all relations in HasTask table first, in keeping with foreign key constraints
-		m_database.delete(POQTListConstants.DB_HASTASK_TABLE_NAME, POQTListConstants.DB_HASTASK_KEY_TASKID + " = '" + task.getID() + "'", null);
-		
-		// now remove Task from Task table
-		m_database.delete(POQTListConstants.DB_TASK_TABLE_NAME, POQTListConstants.DB_TASK_KEY_ID + " = '" + task.getID() + "'", null);
-		
-		return true;
+		// DELETE FROM Task WHERE ID = ?, cascading to the Task's HasTask rows
+		return m_statements.deleteTask(task.getID()) != 0;
 	}
 	
 	/**
 	 * Deletes the TaskList from the database if it exists; do nothing otherwise
 	 * 
 	 * @param list TaskList to delete
+	 * @return True if the TaskList was in the database; false otherwise
 	 */
-	public void deleteTaskList(TaskList list) {
+	public boolean deleteTaskList(TaskList list) {
 		// sanity check
 		if (list == null) {
-			return;
-		}
-		
-		// if TaskList doesn't exist, do nothing
-		if (!doesListExist(list.getID())) {
-			return;
+			return false;
 		}
 		
-		// remove from all relations in HasTask table first, in keeping with foreign key constraints
-		m_database.delete(POQTListConstants.DB_HASTASK_TABLE_NAME, POQTListConstants.DB_HASTASK_KEY_LISTID + " = " + list.getID(), null);
-		
-		// now remove TaskList from Task table
-		m_database.delete(POQTListConstants.DB_TASKLIST_TABLE_NAME, POQTListConstants.DB_TASKLIST_KEY_ID + " = " + list.getID(), null);
+		// DELETE FROM TaskList WHERE ID = ?, cascading to the list's HasTask rows
+		return m_statements.deleteList(list.getID()) != 0;
 	}
 	
 	/**
@@ -250,18 +251,8 @@ public class TaskDBApparatus {
 			return false;
 		}
 		
-		// if relation doesn't exist, do nothing
-		if (!doesListContain(list.getID(), task.getID())) {
-			return false;
-		}
-		
-		// remove relation
-		m_database.delete(POQTListConstants.DB_HASTASK_TABLE_NAME,								// table name
-				POQTListConstants.DB_HASTASK_KEY_TASKID + " = '" + task.getID() + "' AND " +	// WHERE arguments
-				POQTListConstants.DB_HASTASK_KEY_LISTID + " = '" + list.getID() + "'",
-				null);
-		
-		return true;
+		// remove relation; nothing is deleted if it does not exist
+		return m_statements.deleteMembership(list.getID(), task.getID()) != 0;
 	}
 	
 	/**
@@ -277,43 +268,18 @@ public class TaskDBApparatus {
 			return false;
 		}
 		
-		// if task doesn't exist, fail
-		if (!doesTaskExist(task.getID())) {
-			return false;
-		}
-		
-		// encode DueDate into String using date storage format string constant
-		Calendar dueDate = task.getDueDate();
-		String encodedDueDate;
-		if (dueDate == null) {
-			encodedDueDate = null;
-		}
-		else {
-			final String FORMAT = POQTListConstants.DB_DATE_STORAGE_FORMAT;
-			encodedDueDate = DateFormat.format(FORMAT, task.getDueDate()).toString();
-		}
+		long dueDateMillis = task.getDueMillis();
 		
 		// encode alarm time into date in milliseconds
 		long alarmDateMillis = 0;
-		if (dueDate != null) {
-			long dueDateMillis = dueDate.getTimeInMillis();
+		if (task.hasDueDate()) {
 			long alarmOffsetMillis = task.getAlarm().getMillisOffset();
 			alarmDateMillis = dueDateMillis - alarmOffsetMillis;
 		}
 		
-		ContentValues newValues = new ContentValues();
-		newValues.put(POQTListConstants.DB_TASK_COLUMN_DESCRIPTION, task.getDescription());
-		newValues.put(POQTListConstants.DB_TASK_COLUMN_DUEDATE, encodedDueDate);
-		newValues.put(POQTListConstants.DB_TASK_COLUMN_PRIORITY, task.getPriority().ordinal());
-		newValues.put(POQTListConstants.DB_TASK_COLUMN_ALARM_MILLIS, alarmDateMillis);
-		newValues.put(POQTListConstants.DB_TASK_COLUMN_ALARM_ORDINAL, task.getAlarm().ordinal());
-		
-		// UPDATE Task SET (description = new descrip, dueDate = new due date, priority = new priority) WHERE ID = task ID
-		m_database.update(POQTListConstants.DB_TASK_TABLE_NAME,						// table name
-				newValues,															// values mapping
-				POQTListConstants.DB_TASK_KEY_ID + "='" + task.getID() + "'",	// where clause
-				null);
-		return true;
+		// UPDATE Task SET (description = ?, dueMillis = ?, priority = ?, alarm = ?, alarm ordinal = ?) WHERE ID = ?
+		// a Task that is not in the database updates no rows
+		return m_statements.updateTask(task, alarmDateMillis) != 0;
 	}
 	
 	/**
@@ -328,26 +294,9 @@ public class TaskDBApparatus {
 			return false;
 		}
 		
-		// if TaskList doesn't exist, fail
-		if (!doesListExist(list.getID())) {
-			return false;
-		}
-		
-		// encode TaskList type
-		TaskAdapter adapter = list.getAdapter();
-		int adapterTypeOrdinal = adapter.getType().ordinal();
-		
-		// pack up updated values
-		ContentValues updatedValues = new ContentValues();
-		updatedValues.put(POQTListConstants.DB_TASKLIST_COLUMN_NAME, list.getName());
-		updatedValues.put(POQTListConstants.DB_TASKLIST_COLUMN_ADAPTERTYPE_ORDINAL, adapterTypeOrdinal);
-		
-		// UPDATE TaskList SET (listName = new list name, adapterTypeOrdinal = new adapter type ordinal) WHERE listID = list's ID
-		m_database.update(POQTListConstants.DB_TASKLIST_TABLE_NAME,						// table name
-				updatedValues,															// values mapping
-				POQTListConstants.DB_TASKLIST_KEY_ID + "='" + list.getID() + "'",		// where clause
-				null);
-		return true;
+		// UPDATE TaskList SET (listName = ?, adapterTypeOrdinal = ?) WHERE listID = ?
+		// a TaskList that is not in the database updates no rows
+		return m_statements.updateList(list) != 0;
 	}
 	
 	
@@ -361,16 +310,8 @@ public class TaskDBApparatus {
 	 * @return True if the TaskList exists in the database; false otherwise
 	 */
 	public boolean doesListExist(long listID) {
-		// SELECT some column FROM TaskList WHERE TaskList.ID = list ID
-		Cursor existsResult = m_database.query(POQTListConstants.DB_TASKLIST_TABLE_NAME, new String[]{POQTListConstants.DB_TASKLIST_COLUMN_NAME},
-				POQTListConstants.DB_TASKLIST_KEY_ID + " = '" + listID + "'", null, null, null, null);
-		if (existsResult.getCount() != 0) {
-			existsResult.close();
-			return true;
-		}
-		
-		existsResult.close();
-		return false;
+		// SELECT COUNT(*) FROM TaskList WHERE TaskList.ID = ?
+		return m_statements.hasList(listID);
 	}
 	
 	/**
@@ -380,16 +321,8 @@ public class TaskDBApparatus {
 	 * @return True if the Task exists in the database; false otherwise
 	 */
 	public boolean doesTaskExist(long taskID) {
-		// SELECT some column FROM Task WHERE Task.ID = task ID
-		Cursor existsResult = m_database.query(POQTListConstants.DB_TASK_TABLE_NAME, new String[]{POQTListConstants.DB_TASK_KEY_ID},
-				POQTListConstants.DB_TASK_KEY_ID + " = '" + taskID + "'", null, null, null, null);
-		if (existsResult.getCount() != 0) {
-			existsResult.close();
-			return true;
-		}
-		
-		existsResult.close();
-		return false;
+		// SELECT COUNT(*) FROM Task WHERE Task.ID = ?
+		return m_statements.hasTask(taskID);
 	}
 	
 	/**
@@ -400,18 +333,8 @@ public class TaskDBApparatus {
 	 * @return True if the relation exists; false otherwise
 	 */
 	public boolean doesListContain(long listID, long taskID) {
-		// SELECT some column FROM HasTask WHERE HasTask.listID = list ID AND HasTask.taskID = task ID
-		Cursor existsResult = m_database.query(POQTListConstants.DB_HASTASK_TABLE_NAME,
-				new String[]{POQTListConstants.DB_HASTASK_KEY_LISTID},	// select only one arbitrary column to minimize data footprint
-				POQTListConstants.DB_HASTASK_KEY_LISTID + "='" + listID + "' AND " + POQTListConstants.DB_HASTASK_KEY_TASKID + "='" + taskID + "'",
-				null, null, null, null);
-		if (existsResult.getCount() != 0) {
-			existsResult.close();
-			return true;
-		}
-		
-		existsResult.close();
-		return false;
+		// SELECT COUNT(*) FROM HasTask WHERE HasTask.listID = ? AND HasTask.taskID = ?
+		return m_statements.hasMembership(listID, taskID);
 	}
 	
 	/**
@@ -431,7 +354,7 @@ public class TaskDBApparatus {
 		// SELECT * FROM TaskList WHERE TaskList.ID = list ID
 		Cursor taskListCursor = m_database.query(POQTListConstants.DB_TASKLIST_TABLE_NAME,
 				null,
-				POQTListConstants.DB_TASKLIST_KEY_ID + "='" + listID + "'",
+				POQTListConstants.DB_TASKLIST_KEY_ID + " = " + listID,
 				null, null, null, null);
 		// ensure results were found
 		if (taskListCursor.getCount() == 0) {
@@ -447,14 +370,19 @@ public class TaskDBApparatus {
 		TaskAdapter.Type adapterType = TaskAdapter.Type.findType(adapterTypeOrdinal);
 		taskListCursor.close();
 		
+		// the completed list is read a page at a time rather than loaded
+		if (listID == POQTListConstants.COMPLETED_TASKLIST_ID) {
+			return new TaskList(listID, listName, new TaskAdapter(m_context, adapterType, this, listID));
+		}
+		
 		// SELECT taskID FROM HasTask WHERE listID = given list ID
 		String containedTasksQuery = "SELECT " + POQTListConstants.DB_HASTASK_KEY_TASKID + " FROM  " + POQTListConstants.DB_HASTASK_TABLE_NAME +
-				" WHERE " + POQTListConstants.DB_HASTASK_KEY_LISTID + "='" + listID + "'";
+				" WHERE " + POQTListConstants.DB_HASTASK_KEY_LISTID + " = " + listID;
 		// contained tasks INNER JOIN Task ON contained.taskID = Task.ID
 		String joinQuery = "(" + containedTasksQuery + ") INNER JOIN " + POQTListConstants.DB_TASK_TABLE_NAME + " ON " +
 				POQTListConstants.DB_HASTASK_KEY_TASKID + "=" + POQTListConstants.DB_TASK_KEY_ID;
-		// SELECT * FROM contained tasks joined with task data
-		String selectQuery  = "SELECT * FROM (" + joinQuery + ");";
+		// SELECT * FROM contained tasks joined with task data ORDER BY dueMillis IS NULL, dueMillis, priority DESC, taskID
+		String selectQuery  = "SELECT * FROM (" + joinQuery + ") ORDER BY " + buildRankOrder(POQTListConstants.DB_TASK_KEY_ID) + ";";
 		Cursor containedTasksResults = m_database.rawQuery(selectQuery, null);
 		
 		// build list of tasks from database results
@@ -466,40 +394,145 @@ public class TaskDBApparatus {
 	}
 	
 	/**
-	 * Generates all lists from database that do not have the "main" or "completed" list's names
+	 * Reads every TaskList in the database in a single ordered pass, for startup
+	 * One join over TaskList, HasTask, and Task streams each list in ID order, with the rows of "main" (the only list
+	 * 	held whole) following it in the order its adapter keeps them, so they load in bulk without a sort. "completed"
+	 * 	is read a page at a time, and custom lists are loaded from "main"'s Tasks when first shown, so neither joins
+	 * 	any Tasks here.
 	 * 
-	 * @return List of custom TaskLists in database
+	 * @return Every TaskList in ascending ID order: "main" loaded, "completed" windowed, and custom lists as descriptors
 	 */
-	public ArrayList<TaskList> getCustomLists() {
-		ArrayList<TaskList> customLists = new ArrayList<TaskList>();
-		
-		// SELECT TaskList.listID FROM TaskList WHERE TaskList.listID != main task list || completed task list
-		long mainListID = POQTListConstants.MAIN_TASKLIST_ID;
-		long completedListID = POQTListConstants.COMPLETED_TASKLIST_ID;
-		Cursor customListsResult = m_database.query(POQTListConstants.DB_TASKLIST_TABLE_NAME, 
-				new String[]{POQTListConstants.DB_TASKLIST_KEY_ID},
-				POQTListConstants.DB_TASKLIST_KEY_ID + "!='" + mainListID + "' AND " 
-					+ POQTListConstants.DB_TASKLIST_KEY_ID + "!='" + completedListID + "'",
-				null, null, null, null);
-		Log.d(POQTListConstants.LOG_TAG, "Cursor of custom lists has size: " + customListsResult.getCount());
-		
-		// iterate through each custom list, build it into a TaskList object, and add to list of custom TaskLists
-		while (customListsResult.moveToNext()) {
-			long listID = customListsResult.getLong(0);
-			Log.d(POQTListConstants.LOG_TAG, "Examining custom list with ID: " + listID);
-			TaskList newList = getTaskList(listID);
+	public ArrayList<TaskList> getAllTaskLists() {
+		// SELECT TaskList.*, Task.* FROM TaskList
+		//	LEFT JOIN HasTask ON HasTask.listID = TaskList.ID AND HasTask.listID = main list ID
+		//	LEFT JOIN Task ON Task.ID = HasTask.taskID
+		//	ORDER BY TaskList.ID, Task.dueMillis IS NULL, Task.dueMillis, Task.priority DESC, HasTask.taskID
+		String listID = POQTListConstants.DB_TASKLIST_TABLE_NAME + "." + POQTListConstants.DB_TASKLIST_KEY_ID;
+		String memberListID = POQTListConstants.DB_HASTASK_TABLE_NAME + "." + POQTListConstants.DB_HASTASK_KEY_LISTID;
+		String memberTaskID = POQTListConstants.DB_HASTASK_TABLE_NAME + "." + POQTListConstants.DB_HASTASK_KEY_TASKID;
+		String listsQuery = "SELECT " + POQTListConstants.DB_TASKLIST_TABLE_NAME + ".*, " + POQTListConstants.DB_TASK_TABLE_NAME + ".*"
+				+ " FROM " + POQTListConstants.DB_TASKLIST_TABLE_NAME
+				+ " LEFT JOIN " + POQTListConstants.DB_HASTASK_TABLE_NAME + " ON " + memberListID + " = " + listID
+					+ " AND " + memberListID + " = " + POQTListConstants.MAIN_TASKLIST_ID
+				+ " LEFT JOIN " + POQTListConstants.DB_TASK_TABLE_NAME + " ON "
+					+ POQTListConstants.DB_TASK_TABLE_NAME + "." + POQTListConstants.DB_TASK_KEY_ID + " = " + memberTaskID
+				+ " ORDER BY " + listID + ", " + buildRankOrder(memberTaskID) + ";";
+		Cursor listsResults = m_database.rawQuery(listsQuery, null);
+		
+		int listIDIndex = listsResults.getColumnIndex(POQTListConstants.DB_TASKLIST_KEY_ID);
+		int nameIndex = listsResults.getColumnIndex(POQTListConstants.DB_TASKLIST_COLUMN_NAME);
+		int adapterTypeOrdinalIndex = listsResults.getColumnIndex(POQTListConstants.DB_TASKLIST_COLUMN_ADAPTERTYPE_ORDINAL);
+		int[] columns = findTaskColumns(listsResults);
+		
+		// each list's rows arrive together, so a list is built once the next list's first row is reached
+		ArrayList<TaskList> taskLists = new ArrayList<TaskList>();
+		List<Task> mainTasks = new ArrayList<Task>();
+		boolean hasRow = listsResults.moveToNext();
+		while (hasRow) {
+			long currentListID = listsResults.getLong(listIDIndex);
+			String listName = listsResults.getString(nameIndex);
+			TaskAdapter.Type adapterType = TaskAdapter.Type.findType(listsResults.getInt(adapterTypeOrdinalIndex));
+			do {
+				// a list with no joined Tasks comes back as one row of NULL Task columns
+				if (!listsResults.isNull(columns[TASK_COLUMN_ID])) {
+					mainTasks.add(unpackTask(listsResults, columns, m_taskStore));
+				}
+				hasRow = listsResults.moveToNext();
+			} while (hasRow && listsResults.getLong(listIDIndex) == currentListID);
 			
-			// skip ID if list cannot be built
-			if (newList == null) {
-				Log.d(POQTListConstants.LOG_TAG, "Did not add list with ID: " + listID + " as it was null");
-				continue;
+			if (currentListID == POQTListConstants.MAIN_TASKLIST_ID) {
+				taskLists.add(new TaskList(currentListID, listName, new TaskAdapter(m_context, adapterType, mainTasks)));
+			}
+			else if (currentListID == POQTListConstants.COMPLETED_TASKLIST_ID) {
+				taskLists.add(new TaskList(currentListID, listName, new TaskAdapter(m_context, adapterType, this, currentListID)));
+			}
+			// skip custom list if its stored information cannot be read
+			else if (listName == null || adapterType == null) {
+				Log.d(POQTListConstants.LOG_TAG, "Did not add list with ID: " + currentListID + " as its information was invalid");
+			}
+			else {
+				taskLists.add(new TaskList(currentListID, listName, adapterType));
 			}
-			
-			customLists.add(newList);
 		}
 		
-		customListsResult.close();
-		return customLists;
+		listsResults.close();
+		return taskLists;
+	}
+	
+	/**
+	 * Reads the IDs of the Tasks in the given TaskList, without reading the Tasks themselves
+	 * 
+	 * @param listID ID of the TaskList
+	 * @return IDs of the Tasks in the list, in ascending order
+	 */
+	public long[] getListTaskIDs(long listID) {
+		// SELECT taskID FROM HasTask WHERE listID = list ID ORDER BY taskID
+		Cursor idResults = m_database.rawQuery("SELECT " + POQTListConstants.DB_HASTASK_KEY_TASKID + " FROM " + POQTListConstants.DB_HASTASK_TABLE_NAME
+				+ " WHERE " + POQTListConstants.DB_HASTASK_KEY_LISTID + " = " + listID
+				+ " ORDER BY " + POQTListConstants.DB_HASTASK_KEY_TASKID, null);
+		long[] taskIDs = new long[idResults.getCount()];
+		int count = 0;
+		while (count < taskIDs.length && idResults.moveToNext()) {
+			taskIDs[count++] = idResults.getLong(0);
+		}
+		idResults.close();
+		return taskIDs;
+	}
+	
+	/**
+	 * Counts the Tasks in the given TaskList
+	 * 
+	 * @param listID ID of the TaskList
+	 * @return Number of Tasks in the list
+	 */
+	public int countListTasks(long listID) {
+		// SELECT COUNT(*) FROM HasTask WHERE listID = list ID
+		Cursor countResult = m_database.rawQuery("SELECT COUNT(*) FROM " + POQTListConstants.DB_HASTASK_TABLE_NAME
+				+ " WHERE " + POQTListConstants.DB_HASTASK_KEY_LISTID + " = " + listID, null);
+		int count = countResult.moveToFirst() ? countResult.getInt(0) : 0;
+		countResult.close();
+		return count;
+	}
+	
+	/**
+	 * Reads one page of the given TaskList's Tasks, newest membership first
+	 * Rows are keyed by their HasTask rowid, which grows with every insertion, so a page following a known row is
+	 * 	found through the rowid index ("rowid < key") instead of by skipping every row before it with OFFSET.
+	 * NOTE: Safe to call from a background thread; the Tasks read are only placed in the given TaskStore
+	 * 
+	 * @param listID ID of the TaskList
+	 * @param afterKey Key of the row just before the page, or NO_KEY to find the page by offset
+	 * @param offset Position of the page's first row (only used if afterKey is NO_KEY)
+	 * @param store TaskStore to hold the page's Tasks
+	 * @param tasks Array to fill with the page's Tasks (its length is the most rows read)
+	 * @param rowKeys Array to fill with the key of each row read, in step with tasks
+	 * @return Number of rows read
+	 */
+	public int loadListPage(long listID, long afterKey, int offset, TaskStore store, Task[] tasks, long[] rowKeys) {
+		// SELECT HasTask.rowid AS rowKey, Task.* FROM HasTask INNER JOIN Task ON HasTask.taskID = Task.ID
+		//	WHERE HasTask.listID = list ID [AND HasTask.rowid < key] ORDER BY HasTask.rowid DESC LIMIT page size [OFFSET offset]
+		String hasTaskRowID = POQTListConstants.DB_HASTASK_TABLE_NAME + ".rowid";
+		String pageQuery = "SELECT " + hasTaskRowID + " AS " + ROW_KEY_COLUMN + ", " + POQTListConstants.DB_TASK_TABLE_NAME + ".*"
+				+ " FROM " + POQTListConstants.DB_HASTASK_TABLE_NAME + " INNER JOIN " + POQTListConstants.DB_TASK_TABLE_NAME
+				+ " ON " + POQTListConstants.DB_HASTASK_KEY_TASKID + " = " + POQTListConstants.DB_TASK_KEY_ID
+				+ " WHERE " + POQTListConstants.DB_HASTASK_KEY_LISTID + " = " + listID
+				+ ((afterKey != NO_KEY) ? " AND " + hasTaskRowID + " < " + afterKey : "")
+				+ " ORDER BY " + hasTaskRowID + " DESC LIMIT " + tasks.length
+				+ ((afterKey != NO_KEY) ? "" : " OFFSET " + offset);
+		Cursor pageResults = m_database.rawQuery(pageQuery, null);
+		
+		int[] columns = findTaskColumns(pageResults);
+		int rowKeyColumnIndex = pageResults.getColumnIndex(ROW_KEY_COLUMN);
+		
+		int count = 0;
+		while (count < tasks.length && pageResults.moveToNext()) {
+			tasks[count] = unpackTask(pageResults, columns, store);
+			rowKeys[count] = pageResults.getLong(rowKeyColumnIndex);
+			count++;
+		}
+		
+		pageResults.close();
+		return count;
 	}
 	
 	/**
@@ -508,8 +541,7 @@ public class TaskDBApparatus {
 	 * @return List of tasks with future alarms
 	 */
 	public List<Task> getAlarmTasks() {
-		Calendar currentTime = Calendar.getInstance();
-		long currentMillis = currentTime.getTimeInMillis();
+		long currentMillis = System.currentTimeMillis();
 		
 		// SELECT description, alarmInMillis FROM Task WHERE alarmInMillis > current time in millis
 		Cursor alarmTasksResult = m_database.query(POQTListConstants.DB_TASK_TABLE_NAME,
@@ -524,6 +556,21 @@ public class TaskDBApparatus {
 	
 	
 	// ========== Helper Functions ==========
+	/**
+	 * Builds the ORDER BY terms that read a list's Tasks in the order a TaskAdapter keeps each run of them: dated Tasks
+	 * 	soonest due first, then by higher priority and lower ID, and undated Tasks (NULL dueMillis, last) by ID
+	 * 
+	 * @param taskIDColumn Column holding the Task ID in the query
+	 * @return The ORDER BY terms, without the ORDER BY
+	 */
+	private static String buildRankOrder(String taskIDColumn) {
+		// dueMillis IS NULL, dueMillis, priority DESC, taskID
+		return POQTListConstants.DB_TASK_COLUMN_DUE_MILLIS + " IS NULL, "
+				+ POQTListConstants.DB_TASK_COLUMN_DUE_MILLIS + ", "
+				+ POQTListConstants.DB_TASK_COLUMN_PRIORITY + " DESC, "
+				+ taskIDColumn;
+	}
+	
 	/**
 	 * Unpacks the results from a query containing all the columns in the Task table into a List of Task objects.
 	 * Cursor should contain at least all the columns of the Task table.
@@ -537,64 +584,56 @@ public class TaskDBApparatus {
 		if (results == null) {
 			throw new IllegalArgumentException("Cannot unpack null Cursor");
 		}
-				
-		// get column indices
-		int IDColumnIndex = results.getColumnIndex(POQTListConstants.DB_TASK_KEY_ID);
-		int descriptionColumnIndex = results.getColumnIndex(POQTListConstants.DB_TASK_COLUMN_DESCRIPTION);
-		int dueDateColumnIndex = results.getColumnIndex(POQTListConstants.DB_TASK_COLUMN_DUEDATE);
-		int priorityOrdinalColumnIndex = results.getColumnIndex(POQTListConstants.DB_TASK_COLUMN_PRIORITY);
-		int alarmOrdinalColumnIndex = results.getColumnIndex(POQTListConstants.DB_TASK_COLUMN_ALARM_ORDINAL);
-		
-		// ensure all columns are in Cursor
-		boolean allColumnsPresent = IDColumnIndex != -1
-				&& descriptionColumnIndex != -1
-				&& dueDateColumnIndex != -1
-				&& priorityOrdinalColumnIndex != -1
-				&& alarmOrdinalColumnIndex != -1;
-		if (!allColumnsPresent) {
-			throw new IllegalArgumentException("Cursor to unpack should contain all columns of Task table");
-		}
+		int[] columns = findTaskColumns(results);
 		
 		// unpack each task's information from database result into Task object
 		while (results.moveToNext()) {
-			// unpack ID and description
-			long taskID = results.getLong(IDColumnIndex);
-			String description = results.getString(descriptionColumnIndex);
-			
-			// decode due date
-			String encodedDueDate = results.getString(dueDateColumnIndex);
-			GregorianCalendar dueDate;
-			if (encodedDueDate != null) {
-				// !!!! MAY NOT ACCOUNT FOR TIME ZONES PROPERLY !!!
-				SimpleDateFormat format = new SimpleDateFormat(POQTListConstants.DB_DATE_STORAGE_FORMAT);
-				Date tempDueDate;
-				try {
-					tempDueDate = format.parse(encodedDueDate);
-				} catch (java.text.ParseException exc) {
-					continue;
-				}
-				dueDate = new GregorianCalendar();
-				dueDate.setTime(tempDueDate);
-			}
-			else {
-				dueDate = null;
-			}
+			Log.d(POQTListConstants.LOG_TAG, "Unpacking task with ID: " + results.getLong(columns[TASK_COLUMN_ID]));
 			
-			// decode priority
-			int priorityOrdinal = results.getInt(priorityOrdinalColumnIndex);
-			Priority priority = Priority.findPriority(priorityOrdinal);
-			
-			// decode alarm
-			int alarmOrdinal = results.getInt(alarmOrdinalColumnIndex);
-			Alarm alarm = Alarm.findAlarm(alarmOrdinal);
-			
-			Log.d(POQTListConstants.LOG_TAG, "Unpacking task with ID: " + taskID);
-
 			// build Task object and add to adapter
-			Task newTask = new Task(taskID, description, dueDate, priority, alarm);
-			unpackedTasks.add(newTask);
+			unpackedTasks.add(unpackTask(results, columns, m_taskStore));
 		}
 		
 		return unpackedTasks;
 	}
+	
+	/**
+	 * Finds the indices of the Task table's columns in the given Cursor
+	 * 
+	 * @param results Cursor containing at least all the columns of the Task table
+	 * @return Column indices, indexed by the TASK_COLUMN constants
+	 */
+	private static int[] findTaskColumns(Cursor results) {
+		int[] columns = new int[TASK_COLUMN_COUNT];
+		columns[TASK_COLUMN_ID] = results.getColumnIndex(POQTListConstants.DB_TASK_KEY_ID);
+		columns[TASK_COLUMN_DESCRIPTION] = results.getColumnIndex(POQTListConstants.DB_TASK_COLUMN_DESCRIPTION);
+		columns[TASK_COLUMN_DUE_MILLIS] = results.getColumnIndex(POQTListConstants.DB_TASK_COLUMN_DUE_MILLIS);
+		columns[TASK_COLUMN_PRIORITY] = results.getColumnIndex(POQTListConstants.DB_TASK_COLUMN_PRIORITY);
+		columns[TASK_COLUMN_ALARM] = results.getColumnIndex(POQTListConstants.DB_TASK_COLUMN_ALARM_ORDINAL);
+		
+		// ensure all columns are in Cursor
+		for (int column : columns) {
+			if (column == -1) {
+				throw new IllegalArgumentException("Cursor to unpack should contain all columns of Task table");
+			}
+		}
+		return columns;
+	}
+	
+	/**
+	 * Builds a Task from the Cursor's current row
+	 * 
+	 * @param results Cursor positioned on the row
+	 * @param columns Column indices found by findTaskColumns
+	 * @param store TaskStore to hold the Task
+	 * @return The unpacked Task
+	 */
+	private static Task unpackTask(Cursor results, int[] columns, TaskStore store) {
+		long taskID = results.getLong(columns[TASK_COLUMN_ID]);
+		String description = results.getString(columns[TASK_COLUMN_DESCRIPTION]);
+		long dueDateMillis = results.isNull(columns[TASK_COLUMN_DUE_MILLIS]) ? Task.NO_DUE_DATE : results.getLong(columns[TASK_COLUMN_DUE_MILLIS]);
+		Priority priority = Priority.findPriority(results.getInt(columns[TASK_COLUMN_PRIORITY]));
+		Alarm alarm = Alarm.findAlarm(results.getInt(columns[TASK_COLUMN_ALARM]));
+		return new Task(store, taskID, description, dueDateMillis, priority, alarm);
+	}
 }
@@ -1,18 +1,15 @@
 package edu.illinois.cs.projects.today1.database;
 
-import java.text.SimpleDateFormat;
-
 import android.content.Context;
+import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
-import android.text.format.DateFormat;
 import android.util.Log;
 import edu.illinois.cs.projects.today1.POQTListConstants;
-import edu.illinois.cs.projects.today1.task.Task;
-import edu.illinois.cs.projects.today1.task.TaskList;
 
 /**
  * Overwrites the SQLiteOpenHelper class to implement a database helper specific to POQTList
+ * An older database is upgraded by running each TaskDBMigration after its version in order, keeping its data.
  * 
  * @author Kevin Today
  *
@@ -20,7 +17,20 @@ import edu.illinois.cs.projects.today1.task.TaskList;
  */
 public class TaskDBHelper extends SQLiteOpenHelper {
 	// ========== Member Variables ==========
-	private static final int database_version = 1;
+	private static final int database_version = 4;
+	
+	// every step of the schema's history, oldest first; the last one's version must be database_version
+	private static final TaskDBMigration[] MIGRATIONS = {
+		// version 2 indexes HasTask by list so a list can be paged through in rowid order
+		new TaskDBMigration(2) {
+			@Override
+			void migrate(SQLiteDatabase db) {
+				db.execSQL(buildHasTaskByListIndexQuery());
+			}
+		},
+		new DueMillisMigration(),
+		new HasTaskCascadeMigration(),
+	};
 
 	
 	// ========== Constructors ==========
@@ -30,7 +40,18 @@ public class TaskDBHelper extends SQLiteOpenHelper {
 	 * @param context Handle to the context the database is being created in
 	 */
 	public TaskDBHelper(Context context) {
-		super(context, POQTListConstants.DB_NAME, null, 1);
+		this(context, POQTListConstants.DB_NAME);
+	}
+	
+	/**
+	 * Instantiates a new TaskDatabaseHelper object over the database of the given name
+	 * NOTE: The app only uses the database named by DB_NAME; other names keep databases under test apart from it
+	 * 
+	 * @param context Handle to the context the database is being created in
+	 * @param name Name of the database file
+	 */
+	public TaskDBHelper(Context context, String name) {
+		super(context, name, null, database_version);
 	}
 	
 	
@@ -45,11 +66,11 @@ public class TaskDBHelper extends SQLiteOpenHelper {
 		// formulate queries to create the database
 		// create Task table
 		
-		// CREATE TALBE IF NOT EXISTS Task (ID, description, dueDate, priority, alarmInMillis)
+		// CREATE TALBE IF NOT EXISTS Task (ID, description, dueMillis, priority, alarmInMillis)
 		String taskTableQuery = "CREATE TABLE IF NOT EXISTS " + POQTListConstants.DB_TASK_TABLE_NAME + " ("
 			+ POQTListConstants.DB_TASK_KEY_ID + " INTEGER PRIMARY KEY, "
 			+ POQTListConstants.DB_TASK_COLUMN_DESCRIPTION + " TEXT, "
-			+ POQTListConstants.DB_TASK_COLUMN_DUEDATE + " TEXT, "
+			+ POQTListConstants.DB_TASK_COLUMN_DUE_MILLIS + " INTEGER, "		// due date in milliseconds (NULL if none)
 			+ POQTListConstants.DB_TASK_COLUMN_PRIORITY + " INT,"			// index of priority in Task.Priority constant
 			+ POQTListConstants.DB_TASK_COLUMN_ALARM_MILLIS + " INT,"		// time of alarm in milliseconds
 			+ POQTListConstants.DB_TASK_COLUMN_ALARM_ORDINAL + " INT);";	// index of alarm in Task.Alarm constant
@@ -64,17 +85,39 @@ public class TaskDBHelper extends SQLiteOpenHelper {
 		db.execSQL(taskListQuery);
 		
 		// create HasTask table, a relation between the TaskList and Task tables
-		// CREATE TABLE IF NOT EXISTS HasTask (listID, taskID)
-		String hasTaskQuery = "CREATE TABLE IF NOT EXISTS " + POQTListConstants.DB_HASTASK_TABLE_NAME + " ("
-			+ POQTListConstants.DB_HASTASK_KEY_LISTID + " INTEGER,"
-			+ POQTListConstants.DB_HASTASK_KEY_TASKID + " INTEGER,"
-			+ "PRIMARY KEY (" + POQTListConstants.DB_HASTASK_KEY_LISTID + ", " + POQTListConstants.DB_HASTASK_KEY_TASKID + "), "
-			+ "FOREIGN KEY(" + POQTListConstants.DB_HASTASK_KEY_LISTID + ") REFERENCES " 
-				+ POQTListConstants.DB_TASKLIST_TABLE_NAME + "(" + POQTListConstants.DB_TASKLIST_KEY_ID + "), "
-			+ "FOREIGN KEY(" + POQTListConstants.DB_HASTASK_KEY_TASKID + ") REFERENCES " 
-				+ POQTListConstants.DB_TASK_TABLE_NAME + "(" + POQTListConstants.DB_TASK_KEY_ID + ")"
-			+ ");";
-		db.execSQL(hasTaskQuery);
+		db.execSQL(buildHasTaskTableQuery(POQTListConstants.DB_HASTASK_TABLE_NAME));
+		db.execSQL(buildHasTaskByListIndexQuery());
+	}
+	
+	@Override
+	/**
+	 * Called each time the database is opened, after any creation or upgrade
+	 * Foreign keys are switched on so deleting a Task or TaskList deletes its HasTask rows; SQLite versions older
+	 * 	than 3.6.19 ignore the pragma, which areForeignKeysEnforced() reports.
+	 * 
+	 * @param db The opened database
+	 */
+	public void onOpen(SQLiteDatabase db) {
+		super.onOpen(db);
+		if (!db.isReadOnly()) {
+			db.execSQL("PRAGMA foreign_keys = ON;");
+		}
+	}
+	
+	
+	// ========== Public Functions ==========
+	/**
+	 * Checks if the given database enforces foreign keys, and with them HasTask's cascading deletes
+	 * 
+	 * @param db An open database
+	 * @return True if foreign keys are enforced; false if they are off or this SQLite version does not know them
+	 */
+	public static boolean areForeignKeysEnforced(SQLiteDatabase db) {
+		// PRAGMA foreign_keys returns no row at all on versions that predate it
+		Cursor pragmaResult = db.rawQuery("PRAGMA foreign_keys;", null);
+		boolean enforced = pragmaResult.moveToFirst() && pragmaResult.getInt(0) == 1;
+		pragmaResult.close();
+		return enforced;
 	}
 
 	@Override
@@ -86,19 +129,58 @@ public class TaskDBHelper extends SQLiteOpenHelper {
 	 * @param newVersion The database's new version.
 	 */
 	public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
-		// logs that the database is being upgraded
-		Log.w("TaskDatabaseHelper", "Upgrading database from " + oldVersion + " to " + newVersion + "; destroying all old data");
-		
-		// upgrade version 2
-		if (oldVersion == 1 && newVersion == 2) {
-			// run alteration scripts
-		}
-		else {
-			// drops everything and recreates database
+		// a version no migration starts from has no path forward, so it is dropped and recreated
+		if (oldVersion < 1 || newVersion > database_version) {
+			Log.w("TaskDatabaseHelper", "Cannot migrate database from " + oldVersion + " to " + newVersion + "; destroying all old data");
 			db.execSQL("DROP TABLE IF EXISTS " + POQTListConstants.DB_TASK_TABLE_NAME + ";");
 			db.execSQL("DROP TABLE IF EXISTS " + POQTListConstants.DB_TASKLIST_TABLE_NAME + ";");
 			db.execSQL("DROP TABLE IF EXISTS " + POQTListConstants.DB_HASTASK_TABLE_NAME + ";");
 			onCreate(db);
+			return;
+		}
+		
+		// run every migration past the old version in order; SQLiteOpenHelper commits them all or none
+		for (TaskDBMigration migration : MIGRATIONS) {
+			int version = migration.getVersion();
+			if (version > oldVersion && version <= newVersion) {
+				Log.w("TaskDatabaseHelper", "Migrating database to version " + version);
+				migration.migrate(db);
+			}
 		}
 	}
+	
+	
+	// ========== Helper Functions ==========
+	/**
+	 * Builds the query creating a HasTask table under the given name
+	 * Each membership cascades away with its TaskList or Task, wherever foreign keys are enforced
+	 * 
+	 * @param tableName Name to create the table under
+	 * @return The CREATE TABLE query
+	 */
+	static String buildHasTaskTableQuery(String tableName) {
+		// CREATE TABLE IF NOT EXISTS HasTask (listID, taskID)
+		return "CREATE TABLE IF NOT EXISTS " + tableName + " ("
+			+ POQTListConstants.DB_HASTASK_KEY_LISTID + " INTEGER,"
+			+ POQTListConstants.DB_HASTASK_KEY_TASKID + " INTEGER,"
+			+ "PRIMARY KEY (" + POQTListConstants.DB_HASTASK_KEY_LISTID + ", " + POQTListConstants.DB_HASTASK_KEY_TASKID + "), "
+			+ "FOREIGN KEY(" + POQTListConstants.DB_HASTASK_KEY_LISTID + ") REFERENCES " 
+				+ POQTListConstants.DB_TASKLIST_TABLE_NAME + "(" + POQTListConstants.DB_TASKLIST_KEY_ID + ") ON DELETE CASCADE, "
+			+ "FOREIGN KEY(" + POQTListConstants.DB_HASTASK_KEY_TASKID + ") REFERENCES " 
+				+ POQTListConstants.DB_TASK_TABLE_NAME + "(" + POQTListConstants.DB_TASK_KEY_ID + ") ON DELETE CASCADE"
+			+ ");";
+	}
+	
+	/**
+	 * Builds the query creating the index of HasTask by list
+	 * An index on the list ID alone keeps each list's entries in rowid order, so a list can be read newest first
+	 * 	a page at a time without sorting it
+	 * 
+	 * @return The CREATE INDEX query
+	 */
+	static String buildHasTaskByListIndexQuery() {
+		// CREATE INDEX IF NOT EXISTS HasTaskByList ON HasTask (listID)
+		return "CREATE INDEX IF NOT EXISTS " + POQTListConstants.DB_HASTASK_INDEX_BY_LIST + " ON "
+			+ POQTListConstants.DB_HASTASK_TABLE_NAME + " (" + POQTListConstants.DB_HASTASK_KEY_LISTID + ");";
+	}
 }
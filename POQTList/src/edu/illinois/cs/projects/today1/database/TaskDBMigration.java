@@ -0,0 +1,46 @@
+package edu.illinois.cs.projects.today1.database;
+
+import android.database.sqlite.SQLiteDatabase;
+
+/**
+ * One step of the database's schema history, bringing a database from the version before it up to its own
+ * TaskDBHelper runs every step between a database's version and the current one in order, inside the upgrade's
+ * 	transaction, so the data a user already has is carried forward rather than dropped.
+ *
+ * @author Kevin Today
+ */
+abstract class TaskDBMigration {
+	// ========== Member Variables ==========
+	private final int m_version;	// database version the migration brings the schema to
+
+
+	// ========== Constructors ==========
+	/**
+	 * Instantiates a migration bringing the database up to the given version
+	 *
+	 * @param version Database version after the migration (at least 2)
+	 */
+	TaskDBMigration(int version) {
+		// sanity check
+		if (version < 2) {
+			throw new IllegalArgumentException("A migration must bring the database to version 2 or later, not " + version);
+		}
+
+		m_version = version;
+	}
+
+
+	// ========== Public Functions ==========
+	/**
+	 * Brings the given database from the version before this migration's up to its version
+	 *
+	 * @param db The database to migrate, inside the upgrade's transaction
+	 */
+	abstract void migrate(SQLiteDatabase db);
+
+
+	// ========== Getter Functions ==========
+	int getVersion() {
+		return m_version;
+	}
+}
@@ -0,0 +1,301 @@
+package edu.illinois.cs.projects.today1.database;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import edu.illinois.cs.projects.today1.POQTListConstants;
+import edu.illinois.cs.projects.today1.task.Task;
+import edu.illinois.cs.projects.today1.task.TaskList;
+
+/**
+ * Cache of the precompiled statements behind TaskDBApparatus' writes and existence checks
+ * Each statement is parsed and planned once when the apparatus opens, and every call only binds its primitive
+ * 	arguments, so IDs are compared as integers rather than as quoted text. Writes lean on the schema's constraints
+ * 	instead of checking first: inserts are ignored when their row already exists, and each write reports the
+ * 	number of rows it changed.
+ * NOTE: A SQLiteStatement holds one set of bindings, so the cache is not thread-safe; it is meant to be used from the
+ * 	UI thread, as the apparatus' writes are. Paged reads (TaskPageSource) run elsewhere and do not use it.
+ *
+ * @author Kevin Today
+ */
+class TaskDBStatements {
+	// ========== Member Variables ==========
+	private final SQLiteStatement m_insertTask;				// INSERT OR IGNORE INTO Task (all columns)
+	private final SQLiteStatement m_updateTask;				// UPDATE Task SET (all non-ID columns) WHERE taskID
+	private final SQLiteStatement m_deleteTask;				// DELETE FROM Task WHERE taskID
+	private final SQLiteStatement m_countTask;				// SELECT COUNT(*) FROM Task WHERE taskID
+	private final SQLiteStatement m_insertList;				// INSERT OR IGNORE INTO TaskList (all columns)
+	private final SQLiteStatement m_updateList;				// UPDATE TaskList SET (all non-ID columns) WHERE listID
+	private final SQLiteStatement m_deleteList;				// DELETE FROM TaskList WHERE listID
+	private final SQLiteStatement m_countList;				// SELECT COUNT(*) FROM TaskList WHERE listID
+	private final SQLiteStatement m_insertMembership;		// INSERT OR IGNORE INTO HasTask (listID, taskID) if both exist
+	private final SQLiteStatement m_deleteMembership;		// DELETE FROM HasTask WHERE listID AND taskID
+	private final SQLiteStatement m_deleteTaskMemberships;	// DELETE FROM HasTask WHERE taskID (without cascades)
+	private final SQLiteStatement m_deleteListMemberships;	// DELETE FROM HasTask WHERE listID (without cascades)
+	private final SQLiteStatement m_countMembership;		// SELECT COUNT(*) FROM HasTask WHERE listID AND taskID
+	private final SQLiteStatement m_changes;				// SELECT changes()
+	private final boolean m_cascades;						// whether deleting a Task or TaskList deletes its HasTask rows
+
+
+	// ========== Constructors ==========
+	/**
+	 * Compiles every cached statement against the given database
+	 * WARNING: The user is responsible for calling close() when the database is closed!
+	 *
+	 * @param db The open database
+	 * @param cascades Whether the database enforces HasTask's ON DELETE CASCADE foreign keys
+	 */
+	TaskDBStatements(SQLiteDatabase db, boolean cascades) {
+		// sanity check
+		if (db == null) {
+			throw new IllegalArgumentException("Cannot compile statements against a null database");
+		}
+		m_cascades = cascades;
+
+		String task = POQTListConstants.DB_TASK_TABLE_NAME;
+		String taskID = POQTListConstants.DB_TASK_KEY_ID;
+		String list = POQTListConstants.DB_TASKLIST_TABLE_NAME;
+		String listID = POQTListConstants.DB_TASKLIST_KEY_ID;
+		String hasTask = POQTListConstants.DB_HASTASK_TABLE_NAME;
+		String memberListID = POQTListConstants.DB_HASTASK_KEY_LISTID;
+		String memberTaskID = POQTListConstants.DB_HASTASK_KEY_TASKID;
+
+		// columns are bound in the order they are listed here
+		m_insertTask = db.compileStatement("INSERT OR IGNORE INTO " + task + " ("
+				+ POQTListConstants.DB_TASK_COLUMN_DESCRIPTION + ", "
+				+ POQTListConstants.DB_TASK_COLUMN_DUE_MILLIS + ", "
+				+ POQTListConstants.DB_TASK_COLUMN_PRIORITY + ", "
+				+ POQTListConstants.DB_TASK_COLUMN_ALARM_MILLIS + ", "
+				+ POQTListConstants.DB_TASK_COLUMN_ALARM_ORDINAL + ", "
+				+ taskID + ") VALUES (?, ?, ?, ?, ?, ?)");
+		m_updateTask = db.compileStatement("UPDATE " + task + " SET "
+				+ POQTListConstants.DB_TASK_COLUMN_DESCRIPTION + " = ?, "
+				+ POQTListConstants.DB_TASK_COLUMN_DUE_MILLIS + " = ?, "
+				+ POQTListConstants.DB_TASK_COLUMN_PRIORITY + " = ?, "
+				+ POQTListConstants.DB_TASK_COLUMN_ALARM_MILLIS + " = ?, "
+				+ POQTListConstants.DB_TASK_COLUMN_ALARM_ORDINAL + " = ?"
+				+ " WHERE " + taskID + " = ?");
+		m_deleteTask = db.compileStatement("DELETE FROM " + task + " WHERE " + taskID + " = ?");
+		m_countTask = db.compileStatement("SELECT COUNT(*) FROM " + task + " WHERE " + taskID + " = ?");
+
+		m_insertList = db.compileStatement("INSERT OR IGNORE INTO " + list + " ("
+				+ POQTListConstants.DB_TASKLIST_COLUMN_NAME + ", "
+				+ POQTListConstants.DB_TASKLIST_COLUMN_ADAPTERTYPE_ORDINAL + ", "
+				+ listID + ") VALUES (?, ?, ?)");
+		m_updateList = db.compileStatement("UPDATE " + list + " SET "
+				+ POQTListConstants.DB_TASKLIST_COLUMN_NAME + " = ?, "
+				+ POQTListConstants.DB_TASKLIST_COLUMN_ADAPTERTYPE_ORDINAL + " = ?"
+				+ " WHERE " + listID + " = ?");
+		m_deleteList = db.compileStatement("DELETE FROM " + list + " WHERE " + listID + " = ?");
+		m_countList = db.compileStatement("SELECT COUNT(*) FROM " + list + " WHERE " + listID + " = ?");
+
+		// a membership is only inserted between a TaskList and a Task that exist, even where foreign keys go unenforced
+		m_insertMembership = db.compileStatement("INSERT OR IGNORE INTO " + hasTask + " (" + memberListID + ", " + memberTaskID + ")"
+				+ " SELECT ?, ? WHERE EXISTS (SELECT 1 FROM " + list + " WHERE " + listID + " = ?)"
+				+ " AND EXISTS (SELECT 1 FROM " + task + " WHERE " + taskID + " = ?)");
+		m_deleteMembership = db.compileStatement("DELETE FROM " + hasTask + " WHERE " + memberListID + " = ? AND " + memberTaskID + " = ?");
+		m_deleteTaskMemberships = db.compileStatement("DELETE FROM " + hasTask + " WHERE " + memberTaskID + " = ?");
+		m_deleteListMemberships = db.compileStatement("DELETE FROM " + hasTask + " WHERE " + memberListID + " = ?");
+		m_countMembership = db.compileStatement("SELECT COUNT(*) FROM " + hasTask + " WHERE " + memberListID + " = ? AND " + memberTaskID + " = ?");
+		m_changes = db.compileStatement("SELECT changes()");
+	}
+
+
+	// ========== Task Statements ==========
+	/**
+	 * Inserts a row for the given Task, unless a Task with its ID already has one
+	 *
+	 * @param task Task to insert
+	 * @param alarmMillis Time of the Task's alarm in milliseconds (0 if none)
+	 * @return Number of rows inserted (0 if the ID was taken)
+	 */
+	int insertTask(Task task, long alarmMillis) {
+		bindTaskColumns(m_insertTask, task, alarmMillis);
+		m_insertTask.execute();
+		return findChanges();
+	}
+
+	/**
+	 * Writes the given Task's non-ID fields over its row
+	 *
+	 * @param task Task to write
+	 * @param alarmMillis Time of the Task's alarm in milliseconds (0 if none)
+	 * @return Number of rows updated (0 if the Task has no row)
+	 */
+	int updateTask(Task task, long alarmMillis) {
+		bindTaskColumns(m_updateTask, task, alarmMillis);
+		m_updateTask.execute();
+		return findChanges();
+	}
+
+	/**
+	 * Deletes the given Task's row along with its memberships
+	 *
+	 * @return Number of Task rows deleted (0 if the Task has no row)
+	 */
+	int deleteTask(long taskID) {
+		// without enforced cascades, memberships are removed first by hand
+		if (!m_cascades) {
+			m_deleteTaskMemberships.bindLong(1, taskID);
+			m_deleteTaskMemberships.execute();
+		}
+		m_deleteTask.bindLong(1, taskID);
+		m_deleteTask.execute();
+		return findChanges();
+	}
+
+	boolean hasTask(long taskID) {
+		m_countTask.bindLong(1, taskID);
+		return m_countTask.simpleQueryForLong() != 0;
+	}
+
+
+	// ========== TaskList Statements ==========
+	/**
+	 * Inserts a row for the given TaskList, unless a TaskList with its ID already has one
+	 *
+	 * @param list TaskList to insert
+	 * @return Number of rows inserted (0 if the ID was taken)
+	 */
+	int insertList(TaskList list) {
+		bindListColumns(m_insertList, list);
+		m_insertList.execute();
+		return findChanges();
+	}
+
+	/**
+	 * Writes the given TaskList's name and adapter type over its row
+	 *
+	 * @param list TaskList to write
+	 * @return Number of rows updated (0 if the TaskList has no row)
+	 */
+	int updateList(TaskList list) {
+		bindListColumns(m_updateList, list);
+		m_updateList.execute();
+		return findChanges();
+	}
+
+	/**
+	 * Deletes the given TaskList's row along with its memberships
+	 *
+	 * @return Number of TaskList rows deleted (0 if the TaskList has no row)
+	 */
+	int deleteList(long listID) {
+		// without enforced cascades, memberships are removed first by hand
+		if (!m_cascades) {
+			m_deleteListMemberships.bindLong(1, listID);
+			m_deleteListMemberships.execute();
+		}
+		m_deleteList.bindLong(1, listID);
+		m_deleteList.execute();
+		return findChanges();
+	}
+
+	boolean hasList(long listID) {
+		m_countList.bindLong(1, listID);
+		return m_countList.simpleQueryForLong() != 0;
+	}
+
+
+	// ========== HasTask Statements ==========
+	/**
+	 * Adds the given Task to the given TaskList, if both exist and the Task is not already in the list
+	 *
+	 * @return Number of rows inserted (0 if the membership exists already, or the TaskList or Task does not)
+	 */
+	int insertMembership(long listID, long taskID) {
+		m_insertMembership.bindLong(1, listID);
+		m_insertMembership.bindLong(2, taskID);
+		m_insertMembership.bindLong(3, listID);
+		m_insertMembership.bindLong(4, taskID);
+		m_insertMembership.execute();
+		return findChanges();
+	}
+
+	/**
+	 * Removes the given Task from the given TaskList
+	 *
+	 * @return Number of rows deleted (0 if the Task was not in the list)
+	 */
+	int deleteMembership(long listID, long taskID) {
+		m_deleteMembership.bindLong(1, listID);
+		m_deleteMembership.bindLong(2, taskID);
+		m_deleteMembership.execute();
+		return findChanges();
+	}
+
+	boolean hasMembership(long listID, long taskID) {
+		m_countMembership.bindLong(1, listID);
+		m_countMembership.bindLong(2, taskID);
+		return m_countMembership.simpleQueryForLong() != 0;
+	}
+
+
+	// ========== Public Functions ==========
+	/**
+	 * Releases every compiled statement
+	 * WARNING: The cache must not be used afterwards!
+	 */
+	void close() {
+		m_insertTask.close();
+		m_updateTask.close();
+		m_deleteTask.close();
+		m_countTask.close();
+		m_insertList.close();
+		m_updateList.close();
+		m_deleteList.close();
+		m_countList.close();
+		m_insertMembership.close();
+		m_deleteMembership.close();
+		m_deleteTaskMemberships.close();
+		m_deleteListMemberships.close();
+		m_countMembership.close();
+		m_changes.close();
+	}
+
+
+	// ========== Helper Functions ==========
+	/**
+	 * Counts the rows changed by the last write (SQLiteStatement.execute() does not report it on older platforms)
+	 */
+	private int findChanges() {
+		return (int)m_changes.simpleQueryForLong();
+	}
+
+	/**
+	 * Binds the given Task's fields in column order, with its ID last
+	 */
+	private static void bindTaskColumns(SQLiteStatement statement, Task task, long alarmMillis) {
+		bindText(statement, 1, task.getDescription());
+		if (task.hasDueDate()) {
+			statement.bindLong(2, task.getDueMillis());
+		}
+		else {
+			statement.bindNull(2);
+		}
+		statement.bindLong(3, task.getPriority().ordinal());
+		statement.bindLong(4, alarmMillis);
+		statement.bindLong(5, task.getAlarm().ordinal());
+		statement.bindLong(6, task.getID());
+	}
+
+	/**
+	 * Binds the given TaskList's fields in column order, with its ID last
+	 */
+	private static void bindListColumns(SQLiteStatement statement, TaskList list) {
+		bindText(statement, 1, list.getName());
+		statement.bindLong(2, list.getAdapterType().ordinal());
+		statement.bindLong(3, list.getID());
+	}
+
+	/**
+	 * Binds the given String, or NULL if there is none (bindString does not take null)
+	 */
+	private static void bindText(SQLiteStatement statement, int index, String text) {
+		if (text == null) {
+			statement.bindNull(index);
+		}
+		else {
+			statement.bindString(index, text);
+		}
+	}
+}
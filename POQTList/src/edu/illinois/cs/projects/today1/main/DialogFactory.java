@@ -98,5 +98,33 @@ public class DialogFactory {
 		return timePickerDialog;
 	}
 	
+	/**
+	 * Creates and returns an AlertDialog listing task lists to jump straight to
+	 * 
+	 * @param titles Titles of the task lists, in display order
+	 * @param selected Position of the task list being displayed
+	 * @param listener Listener told the position of the task list picked
+	 * @return AlertDialog to pick a task list from
+	 */
+	public AlertDialog makeListPickerDlg(CharSequence[] titles, int selected, DialogInterface.OnClickListener listener) {
+		AlertDialog.Builder pickerBuilder = new AlertDialog.Builder(m_activity);
+		pickerBuilder.setTitle(R.string.option_jump_tasklist);
+		pickerBuilder.setSingleChoiceItems(titles, selected, listener);
+		
+		// Cancel button to keep the current list
+		pickerBuilder.setNegativeButton(R.string.cancel_string, new DialogInterface.OnClickListener() {
+			
+			/**
+			 * Dismisses dialog
+			 */
+			@Override
+			public void onClick(DialogInterface dialog, int which) {
+				dialog.dismiss();
+			}
+		});
+		
+		return pickerBuilder.create();
+	}
+	
 	//public AlertDialog makeCustomListSelectionDlg()
 }
@@ -1,9 +1,8 @@
 package edu.illinois.cs.projects.today1.main;
 
-import java.util.Calendar;
-
 import android.app.Activity;
 import android.app.ListActivity;
+import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.SharedPreferences;
 import android.os.Bundle;
@@ -18,13 +17,17 @@ import android.view.MotionEvent;
 import android.view.View;
 import android.widget.AdapterView.AdapterContextMenuInfo;
 import android.widget.Button;
+import android.widget.ListAdapter;
 import android.widget.ListView;
 import android.widget.TextView;
 import edu.illinois.cs.projects.today1.POQTListConstants;
+import edu.illinois.cs.projects.today1.POQTListSettings;
 import edu.illinois.cs.projects.today1.R;
+import edu.illinois.cs.projects.today1.task.RankingScheduler;
 import edu.illinois.cs.projects.today1.task.Task;
 import edu.illinois.cs.projects.today1.task.TaskAdapter;
 import edu.illinois.cs.projects.today1.task.TaskApparatus;
+import edu.illinois.cs.projects.today1.task.TaskChangeSet;
 
 /**
  * Main activity for the POQTList application. Controls all task list display and editing
@@ -67,6 +70,30 @@ public class POQTListActivity extends ListActivity {
 	private TaskApparatus m_apparatus;			// TaskApparatus containing TaskList information and functions
 	private GestureDetector m_detector;			// GestureDetector to listen for fling gestures to change lists
 	private Integer m_editIndex;				// index of selected task (used for editing tasks)
+	private RankingScheduler m_scheduler;		// keeps the displayed list ranked for the current minute
+	
+	// rebinds rows modified in place without laying the whole list out again
+	private final TaskAdapter.OnTasksChangedListener m_rowRebinder = new TaskAdapter.OnTasksChangedListener() {
+		@Override
+		public boolean onTasksChanged(TaskAdapter adapter, TaskChangeSet changes) {
+			// anything that moves rows needs a full layout pass
+			if (!changes.isInPlace()) {
+				return false;
+			}
+			
+			// only visible rows need rebinding; the rest are bound when scrolled to
+			ListView listView = getListView();
+			int firstPosition = listView.getFirstVisiblePosition();
+			int childCount = listView.getChildCount();
+			for (int i = 0; i < changes.getChangedCount(); i++) {
+				int position = changes.getChanged(i);
+				if (position >= firstPosition && position < firstPosition + childCount) {
+					adapter.getView(position, listView.getChildAt(position - firstPosition), listView);
+				}
+			}
+			return true;
+		}
+	};
 	
 	
 	// ========== Overridden Activity Functions ==========
@@ -79,21 +106,22 @@ public class POQTListActivity extends ListActivity {
 		super.onCreate(savedInstanceState);
 		setContentView(R.layout.mainactivity);
 		
-		SharedPreferences preferences = this.getSharedPreferences(POQTListConstants.PREFERENCES_FILEPATH, MODE_PRIVATE);
+		POQTListSettings settings = POQTListSettings.getInstance(this);
 		// load default preferences if first time running app
-		boolean prefLoaded = preferences.getBoolean(POQTListConstants.PREF_KEY_PREFERENCES_LOADED, false);
+		boolean prefLoaded = settings.preferencesLoaded;
 		if (!prefLoaded) {
 			setDefaultPreferences();
 		}
 		
 		// set list title attributes and selection (to initiate marquee)
 		TextView listTitle = (TextView)findViewById(R.id.list_title);
-		listTitle.setTextColor(preferences.getInt(POQTListConstants.PREF_KEY_TASK_LIST_TITLE_COLR, POQTListConstants.DEFAULT_TASK_LIST_TITLE_COLOR));
+		listTitle.setTextColor(settings.taskListTitleColor);
 		listTitle.setSelected(true);
 		
 		// create TaskApparatus
 		m_dialogFactory = new DialogFactory(this);
 		m_apparatus = new TaskApparatus(this);
+		m_scheduler = new RankingScheduler(this);
 		
 		// detect fling gestures for cycling through lists
 		m_detector = new GestureDetector(this, new CycleListListener(this, m_apparatus));
@@ -129,6 +157,24 @@ public class POQTListActivity extends ListActivity {
 		this.refreshDisplay();
 	}
 	
+	/**
+	 * Stops re-ranking the displayed list while it is not visible
+	 */
+	@Override
+	protected void onPause() {
+		super.onPause();
+		m_scheduler.stop();
+	}
+	
+	/**
+	 * Frees the lists far from the displayed one when the system runs low on memory
+	 */
+	@Override
+	public void onLowMemory() {
+		super.onLowMemory();
+		m_apparatus.releaseDistantLists();
+	}
+	
 	
 	/**
 	 * Show ContextMenu when Views representing Tasks are short clicked
@@ -221,12 +267,14 @@ public class POQTListActivity extends ListActivity {
 			menu.add(Menu.NONE, R.id.option_refresh, 0, R.string.option_refresh);
 			menu.add(Menu.NONE, R.id.option_settings, 1, R.string.option_settings);
 			menu.add(Menu.NONE, R.id.option_add_tasklist, 2, R.string.option_add_tasklist);
+			menu.add(Menu.NONE, R.id.option_jump_tasklist, 3, R.string.option_jump_tasklist);
 		}
 		// "Completed" list has Refresh, Settings, and Add Task List buttons
 		else if (listType == TaskApparatus.ListCategory.COMPLETED) {
 			menu.add(Menu.NONE, R.id.option_refresh, 0, R.string.option_refresh);
 			menu.add(Menu.NONE, R.id.option_settings, 1, R.string.option_settings);
 			menu.add(Menu.NONE, R.id.option_add_tasklist, 2, R.string.option_add_tasklist);
+			menu.add(Menu.NONE, R.id.option_jump_tasklist, 3, R.string.option_jump_tasklist);
 		}
 		// "Custom" lists have Refresh, Settings, Add Task List, Edit Task List, and Delete Task List buttons
 		else if (listType == TaskApparatus.ListCategory.CUSTOM) {
@@ -235,6 +283,7 @@ public class POQTListActivity extends ListActivity {
 			menu.add(Menu.NONE, R.id.option_add_tasklist, 2, R.string.option_add_tasklist);
 			menu.add(Menu.NONE, R.id.option_edit_tasklist, 3, R.string.option_edit_tasklist);
 			menu.add(Menu.NONE, R.id.option_delete_tasklist, 4, R.string.option_delete_tasklist);
+			menu.add(Menu.NONE, R.id.option_jump_tasklist, 5, R.string.option_jump_tasklist);
 		}
 		return true;
 	}
@@ -271,6 +320,9 @@ public class POQTListActivity extends ListActivity {
 			m_apparatus.deleteTaskList();
 			refreshDisplay();
 			return true;
+		case R.id.option_jump_tasklist:
+			showListPicker();
+			return true;
 		default:
 			return super.onOptionsItemSelected(item);
 		}
@@ -332,7 +384,19 @@ public class POQTListActivity extends ListActivity {
 	 * Refreshes the list being displayed in the Activity
 	 */
 	public void refreshDisplay() {
-		setListAdapter(m_apparatus.getSelectedAdapter());	// load ListView with 
+		// keep the list ranked for the current minute (off the UI thread) and load ListView with it
+		TaskAdapter selectedAdapter = m_apparatus.getSelectedAdapter();
+		m_scheduler.start(selectedAdapter);
+		
+		// only swap adapters when the list changed; the ListView keeps its rows and scroll position otherwise
+		ListAdapter shownAdapter = getListAdapter();
+		if (shownAdapter != selectedAdapter) {
+			if (shownAdapter instanceof TaskAdapter) {
+				((TaskAdapter)shownAdapter).setOnTasksChangedListener(null);
+			}
+			selectedAdapter.setOnTasksChangedListener(m_rowRebinder);
+			setListAdapter(selectedAdapter);
+		}
 		
 		TextView listTitle = (TextView)findViewById(R.id.list_title);
 		listTitle.setText(m_apparatus.getSelectedTitle());
@@ -351,6 +415,25 @@ public class POQTListActivity extends ListActivity {
 	
 	
 	// ========== Helper Functions ==========
+	/**
+	 * Shows a dialog listing every task list, switching straight to the one the user picks
+	 */
+	private void showListPicker() {
+		CharSequence[] titles = new CharSequence[m_apparatus.getListCount()];
+		for (int i = 0; i < titles.length; i++) {
+			titles[i] = m_apparatus.getListTitle(i);
+		}
+		
+		m_dialogFactory.makeListPickerDlg(titles, m_apparatus.getSelectedPosition(), new DialogInterface.OnClickListener() {
+			@Override
+			public void onClick(DialogInterface dialog, int which) {
+				m_apparatus.jumpToList(which);
+				refreshDisplay();
+				dialog.dismiss();
+			}
+		}).show();
+	}
+	
 	/**
 	 * Creates an Activity for editing the selected task
 	 * 
@@ -447,7 +530,7 @@ public class POQTListActivity extends ListActivity {
 		
 		// retrieve task information from Bundle passed back
 		String newDescription = newTaskData.getString(POQTListConstants.TASK_INFO_KEY_DESCRIPTION);
-		Calendar newDueDate = TaskActivity.unpackDueDate(newTaskData);
+		long newDueDate = TaskActivity.unpackDueDate(newTaskData);
 		// decode selected priority index into Priority object
 		int newPriorityIndex = newTaskData.getInt(POQTListConstants.TASK_INFO_KEY_PRIORITY_ORDINAL);
 		Task.Priority newPriority = Task.Priority.findPriority(newPriorityIndex);
@@ -475,7 +558,7 @@ public class POQTListActivity extends ListActivity {
 		
 		// retrieve task information from Bundle passed back
 		String changedDescription = changedTaskData.getString(POQTListConstants.TASK_INFO_KEY_DESCRIPTION);
-		Calendar changedDueDate = TaskActivity.unpackDueDate(changedTaskData);
+		long changedDueDate = TaskActivity.unpackDueDate(changedTaskData);
 		// decode the selected priority index into Priority object
 		int changedPriorityIndex = changedTaskData.getInt(POQTListConstants.TASK_INFO_KEY_PRIORITY_ORDINAL);
 		Task.Priority changedPriority = Task.Priority.findPriority(changedPriorityIndex);
@@ -1,14 +1,12 @@
 package edu.illinois.cs.projects.today1.main;
 
 import java.util.Calendar;
-import java.util.GregorianCalendar;
 
 import android.app.Activity;
 import android.app.DatePickerDialog;
 import android.app.Dialog;
 import android.app.TimePickerDialog;
 import android.content.Intent;
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.text.format.DateFormat;
 import android.view.View;
@@ -20,7 +18,9 @@ import android.widget.EditText;
 import android.widget.Spinner;
 import android.widget.TimePicker;
 import edu.illinois.cs.projects.today1.POQTListConstants;
+import edu.illinois.cs.projects.today1.POQTListSettings;
 import edu.illinois.cs.projects.today1.R;
+import edu.illinois.cs.projects.today1.task.Task;
 
 /**
  * Activity for entering and modifying task information
@@ -190,10 +190,10 @@ public class TaskActivity extends Activity {
 		// pack up due date information
 		CheckBox hasDueDate = (CheckBox)findViewById(R.id.checkbox_duedate_enabled);
 		if (hasDueDate.isChecked()) {
-			taskInfo.putAll(packDueDate(m_dueDate));
+			taskInfo.putAll(packDueDate(m_dueDate.getTimeInMillis()));
 		}
 		else {
-			taskInfo.putAll(packDueDate(null));
+			taskInfo.putAll(packDueDate(Task.NO_DUE_DATE));
 		}
 		// encode priority
 		taskInfo.putInt(POQTListConstants.TASK_INFO_KEY_PRIORITY_ORDINAL, priorityIndex);
@@ -275,20 +275,16 @@ public class TaskActivity extends Activity {
 		Spinner alarmSpinner = (Spinner)findViewById(R.id.spinner_task_alarm);
 		
 		// get defaults that might be used
-		SharedPreferences preferences = getSharedPreferences(POQTListConstants.PREFERENCES_FILEPATH, MODE_PRIVATE);
-		String defaultDescription = preferences.getString(POQTListConstants.PREF_KEY_NEW_TASK_DESCRIPTION, 
-				POQTListConstants.DEFAULT_NEW_TASK_DESCRIPTION);
-		int defaultPrioritySelection = preferences.getInt(POQTListConstants.PREF_KEY_NEW_TASK_PRIORITY_ORDINAL, 
-				POQTListConstants.DEFAULT_NEW_TASK_PRIORITY.ordinal());
-		int defaultAlarmSelection = preferences.getInt(POQTListConstants.PREF_KEY_NEW_TASK_ALARM_ORDINAL, 
-				POQTListConstants.DEFAULT_NEW_TASK_ALARM.ordinal());
+		POQTListSettings settings = POQTListSettings.getInstance(this);
+		String defaultDescription = settings.newTaskDescription;
+		int defaultPrioritySelection = settings.newTaskPriorityOrdinal;
+		int defaultAlarmSelection = settings.newTaskAlarmOrdinal;
 		
 		Bundle taskData = getIntent().getExtras();
 		// load defaults if no task data was given
 		if (taskData == null) {
 			// default due date to one day from current day and give task no due date
-			m_dueDate = Calendar.getInstance();
-			m_dueDate.add(Calendar.DAY_OF_MONTH, 1);
+			m_dueDate = buildDefaultDueDate();
 			setGUIState(false);
 			
 			// set spinners to default positions
@@ -307,14 +303,15 @@ public class TaskActivity extends Activity {
 		}
 		
 		// fill in due date & time elements from bundle if they exist
-		Calendar currentDueDate = unpackDueDate(taskData);
-		if (currentDueDate != null) {
-			m_dueDate = currentDueDate;
+		// (the only place a Calendar is built for a Task's due date, since the pickers need one)
+		long currentDueMillis = unpackDueDate(taskData);
+		if (currentDueMillis != Task.NO_DUE_DATE) {
+			m_dueDate = Calendar.getInstance();
+			m_dueDate.setTimeInMillis(currentDueMillis);
 			setGUIState(true);
 		}
 		else {
-			m_dueDate = Calendar.getInstance();
-			m_dueDate.add(Calendar.DAY_OF_MONTH, 1);
+			m_dueDate = buildDefaultDueDate();
 			setGUIState(false);
 		}
 		
@@ -332,62 +329,46 @@ public class TaskActivity extends Activity {
 	}
 	
 	/**
-	 * Reassembles a Calendar object representing a task's due date from a Bundle
+	 * Builds the due date offered to Tasks without one: one day from now, to the minute
+	 * 
+	 * @return Calendar holding the default due date
+	 */
+	private static Calendar buildDefaultDueDate() {
+		Calendar dueDate = Calendar.getInstance();
+		dueDate.add(Calendar.DAY_OF_MONTH, 1);
+		dueDate.set(Calendar.SECOND, 0);
+		dueDate.set(Calendar.MILLISECOND, 0);
+		return dueDate;
+	}
+	
+	/**
+	 * Reads a task's due date from a Bundle
 	 * 
-	 * @param source Bundle containing mappings representing the due date's components
-	 * @return Calendar representing the due date if it could be successfully constructed; null otherwise
+	 * @param source Bundle containing the due date mappings
+	 * @return Due date in milliseconds if one was packed; Task.NO_DUE_DATE otherwise
 	 */
-	public static Calendar unpackDueDate(Bundle source) {
-		// ensure bundle is supposed to have due date components
+	public static long unpackDueDate(Bundle source) {
+		// ensure bundle is supposed to have a due date
 		boolean hasDueDate = source.getBoolean(POQTListConstants.TASK_INFO_KEY_HAS_DUE_DATE, false);
-		if (!hasDueDate) {
-			return null;
-		}
-		
-		// ensure the proper components exist
-		boolean hasAllComponents = source.containsKey(POQTListConstants.TASK_INFO_KEY_DUE_DAY)
-			|| source.containsKey(POQTListConstants.TASK_INFO_KEY_DUE_MONTH)
-			|| source.containsKey(POQTListConstants.TASK_INFO_KEY_DUE_YEAR)
-			|| source.containsKey(POQTListConstants.TASK_INFO_KEY_DUE_HOUR)
-			|| source.containsKey(POQTListConstants.TASK_INFO_KEY_DUE_MINUTE);
-		if (!hasAllComponents) {
-			return null;
+		if (!hasDueDate || !source.containsKey(POQTListConstants.TASK_INFO_KEY_DUE_MILLIS)) {
+			return Task.NO_DUE_DATE;
 		}
 		
-		// build components into return object
-		Calendar dueDate = new GregorianCalendar();
-		int day = source.getInt(POQTListConstants.TASK_INFO_KEY_DUE_DAY);
-		int month = source.getInt(POQTListConstants.TASK_INFO_KEY_DUE_MONTH);
-		int year = source.getInt(POQTListConstants.TASK_INFO_KEY_DUE_YEAR);
-		int hour = source.getInt(POQTListConstants.TASK_INFO_KEY_DUE_HOUR);
-		int minute = source.getInt(POQTListConstants.TASK_INFO_KEY_DUE_MINUTE);
-		dueDate.set(year, month, day, hour, minute);
-		
-		return dueDate;
+		return source.getLong(POQTListConstants.TASK_INFO_KEY_DUE_MILLIS);
 	}
 	
 	/**
-	 * Packs the given Calendar due date into a Bundle
+	 * Packs the given due date into a Bundle
 	 * 
-	 * @param dueDate Calendar object representing the due date, or null to signify the task has no due date
-	 * @return Bundle containing the due date's components
+	 * @param dueMillis Due date in milliseconds, or Task.NO_DUE_DATE to signify the task has no due date
+	 * @return Bundle containing the due date
 	 */
-	public static Bundle packDueDate(Calendar dueDate) {
+	public static Bundle packDueDate(long dueMillis) {
 		Bundle target = new Bundle();
-		// the task has a due date, pack all its components up
-		if (dueDate != null) {
-			int currentDay = dueDate.get(Calendar.DAY_OF_MONTH);
-			int currentMonth = dueDate.get(Calendar.MONTH);
-			int currentYear = dueDate.get(Calendar.YEAR);
-			int currentHour = dueDate.get(Calendar.HOUR_OF_DAY);
-			int currentMinute = dueDate.get(Calendar.MINUTE);
-			
+		// the task has a due date, pack it up
+		if (dueMillis != Task.NO_DUE_DATE) {
 			target.putBoolean(POQTListConstants.TASK_INFO_KEY_HAS_DUE_DATE, true);
-			target.putInt(POQTListConstants.TASK_INFO_KEY_DUE_DAY, currentDay);
-			target.putInt(POQTListConstants.TASK_INFO_KEY_DUE_MONTH, currentMonth);
-			target.putInt(POQTListConstants.TASK_INFO_KEY_DUE_YEAR, currentYear);
-			target.putInt(POQTListConstants.TASK_INFO_KEY_DUE_HOUR, currentHour);
-			target.putInt(POQTListConstants.TASK_INFO_KEY_DUE_MINUTE, currentMinute);
+			target.putLong(POQTListConstants.TASK_INFO_KEY_DUE_MILLIS, dueMillis);
 		}
 		// otherwise, only set flag indicating there is no due date
 		else {
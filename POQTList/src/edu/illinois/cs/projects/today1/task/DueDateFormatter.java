@@ -0,0 +1,199 @@
+package edu.illinois.cs.projects.today1.task;
+
+import java.text.DateFormatSymbols;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * Builds the due date labels shown under each Task (e.g. "Tomorrow at 9:05 AM", "Last Friday at 5:00 PM",
+ * 	"Mar 3, 2013 at 12:30 PM")
+ * Dates are handled as local epoch days (days since 1 Jan 1970 in the device's time zone), so relative labels
+ * 	take a subtraction rather than a walk through the calendar. Finished labels are cached by epoch day and
+ * 	minute of day, in a LongObjectMap so a lookup never boxes its key; the relative part of a label only depends
+ * 	on which day "today" is, so the cache is cleared whenever the day changes.
+ *
+ * @author Kevin Today
+ */
+public class DueDateFormatter {
+	// ========== Constants ==========
+	private static final long NUM_MILLIS_IN_DAY = 86400000;
+	private static final long NUM_MILLIS_IN_MINUTE = 60000;
+	private static final int NUM_MINUTES_IN_DAY = 1440;
+	private static final int MAX_CACHED_LABELS = 512;		// cache is dropped once it grows past this many labels
+
+
+	// ========== Member Variables ==========
+	private final LongObjectMap<String> m_labels;	// cached labels by local minute since the epoch
+	private long m_today;							// local epoch day the cached labels were built on
+	private int m_currentYear;						// year of m_today
+	private TimeZone m_timeZone;					// time zone the cached labels were built in
+	private String[] m_weekdays;					// full weekday names, indexed by Calendar.SUNDAY etc.
+	private String[] m_shortMonths;					// abbreviated month names, indexed by Calendar.JANUARY etc.
+	private String[] m_amPm;						// AM/PM markers
+
+
+	// ========== Constructors ==========
+	/**
+	 * Instantiates a DueDateFormatter with an empty cache
+	 */
+	public DueDateFormatter() {
+		m_labels = new LongObjectMap<String>();
+		m_today = Long.MIN_VALUE;
+	}
+
+
+	// ========== Public Functions ==========
+	/**
+	 * Gets the label for a due date as seen at the given time
+	 *
+	 * @param dueMillis Due date in milliseconds
+	 * @param now Current time in milliseconds
+	 * @return Label representing the due date
+	 */
+	public String format(long dueMillis, long now) {
+		// a new day changes every relative label, so start over (picking up any time zone or locale change)
+		long today = findEpochDay(now, m_timeZone);
+		if (today != m_today) {
+			startDay(now);
+		}
+
+		long dueLocalMillis = dueMillis + m_timeZone.getOffset(dueMillis);
+		long dueMinute = floorDiv(dueLocalMillis, NUM_MILLIS_IN_MINUTE);
+		String label = m_labels.get(dueMinute);
+		if (label == null) {
+			if (m_labels.size() >= MAX_CACHED_LABELS) {
+				m_labels.clear();
+			}
+			label = buildLabel(floorDiv(dueMinute, NUM_MINUTES_IN_DAY), (int)floorMod(dueMinute, NUM_MINUTES_IN_DAY));
+			m_labels.put(dueMinute, label);
+		}
+		return label;
+	}
+
+
+	/**
+	 * Finds the local day containing the given time; every relative label stays the same within one day
+	 *
+	 * @param now Time in milliseconds
+	 * @return Local epoch day (days since 1 Jan 1970 in the device's time zone)
+	 */
+	long findDay(long now) {
+		return findEpochDay(now, null);
+	}
+
+
+	// ========== Helper Functions ==========
+	/**
+	 * Resets the cache and the locale data for the day containing the given time
+	 */
+	private void startDay(long now) {
+		m_labels.clear();
+		m_timeZone = TimeZone.getDefault();
+		m_today = findEpochDay(now, m_timeZone);
+		m_currentYear = findCivilDate(m_today)[0];
+
+		DateFormatSymbols symbols = new DateFormatSymbols(Locale.getDefault());
+		m_weekdays = symbols.getWeekdays();
+		m_shortMonths = symbols.getShortMonths();
+		m_amPm = symbols.getAmPmStrings();
+	}
+
+	/**
+	 * Builds the label for the given local day and minute
+	 *
+	 * @param epochDay Local epoch day the Task is due on
+	 * @param minuteOfDay Minute within that day the Task is due at
+	 * @return Label representing the due date
+	 */
+	private String buildLabel(long epochDay, int minuteOfDay) {
+		int[] civilDate = findCivilDate(epochDay);
+		int year = civilDate[0];
+		int month = civilDate[1];
+		int day = civilDate[2];
+		String weekday = m_weekdays[(int)floorMod(epochDay + 4, 7) + 1];		// 1 Jan 1970 was a Thursday
+
+		StringBuilder label = new StringBuilder(32);
+
+		// format date
+		long daysDifference = epochDay - m_today;
+		if (daysDifference == 0) {
+			label.append("Today");
+		}
+		else if (daysDifference == -1) {
+			label.append("Yesterday");
+		}
+		else if (daysDifference == 1) {
+			label.append("Tomorrow");
+		}
+		// use "last ________" format
+		else if (daysDifference < -1 && daysDifference > -7) {
+			label.append("Last ").append(weekday);
+		}
+		// if upcoming Monday, Tuesday, etc., use plain name
+		else if (daysDifference > 1 && daysDifference < 7) {
+			label.append(weekday);
+		}
+		// otherwise, use "month date" form
+		else {
+			label.append(m_shortMonths[month - 1]).append(' ').append(day);
+		}
+
+		// format year (if due in year other than current year)
+		if (year != m_currentYear) {
+			label.append(", ").append(year);
+		}
+
+		// format time
+		int hour = minuteOfDay / 60;
+		int minute = minuteOfDay % 60;
+		int displayHour = (hour % 12 == 0) ? 12 : hour % 12;
+		label.append(" at ").append(displayHour).append(':');
+		if (minute < 10) {
+			label.append('0');
+		}
+		label.append(minute).append(' ').append(m_amPm[hour < 12 ? 0 : 1]);
+
+		return label.toString();
+	}
+
+	/**
+	 * Finds the local epoch day containing the given time
+	 */
+	private static long findEpochDay(long millis, TimeZone timeZone) {
+		if (timeZone == null) {
+			timeZone = TimeZone.getDefault();
+		}
+		return floorDiv(millis + timeZone.getOffset(millis), NUM_MILLIS_IN_DAY);
+	}
+
+	/**
+	 * Converts an epoch day to a proleptic Gregorian date
+	 *
+	 * @return {year, month (1-12), day of month}
+	 */
+	private static int[] findCivilDate(long epochDay) {
+		// shift to a calendar of 400-year eras starting 1 March 0000, so leap days fall at the end of each year
+		long shiftedDay = epochDay + 719468;
+		long era = floorDiv(shiftedDay, 146097);
+		long dayOfEra = shiftedDay - era * 146097;
+		long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		long monthIndex = (5 * dayOfYear + 2) / 153;			// 0 is March
+		int day = (int)(dayOfYear - (153 * monthIndex + 2) / 5 + 1);
+		int month = (int)(monthIndex < 10 ? monthIndex + 3 : monthIndex - 9);
+		int year = (int)(yearOfEra + era * 400 + (month <= 2 ? 1 : 0));
+		return new int[] {year, month, day};
+	}
+
+	private static long floorDiv(long dividend, long divisor) {
+		long quotient = dividend / divisor;
+		if ((dividend % divisor != 0) && ((dividend < 0) != (divisor < 0))) {
+			quotient--;
+		}
+		return quotient;
+	}
+
+	private static long floorMod(long dividend, long divisor) {
+		return dividend - floorDiv(dividend, divisor) * divisor;
+	}
+}
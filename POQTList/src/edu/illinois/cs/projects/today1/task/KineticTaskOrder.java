@@ -0,0 +1,508 @@
+package edu.illinois.cs.projects.today1.task;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+
+import android.content.Context;
+import edu.illinois.cs.projects.today1.POQTListSettings;
+
+/**
+ * Keeps Tasks in urgency order as time passes without ever re-sorting them.
+ *
+ * Every dated Task's Urgency Score rises at the same rate, so dated Tasks never change order among
+ * 	themselves; undated Tasks sit at a constant score for their priority. The merged order is therefore
+ * 	the dated Tasks (sorted by due date) with one block of undated Tasks spliced in per priority level,
+ * 	and the only thing time changes is how many dated Tasks rank ahead of each block. Those "split"
+ * 	counts only move when a dated Task's score crosses a level's score, which can be computed ahead of
+ * 	time, so a queue of upcoming crossovers (one per level) is all that needs checking as time advances.
+ *
+ * Merged order at time "now":
+ * 	dated[0 .. split[0]), undated level 0, dated[split[0] .. split[1]), undated level 1, ..., remaining dated
+ * A dated Task ranks ahead of a level when its score is at least the level's score.
+ *
+ * @author Kevin Today
+ */
+public class KineticTaskOrder {
+	// ========== Member Variables ==========
+	private final POQTListSettings m_settings;			// cached preferences that drive urgency
+	private final SortedTaskList m_datedTasks;			// dated Tasks, soonest due first
+	private final Task.Priority[] m_levels;				// undated priority levels, most urgent first
+	private final SortedTaskList[] m_undatedTasks;		// undated Tasks of each level, by ID
+	private final int[] m_levelScores;					// Urgency Score of each level
+	private final int[] m_splits;						// number of dated Tasks ranked ahead of each level
+	private final Crossover[] m_crossovers;				// next crossover of each level
+	private final PriorityQueue<Crossover> m_events;	// scheduled crossovers, soonest first
+	private long m_now;									// time the order currently reflects
+	private int m_timeWindow;							// time window the order was computed with
+	private int m_urgencyScale;							// urgency scale the order was computed with
+
+
+	// ========== Constructors ==========
+	/**
+	 * Instantiates an empty KineticTaskOrder reflecting the current time
+	 *
+	 * @param context Context whose preferences drive Task urgency
+	 */
+	public KineticTaskOrder(Context context) {
+		if (context == null) {
+			throw new IllegalArgumentException("KineticTaskOrder context cannot be null");
+		}
+
+		m_settings = POQTListSettings.getInstance(context);
+		m_datedTasks = new SortedTaskList(new DueDateComparator());
+		m_levels = Task.Priority.values();
+		m_undatedTasks = new SortedTaskList[m_levels.length];
+		m_levelScores = new int[m_levels.length];
+		m_splits = new int[m_levels.length];
+		m_crossovers = new Crossover[m_levels.length];
+		m_events = new PriorityQueue<Crossover>(m_levels.length);
+		for (int level = 0; level < m_levels.length; level++) {
+			m_undatedTasks[level] = new SortedTaskList(new IDComparator());
+			m_crossovers[level] = new Crossover(level);
+		}
+
+		m_now = System.currentTimeMillis();
+		loadPreferences();
+		recompute();
+	}
+
+
+	// ========== Public Functions ==========
+	/**
+	 * Adds the given Task at its ranked position
+	 *
+	 * @param task Task to add
+	 * @return False if the Task is null or already present; true otherwise
+	 */
+	public boolean add(Task task) {
+		if (task == null || contains(task)) {
+			return false;
+		}
+
+		// undated Tasks never move relative to the dated ones' splits
+		if (!task.hasDueDate()) {
+			return m_undatedTasks[findLevel(task.getPriority())].add(task);
+		}
+
+		// the due date is copied in here so that advancing never has to read the Task's store
+		long dueMillis = task.getDueMillis();
+		m_datedTasks.add(task, dueMillis);
+		int index = m_datedTasks.indexOf(task);
+		int score = findScore(dueMillis);
+		for (int level = 0; level < m_levels.length; level++) {
+			// anything inserted ahead of the split outranks the level already
+			if (index < m_splits[level]) {
+				m_splits[level]++;
+			}
+			// a Task landing on the split either joins those ahead or becomes the next to cross
+			else if (index == m_splits[level]) {
+				if (score >= m_levelScores[level]) {
+					m_splits[level]++;
+				}
+				else {
+					schedule(level);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Replaces every Task in the order with the given Tasks at once
+	 * Each run of the order is built straight from its Tasks rather than by ranked insertion, so Tasks that come
+	 * 	ordered by ID (undated runs are kept by ID) with their dated Tasks soonest due first load in linear time.
+	 *
+	 * @param tasks Tasks to fill the order with (null Tasks are skipped)
+	 */
+	public void load(Task[] tasks) {
+		// count each run first so every run gets an exactly sized array
+		int datedCount = 0;
+		int[] undatedCounts = new int[m_levels.length];
+		for (Task task : tasks) {
+			if (task == null) {
+				continue;
+			}
+			if (task.hasDueDate()) {
+				datedCount++;
+			}
+			else {
+				undatedCounts[findLevel(task.getPriority())]++;
+			}
+		}
+
+		// split the Tasks into their runs, keeping their incoming order
+		Task[] dated = new Task[datedCount];
+		long[] datedDueMillis = new long[datedCount];
+		Task[][] undated = new Task[m_levels.length][];
+		for (int level = 0; level < m_levels.length; level++) {
+			undated[level] = new Task[undatedCounts[level]];
+			undatedCounts[level] = 0;
+		}
+		datedCount = 0;
+		for (Task task : tasks) {
+			if (task == null) {
+				continue;
+			}
+			if (task.hasDueDate()) {
+				datedDueMillis[datedCount] = task.getDueMillis();
+				dated[datedCount++] = task;
+			}
+			else {
+				int level = findLevel(task.getPriority());
+				undated[level][undatedCounts[level]++] = task;
+			}
+		}
+
+		m_datedTasks.load(dated, datedDueMillis, dated.length);
+		for (int level = 0; level < m_levels.length; level++) {
+			m_undatedTasks[level].load(undated[level], undated[level].length);
+		}
+		recompute();
+	}
+
+	/**
+	 * Removes the given Task
+	 *
+	 * @param task Task to remove
+	 * @return True if the Task was present; false otherwise
+	 */
+	public boolean remove(Task task) {
+		if (task == null) {
+			return false;
+		}
+
+		// a Task's own fields say which run holds it, so only that run is searched
+		if (!task.hasDueDate()) {
+			return m_undatedTasks[findLevel(task.getPriority())].remove(task);
+		}
+
+		int index = m_datedTasks.indexOf(task);
+		if (index != -1) {
+			m_datedTasks.remove(task);
+			for (int level = 0; level < m_levels.length; level++) {
+				if (index < m_splits[level]) {
+					m_splits[level]--;
+				}
+				else if (index == m_splits[level]) {
+					schedule(level);
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the given Task is present
+	 *
+	 * @param task Task to look for
+	 * @return True if the Task is present; false otherwise
+	 */
+	public boolean contains(Task task) {
+		if (task == null) {
+			return false;
+		}
+		if (task.hasDueDate()) {
+			return m_datedTasks.contains(task);
+		}
+		return m_undatedTasks[findLevel(task.getPriority())].contains(task);
+	}
+
+	/**
+	 * Counts the Tasks in the order
+	 *
+	 * @return Number of Tasks
+	 */
+	public int size() {
+		int size = m_datedTasks.size();
+		for (SortedTaskList undated : m_undatedTasks) {
+			size += undated.size();
+		}
+		return size;
+	}
+
+	/**
+	 * Gets the Task at the given ranked position
+	 *
+	 * @param index Ranked position of the Task (0 is most urgent)
+	 * @return The Task at the given position
+	 */
+	public Task get(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+		}
+
+		// walk the alternating dated and undated blocks
+		int datedStart = 0;
+		for (int level = 0; level < m_levels.length; level++) {
+			int datedCount = m_splits[level] - datedStart;
+			if (index < datedCount) {
+				return m_datedTasks.get(datedStart + index);
+			}
+			index -= datedCount;
+
+			int undatedCount = m_undatedTasks[level].size();
+			if (index < undatedCount) {
+				return m_undatedTasks[level].get(index);
+			}
+			index -= undatedCount;
+			datedStart = m_splits[level];
+		}
+		return m_datedTasks.get(datedStart + index);
+	}
+
+	/**
+	 * Finds the ranked position of the given Task
+	 *
+	 * @param task Task to look for
+	 * @return Ranked position of the Task, or -1 if it is not present
+	 */
+	public int indexOf(Task task) {
+		if (task == null) {
+			return -1;
+		}
+
+		// a dated Task is pushed back by every undated block whose split lies at or before it
+		if (task.hasDueDate()) {
+			int datedIndex = m_datedTasks.indexOf(task);
+			if (datedIndex == -1) {
+				return -1;
+			}
+			int index = datedIndex;
+			for (int level = 0; level < m_levels.length; level++) {
+				if (m_splits[level] <= datedIndex) {
+					index += m_undatedTasks[level].size();
+				}
+			}
+			return index;
+		}
+
+		// an undated Task is pushed back by the dated Tasks ahead of its level and the blocks before it
+		int taskLevel = findLevel(task.getPriority());
+		int undatedIndex = m_undatedTasks[taskLevel].indexOf(task);
+		if (undatedIndex == -1) {
+			return -1;
+		}
+		int undatedBlocks = 0;
+		for (int level = 0; level < taskLevel; level++) {
+			undatedBlocks += m_undatedTasks[level].size();
+		}
+		return m_splits[taskLevel] + undatedBlocks + undatedIndex;
+	}
+
+	/**
+	 * Removes every Task
+	 */
+	public void clear() {
+		m_datedTasks.clear();
+		for (SortedTaskList undated : m_undatedTasks) {
+			undated.clear();
+		}
+		recompute();
+	}
+
+	/**
+	 * Brings the order up to the given time by processing every crossover due by then
+	 *
+	 * @param now Time in milliseconds the order should reflect
+	 * @return True if any Task changed position; false otherwise
+	 */
+	public boolean advance(long now) {
+		// moving backwards in time or changing urgency preferences invalidates the whole schedule
+		boolean preferencesChanged = loadPreferences();
+		if (now < m_now || preferencesChanged) {
+			m_now = now;
+			return recompute();
+		}
+
+		m_now = now;
+		boolean changed = false;
+		while (!m_events.isEmpty() && m_events.peek().time <= now) {
+			int level = m_events.poll().level;
+			int newSplit = findSplit(level);
+			changed |= (newSplit != m_splits[level]);
+			m_splits[level] = newSplit;
+			schedule(level);
+		}
+		return changed;
+	}
+
+	/**
+	 * Gets the time the order currently reflects; everything ranked or rendered from it should score Tasks at this time
+	 *
+	 * @return Ranking time in milliseconds
+	 */
+	public long getRankingTime() {
+		return m_now;
+	}
+
+	/**
+	 * Gets the time at which the order will next change
+	 *
+	 * @return Time in milliseconds of the next crossover, or Long.MAX_VALUE if none is coming
+	 */
+	public long getNextCrossoverTime() {
+		return m_events.isEmpty() ? Long.MAX_VALUE : m_events.peek().time;
+	}
+
+
+	// ========== Helper Functions ==========
+	/**
+	 * Reads the urgency preferences
+	 * NOTE: This may run off the UI thread, so the settings are read under the same lock they are loaded under.
+	 *
+	 * @return True if they differ from the ones the order was computed with
+	 */
+	private boolean loadPreferences() {
+		int timeWindow;
+		int urgencyScale;
+		synchronized (m_settings) {
+			timeWindow = m_settings.timeWindow;
+			urgencyScale = m_settings.urgencyScale;
+		}
+		boolean changed = (timeWindow != m_timeWindow || urgencyScale != m_urgencyScale);
+		m_timeWindow = timeWindow;
+		m_urgencyScale = urgencyScale;
+		return changed;
+	}
+
+	/**
+	 * Recomputes every level's score, split, and next crossover from scratch
+	 *
+	 * @return True if any split moved
+	 */
+	private boolean recompute() {
+		// order levels by score, breaking ties toward higher priority
+		for (int i = 1; i < m_levels.length; i++) {
+			for (int j = i; j > 0 && ranksAhead(m_levels[j], m_levels[j - 1]); j--) {
+				Task.Priority swap = m_levels[j];
+				m_levels[j] = m_levels[j - 1];
+				m_levels[j - 1] = swap;
+				SortedTaskList swapList = m_undatedTasks[j];
+				m_undatedTasks[j] = m_undatedTasks[j - 1];
+				m_undatedTasks[j - 1] = swapList;
+			}
+		}
+
+		boolean changed = false;
+		m_events.clear();
+		for (int level = 0; level < m_levels.length; level++) {
+			m_levelScores[level] = Task.findUndatedUrgencyScore(m_levels[level], m_urgencyScale);
+			int newSplit = findSplit(level);
+			changed |= (newSplit != m_splits[level]);
+			m_splits[level] = newSplit;
+			schedule(level);
+		}
+		return changed;
+	}
+
+	/**
+	 * Checks if undated Tasks of the first priority rank ahead of undated Tasks of the second
+	 */
+	private boolean ranksAhead(Task.Priority priority1, Task.Priority priority2) {
+		int score1 = Task.findUndatedUrgencyScore(priority1, m_urgencyScale);
+		int score2 = Task.findUndatedUrgencyScore(priority2, m_urgencyScale);
+		return score1 > score2 || (score1 == score2 && priority1.ordinal() > priority2.ordinal());
+	}
+
+	/**
+	 * Finds the level holding undated Tasks of the given priority
+	 */
+	private int findLevel(Task.Priority priority) {
+		for (int level = 0; level < m_levels.length; level++) {
+			if (m_levels[level] == priority) {
+				return level;
+			}
+		}
+		throw new IllegalArgumentException("Unknown priority: " + priority);
+	}
+
+	/**
+	 * Binary searches for the number of dated Tasks ranked ahead of the given level at the current time
+	 */
+	private int findSplit(int level) {
+		int low = 0;
+		int high = m_datedTasks.size();
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (findScore(m_datedTasks.getKey(middle)) >= m_levelScores[level]) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * (Re)schedules the given level's next crossover: the moment the first dated Task behind it catches up
+	 */
+	private void schedule(int level) {
+		Crossover crossover = m_crossovers[level];
+		m_events.remove(crossover);
+		if (m_splits[level] < m_datedTasks.size()) {
+			long nextDueMillis = m_datedTasks.getKey(m_splits[level]);
+			crossover.time = Task.findDatedScoreTime(nextDueMillis, m_levelScores[level], m_timeWindow, m_urgencyScale);
+			m_events.add(crossover);
+		}
+	}
+
+	/**
+	 * Finds the urgency score, at the current time, of a dated Task with the given due date
+	 */
+	private int findScore(long dueMillis) {
+		return Task.findDatedUrgencyScore(dueMillis, m_now, m_timeWindow, m_urgencyScale);
+	}
+
+
+	// ========== Inner Classes ==========
+	/**
+	 * Scheduled moment at which a dated Task overtakes a level
+	 */
+	private static class Crossover implements Comparable<Crossover> {
+		final int level;
+		long time;
+
+		Crossover(int level) {
+			this.level = level;
+		}
+
+		@Override
+		public int compareTo(Crossover other) {
+			return (time < other.time) ? -1 : ((time == other.time) ? 0 : 1);
+		}
+	}
+
+	/**
+	 * Orders dated Tasks soonest due first, then by higher priority, then by ID
+	 * Every dated Task's score rises at the same rate, so this is the urgency order at any time, and the ID tie-break
+	 * 	makes it the strict total order the SortedTaskList locates Tasks by.
+	 */
+	private static class DueDateComparator implements Comparator<Task> {
+		@Override
+		public int compare(Task task1, Task task2) {
+			long due1 = task1.getDueMillis();
+			long due2 = task2.getDueMillis();
+			if (due1 != due2) {
+				return (due1 < due2) ? -1 : 1;
+			}
+			int priority1 = task1.getPriority().ordinal();
+			int priority2 = task2.getPriority().ordinal();
+			if (priority1 != priority2) {
+				return (priority1 > priority2) ? -1 : 1;
+			}
+			return (task1.getID() < task2.getID()) ? -1 : ((task1.getID() == task2.getID()) ? 0 : 1);
+		}
+	}
+
+	/**
+	 * Orders Tasks by ID
+	 */
+	private static class IDComparator implements Comparator<Task> {
+		@Override
+		public int compare(Task task1, Task task2) {
+			return (task1.getID() < task2.getID()) ? -1 : ((task1.getID() == task2.getID()) ? 0 : 1);
+		}
+	}
+}
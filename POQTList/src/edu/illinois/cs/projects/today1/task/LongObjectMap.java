@@ -0,0 +1,198 @@
+package edu.illinois.cs.projects.today1.task;
+
+/**
+ * Hash map from primitive long keys to objects
+ * Keys and values sit in two parallel arrays probed linearly from the key's hash, so lookups never box a key
+ * 	or allocate an entry. Removal shifts the following entries of the probe run back instead of leaving
+ * 	tombstones, so the table never degrades with churn.
+ * NOTE: A LongObjectMap is not thread-safe, and null values are not allowed (null marks an empty slot).
+ *
+ * @author Kevin Today
+ *
+ * @param <V> Type of the values held in the map
+ */
+public class LongObjectMap<V> {
+	// ========== Constants ==========
+	private static final int DEFAULT_CAPACITY = 16;				// slots allocated up front (must be a power of 2)
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;	// 2^64 divided by the golden ratio
+
+
+	// ========== Member Variables ==========
+	private long[] m_keys;			// key held in each slot
+	private Object[] m_values;		// value held in each slot (null if the slot is empty)
+	private int m_size;				// number of entries in the map
+	private int m_shift;			// right shift turning a multiplied key into a slot index
+
+
+	// ========== Constructors ==========
+	/**
+	 * Instantiates an empty LongObjectMap
+	 */
+	public LongObjectMap() {
+		allocate(DEFAULT_CAPACITY);
+	}
+
+
+	// ========== Public Functions ==========
+	/**
+	 * Gets the value mapped to the given key
+	 *
+	 * @param key Key to look up
+	 * @return The key's value, or null if the key is not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		int mask = m_keys.length - 1;
+		for (int slot = findHome(key); m_values[slot] != null; slot = (slot + 1) & mask) {
+			if (m_keys[slot] == key) {
+				return (V)m_values[slot];
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks if the given key is in the map
+	 *
+	 * @param key Key to look up
+	 * @return 'true' if the key is mapped to a value; 'false' if not
+	 */
+	public boolean containsKey(long key) {
+		return get(key) != null;
+	}
+
+	/**
+	 * Maps the given key to the given value, replacing any value it had
+	 *
+	 * @param key Key to map
+	 * @param value Value to map the key to (non-null)
+	 * @return The value the key was mapped to before, or null if it was not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		// sanity check
+		if (value == null) {
+			throw new IllegalArgumentException("LongObjectMap values cannot be null");
+		}
+
+		int mask = m_keys.length - 1;
+		int slot = findHome(key);
+		while (m_values[slot] != null) {
+			if (m_keys[slot] == key) {
+				V previous = (V)m_values[slot];
+				m_values[slot] = value;
+				return previous;
+			}
+			slot = (slot + 1) & mask;
+		}
+
+		m_keys[slot] = key;
+		m_values[slot] = value;
+		m_size++;
+
+		// keep the table at most half full so probe runs stay short
+		if (m_size * 2 > m_keys.length) {
+			rehash(m_keys.length * 2);
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the given key from the map
+	 *
+	 * @param key Key to remove
+	 * @return The value the key was mapped to, or null if it was not in the map
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		int mask = m_keys.length - 1;
+		int slot = findHome(key);
+		while (m_values[slot] != null) {
+			if (m_keys[slot] == key) {
+				V removed = (V)m_values[slot];
+				closeGap(slot);
+				m_size--;
+				return removed;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return null;
+	}
+
+	/**
+	 * Counts the entries in the map
+	 *
+	 * @return Number of keys mapped to values
+	 */
+	public int size() {
+		return m_size;
+	}
+
+	/**
+	 * Removes every entry from the map
+	 */
+	public void clear() {
+		allocate(DEFAULT_CAPACITY);
+	}
+
+
+	// ========== Helper Functions ==========
+	/**
+	 * Finds the slot the given key's probe run starts at
+	 */
+	private int findHome(long key) {
+		return (int)((key * HASH_MULTIPLIER) >>> m_shift);
+	}
+
+	/**
+	 * Empties the given slot, shifting back any later entry of the probe run that would otherwise become
+	 * 	unreachable
+	 *
+	 * @param gap Slot to empty
+	 */
+	private void closeGap(int gap) {
+		int mask = m_keys.length - 1;
+		int slot = (gap + 1) & mask;
+		while (m_values[slot] != null) {
+			// an entry may fill the gap only if its home does not lie cyclically within (gap, slot]
+			int home = findHome(m_keys[slot]);
+			boolean homeBetween = (gap <= slot) ? (gap < home && home <= slot) : (gap < home || home <= slot);
+			if (!homeBetween) {
+				m_keys[gap] = m_keys[slot];
+				m_values[gap] = m_values[slot];
+				gap = slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+		m_values[gap] = null;
+	}
+
+	/**
+	 * Replaces the table with an empty one of the given capacity
+	 *
+	 * @param capacity Number of slots (must be a power of 2)
+	 */
+	private void allocate(int capacity) {
+		m_keys = new long[capacity];
+		m_values = new Object[capacity];
+		m_size = 0;
+		m_shift = 64 - Integer.numberOfTrailingZeros(capacity);
+	}
+
+	/**
+	 * Moves every entry into a table of the given capacity
+	 *
+	 * @param capacity Number of slots (must be a power of 2)
+	 */
+	@SuppressWarnings("unchecked")
+	private void rehash(int capacity) {
+		long[] keys = m_keys;
+		Object[] values = m_values;
+		allocate(capacity);
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (values[slot] != null) {
+				put(keys[slot], (V)values[slot]);
+			}
+		}
+	}
+}
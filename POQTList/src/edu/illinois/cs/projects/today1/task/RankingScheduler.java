@@ -0,0 +1,129 @@
+package edu.illinois.cs.projects.today1.task;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+
+/**
+ * Keeps the TaskAdapter on screen ranked for the current minute
+ * While started, the scheduler wakes at every minute boundary, brings the adapter's order up to that minute on a
+ * 	background thread, and hands the resulting TaskRanking to the UI thread, so the UI thread never ranks anything
+ * 	and due date labels and urgency colors roll over with the clock.
+ * NOTE: start() and stop() are meant to be called from the UI thread.
+ *
+ * @author Kevin Today
+ */
+public class RankingScheduler {
+	// ========== Constants ==========
+	private static final long MINUTE_MILLIS = 60 * 1000;	// length of a minute in milliseconds
+
+
+	// ========== Member Variables ==========
+	private final Handler m_uiHandler;				// UI thread handler rankings are shown on
+	private HandlerThread m_rankThread;				// background thread rankings are made on (null while stopped)
+	private volatile Handler m_rankHandler;			// handler of the rank thread (null while stopped)
+	private volatile TaskAdapter m_adapter;			// adapter kept ranked (null while stopped)
+	private final Runnable m_ranker = new Runnable() {
+		public void run() {
+			rank();
+		}
+	};
+
+
+	// ========== Constructors ==========
+	/**
+	 * Instantiates a stopped RankingScheduler
+	 *
+	 * @param context Context whose main thread rankings are shown on
+	 */
+	public RankingScheduler(Context context) {
+		// sanity check
+		if (context == null) {
+			throw new IllegalArgumentException("RankingScheduler context must not be null");
+		}
+
+		m_uiHandler = new Handler(context.getMainLooper());
+	}
+
+
+	// ========== Public Functions ==========
+	/**
+	 * Starts keeping the given TaskAdapter ranked, ranking it right away and then at every minute boundary
+	 * A windowed TaskAdapter is ordered by its source rather than by urgency, so it is never ranked.
+	 *
+	 * @param adapter The TaskAdapter on screen (non-null)
+	 */
+	public void start(TaskAdapter adapter) {
+		// sanity check
+		if (adapter == null) {
+			throw new IllegalArgumentException("RankingScheduler cannot rank a null TaskAdapter");
+		}
+		if (adapter == m_adapter) {
+			return;
+		}
+
+		if (adapter.isWindowed()) {
+			stop();
+			return;
+		}
+
+		m_adapter = adapter;
+		if (m_rankThread == null) {
+			m_rankThread = new HandlerThread("RankingScheduler", Process.THREAD_PRIORITY_BACKGROUND);
+			m_rankThread.start();
+			m_rankHandler = new Handler(m_rankThread.getLooper());
+		}
+		requestRank();
+	}
+
+	/**
+	 * Stops ranking and ends the background thread; rankings already made are dropped rather than shown
+	 */
+	public void stop() {
+		m_adapter = null;
+		if (m_rankThread != null) {
+			m_rankThread.quit();
+			m_rankThread = null;
+			m_rankHandler = null;
+		}
+	}
+
+
+	// ========== Helper Functions ==========
+	/**
+	 * Ranks the adapter as soon as the rank thread is free, in place of the next scheduled ranking
+	 */
+	private void requestRank() {
+		Handler rankHandler = m_rankHandler;
+		if (rankHandler != null) {
+			rankHandler.removeCallbacks(m_ranker);
+			rankHandler.post(m_ranker);
+		}
+	}
+
+	/**
+	 * Ranks the adapter for the current time, posts the ranking to the UI thread, and schedules the next ranking
+	 * 	for the following minute boundary
+	 * NOTE: Runs on the rank thread
+	 */
+	private void rank() {
+		final TaskAdapter adapter = m_adapter;
+		Handler rankHandler = m_rankHandler;
+		if (adapter == null || rankHandler == null) {
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		final TaskRanking ranking = adapter.rankAt(now);
+		m_uiHandler.post(new Runnable() {
+			public void run() {
+				// a ranking made before Tasks were added or removed is stale, so the adapter is ranked again
+				if (adapter == m_adapter && !adapter.applyRanking(ranking)) {
+					requestRank();
+				}
+			}
+		});
+		rankHandler.postDelayed(m_ranker, MINUTE_MILLIS - now % MINUTE_MILLIS);
+	}
+}
@@ -0,0 +1,101 @@
+package edu.illinois.cs.projects.today1.task;
+
+import java.util.PriorityQueue;
+
+/**
+ * Min-heap of the times at which bound Task rows next change their look
+ * Each time a row is bound, the adapter schedules the moment its coloring next visibly changes; when the clock
+ * 	reaches it, only that row needs rebinding. A Task keeps just its latest refresh: earlier ones left in the heap
+ * 	are recognized as superseded and dropped when they come up.
+ * NOTE: A RowRefreshQueue is not thread-safe; it is meant to be used from the UI thread.
+ *
+ * @author Kevin Today
+ */
+class RowRefreshQueue {
+	// ========== Member Variables ==========
+	private final PriorityQueue<Refresh> m_refreshes;	// scheduled refreshes, soonest first
+	private final LongObjectMap<Refresh> m_latest;		// latest refresh scheduled for each Task, by ID
+
+
+	// ========== Constructors ==========
+	RowRefreshQueue() {
+		m_refreshes = new PriorityQueue<Refresh>();
+		m_latest = new LongObjectMap<Refresh>();
+	}
+
+
+	// ========== Public Functions ==========
+	/**
+	 * Schedules the given Task's row to be refreshed at the given time, replacing any refresh scheduled before
+	 *
+	 * @param taskID ID of the Task shown in the row
+	 * @param time Time in milliseconds the row next changes (Long.MAX_VALUE if it never does)
+	 */
+	void schedule(long taskID, long time) {
+		Refresh latest = m_latest.get(taskID);
+		if (latest != null && latest.time == time) {
+			return;
+		}
+		if (time == Long.MAX_VALUE) {
+			if (latest != null) {
+				m_latest.remove(taskID);
+			}
+			return;
+		}
+
+		Refresh refresh = new Refresh(taskID, time);
+		m_latest.put(taskID, refresh);
+		m_refreshes.add(refresh);
+	}
+
+	/**
+	 * Removes every refresh due by the given time
+	 *
+	 * @param now Time in milliseconds
+	 * @return The due refreshes by Task ID, or null if none are due
+	 */
+	LongObjectMap<Refresh> pollDue(long now) {
+		LongObjectMap<Refresh> due = null;
+		while (!m_refreshes.isEmpty() && m_refreshes.peek().time <= now) {
+			Refresh refresh = m_refreshes.poll();
+			if (m_latest.get(refresh.taskID) != refresh) {
+				continue;
+			}
+
+			m_latest.remove(refresh.taskID);
+			if (due == null) {
+				due = new LongObjectMap<Refresh>();
+			}
+			due.put(refresh.taskID, refresh);
+		}
+		return due;
+	}
+
+	/**
+	 * Forgets every scheduled refresh, after something that changes every row's look
+	 */
+	void clear() {
+		m_refreshes.clear();
+		m_latest.clear();
+	}
+
+
+	// ========== Inner Classes ==========
+	/**
+	 * Scheduled moment at which one Task's row changes
+	 */
+	static class Refresh implements Comparable<Refresh> {
+		final long taskID;
+		final long time;
+
+		Refresh(long taskID, long time) {
+			this.taskID = taskID;
+			this.time = time;
+		}
+
+		@Override
+		public int compareTo(Refresh other) {
+			return (time < other.time) ? -1 : ((time == other.time) ? 0 : 1);
+		}
+	}
+}
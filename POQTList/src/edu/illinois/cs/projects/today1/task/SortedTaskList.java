@@ -1,32 +1,32 @@
 package edu.illinois.cs.projects.today1.task;
 
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Comparator;
-import java.util.Iterator;
-import java.util.List;
-import java.util.ListIterator;
 
 /**
- * !!! THIS STRUCTURE IS NOT COMPLETE OR IN EFFECT YET. IT WILL BE USED IN A LATER IMPLEMENTATION FOR INCREASED SPEED !!!
- * 
  * Data structure for efficient Task management
- * NOTE: This data structure does not use the generic type <T> because, due to silly Java
- * 	language restrictions, you cannot declare a generic array "new T[]". As such, the structure
- * 	is forced to be rather specialized.
- * 
- * !! NOTE !! : This structure has a LOT of room for optimization
+ * Tasks are kept sorted on a Comparator inside a size-augmented scapegoat tree, so positional access, insertion,
+ * 	removal, and index lookup all run in O(log n) (insertion and removal are amortized).
+ * NOTE: The Comparator must be a strict total order that only calls two Tasks equal when they are the same Task
+ * 	(ending in a tie-break on ID does this), since Tasks are located by descending the tree on it. A Task may
+ * 	only appear once, and must be taken out before the fields it is sorted on change.
+ * Each Task can carry a long key copied in when it is added, which getKey() reads by position without touching
+ * 	the Task or its TaskStore.
  * 
  * @author Kevin Today
  */
-public class SortedTaskList implements List<Task>{
+public class SortedTaskList extends AbstractList<Task> {
 	// ========== Constants ==========
-	private static final int DEFAULT_SIZE = 10;
+	private static final double BALANCE_FACTOR = 0.7;	// max fraction of a subtree's nodes allowed on one side before rebuilding
+	
 	
 	// ========== Member Variables ==========
-	Task[] m_tasks;	// array of tasks
-	int m_numTasks;
-	int m_capacity;
-	Comparator<Task> m_comparator;
+	private final Comparator<Task> m_comparator;	// Comparator the list is sorted on (a strict total order)
+	private Node m_root;							// root of the order-statistic tree
+	private int m_maxSize;							// largest size reached since the last full rebuild
+	
 	
 	// ========== Constructors ==========
 	/**
@@ -40,9 +40,9 @@ public class SortedTaskList implements List<Task>{
 			throw new IllegalArgumentException("Comparator cannot be null");
 		}
 		
-		m_numTasks = 0;
-		m_capacity = DEFAULT_SIZE;
-		m_tasks = new Task[m_capacity];
+		m_comparator = comparator;
+		m_root = null;
+		m_maxSize = 0;
 	}
 	
 	/**
@@ -63,7 +63,7 @@ public class SortedTaskList implements List<Task>{
 	 * Instantiates a SortedTaskList with the given Tasks organized on the given Comparator
 	 * 
 	 * @param comparator Comparator with which to keep the list sorted
-	 * @param collection Tasks to fill the SortedTaskList with
+	 * @param array Tasks to fill the SortedTaskList with
 	 */
 	public SortedTaskList(Comparator<Task> comparator, Task[] array) {
 		this(comparator);
@@ -72,70 +72,196 @@ public class SortedTaskList implements List<Task>{
 			this.add(task);
 		}
 	}
-
+	
+	
+	// ========== List Functions ==========
+	/**
+	 * Inserts the given Task at its sorted position
+	 * 
+	 * @param task Task to insert
+	 * @return False if the Task is null or already in the list; true otherwise
+	 */
 	@Override
 	public boolean add(Task task) {
-		if (task == null) {
+		return add(task, 0);
+	}
+	
+	/**
+	 * Inserts the given Task at its sorted position, keeping the given key alongside it
+	 * 
+	 * @param task Task to insert
+	 * @param key Key to keep with the Task, read back through getKey()
+	 * @return False if the Task is null or already in the list; true otherwise
+	 */
+	public boolean add(Task task, long key) {
+		if (task == null || find(task) != null) {
 			return false;
 		}
 		
-		// if array is already full, double array size
-		if (m_numTasks == m_capacity) {
-			Task[] newTasks = new Task[m_capacity * 2];
-			for (int index = 0; index < m_capacity; index++) {
-				newTasks[index] = m_tasks[index];
+		Node node = new Node(task, key);
+		modCount++;
+		
+		if (m_root == null) {
+			m_root = node;
+			m_maxSize = Math.max(m_maxSize, 1);
+			return true;
+		}
+		
+		// walk down to the insertion point, growing each subtree passed through
+		Node current = m_root;
+		int depth = 1;
+		while (true) {
+			current.size++;
+			if (m_comparator.compare(task, current.task) < 0) {
+				if (current.left == null) {
+					current.left = node;
+					break;
+				}
+				current = current.left;
+			}
+			else {
+				if (current.right == null) {
+					current.right = node;
+					break;
+				}
+				current = current.right;
 			}
-			m_tasks = newTasks;
-			m_capacity = m_capacity * 2;
+			depth++;
 		}
+		node.parent = current;
 		
-		return false;
+		int size = m_root.size;
+		if (size > m_maxSize) {
+			m_maxSize = size;
+		}
 		
+		// if the new node sits too deep, rebuild the lowest ancestor that is out of balance
+		if (depth > maxBalancedDepth(size)) {
+			Node child = node;
+			Node ancestor = node.parent;
+			while (ancestor != null && child.size <= BALANCE_FACTOR * ancestor.size) {
+				child = ancestor;
+				ancestor = ancestor.parent;
+			}
+			if (ancestor != null) {
+				rebuild(ancestor);
+			}
+		}
 		
+		return true;
 	}
 	
-
 	/**
-	 * NOTE: Does nothing! The SortedTaskList will organize itself
+	 * NOTE: The position is ignored! The SortedTaskList will organize itself
 	 */
 	@Override
 	public void add(int position, Task task) {
-		return;
+		add(task);
 	}
-
+	
+	/**
+	 * NOTE: The position is ignored! The SortedTaskList will organize itself
+	 */
+	@Override
+	public boolean addAll(int position, Collection<? extends Task> collection) {
+		return addAll(collection);
+	}
+	
 	/**
+	 * Gets the Task at the given sorted position
 	 * 
+	 * @param index Sorted position of the desired Task
+	 * @return The Task at the given position
 	 */
 	@Override
-	public boolean addAll(Collection<? extends Task> collection) {
-		try {
-			for (Task task : collection) {
-				this.add(task);
+	public Task get(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
+		}
+		
+		Node node = m_root;
+		while (true) {
+			int leftSize = sizeOf(node.left);
+			if (index < leftSize) {
+				node = node.left;
+			}
+			else if (index == leftSize) {
+				return node.task;
+			}
+			else {
+				index -= leftSize + 1;
+				node = node.right;
 			}
 		}
-		catch (Exception e) {
-			return false;
+	}
+	
+	/**
+	 * Gets the key kept with the Task at the given sorted position
+	 * 
+	 * @param index Sorted position of the desired Task
+	 * @return The key the Task was added with (0 if it was added without one)
+	 */
+	public long getKey(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", size: " + size());
 		}
 		
-		return true;
+		Node node = m_root;
+		while (true) {
+			int leftSize = sizeOf(node.left);
+			if (index < leftSize) {
+				node = node.left;
+			}
+			else if (index == leftSize) {
+				return node.key;
+			}
+			else {
+				index -= leftSize + 1;
+				node = node.right;
+			}
+		}
 	}
-
+	
 	/**
-	 * NOTE: Does nothing! The SortedTaskList will organize itself
+	 * Finds the sorted position of the given Task
+	 * 
+	 * @param obj Task to search for
+	 * @return Position of the Task, or -1 if it is not in the list
 	 */
 	@Override
-	public boolean addAll(int arg0, Collection<? extends Task> arg1) {
-		return false;
+	public int indexOf(Object obj) {
+		if (!(obj instanceof Task)) {
+			return -1;
+		}
+		
+		// count everything passed on the left on the way down to the Task
+		Task task = (Task)obj;
+		Node node = m_root;
+		int index = 0;
+		while (node != null) {
+			int comparison = m_comparator.compare(task, node.task);
+			if (comparison < 0) {
+				node = node.left;
+			}
+			else if (comparison > 0) {
+				index += sizeOf(node.left) + 1;
+				node = node.right;
+			}
+			else {
+				return index + sizeOf(node.left);
+			}
+		}
+		return -1;
 	}
-
+	
 	/**
-	 * Clears the SortedTaskList's contents
+	 * Tasks only appear once, so this is the same as indexOf
 	 */
 	@Override
-	public void clear() {
-		m_tasks = new Task[DEFAULT_SIZE];
+	public int lastIndexOf(Object obj) {
+		return indexOf(obj);
 	}
-
+	
 	/**
 	 * Checks if the SortedTaskList contains the specified Object
 	 * 
@@ -143,119 +269,299 @@ public class SortedTaskList implements List<Task>{
 	 */
 	@Override
 	public boolean contains(Object obj) {
-		for (Task task : m_tasks) {
-			if (m_tasks.equals(obj)) {
-				return true;
-			}
-		}
-		
-		return false;
+		return find(obj) != null;
 	}
-
+	
 	/**
+	 * Removes the given Task from the SortedTaskList
 	 * 
+	 * @param obj Task to remove
+	 * @return True if the Task was in the list; false otherwise
 	 */
 	@Override
-	public boolean containsAll(Collection<?> arg0) {
-		return false;
+	public boolean remove(Object obj) {
+		Node node = find(obj);
+		if (node == null) {
+			return false;
+		}
+		
+		unlink(node);
+		modCount++;
+		
+		// rebuild everything once enough removals have happened to loosen the depth bound
+		int size = size();
+		if (size < BALANCE_FACTOR * m_maxSize) {
+			if (m_root != null) {
+				rebuild(m_root);
+			}
+			m_maxSize = size;
+		}
+		return true;
 	}
-
+	
+	/**
+	 * Removes the Task at the given sorted position
+	 * 
+	 * @param index Sorted position of Task to remove
+	 * @return The removed Task
+	 */
 	@Override
-	public Task get(int arg0) {
-		// TODO Auto-generated method stub
-		return null;
+	public Task remove(int index) {
+		Task removal = get(index);
+		remove(removal);
+		return removal;
 	}
-
+	
+	/**
+	 * Clears the SortedTaskList's contents
+	 */
 	@Override
-	public int indexOf(Object arg0) {
-		// TODO Auto-generated method stub
-		return 0;
+	public void clear() {
+		m_root = null;
+		m_maxSize = 0;
+		modCount++;
 	}
-
+	
 	@Override
-	public boolean isEmpty() {
-		// TODO Auto-generated method stub
-		return false;
+	public int size() {
+		return sizeOf(m_root);
 	}
-
+	
 	@Override
-	public Iterator<Task> iterator() {
-		// TODO Auto-generated method stub
-		return null;
+	public Object[] toArray() {
+		Object[] tasks = new Object[size()];
+		Node[] nodes = new Node[tasks.length];
+		flatten(m_root, nodes, 0);
+		for (int i = 0; i < nodes.length; i++) {
+			tasks[i] = nodes[i].task;
+		}
+		return tasks;
 	}
-
-	@Override
-	public int lastIndexOf(Object arg0) {
-		// TODO Auto-generated method stub
-		return 0;
+	
+	
+	// ========== Public Functions ==========
+	/**
+	 * Replaces the list's contents with the given Tasks, linking them straight into a balanced tree instead of
+	 * 	inserting them one at a time; Tasks that already come in sorted order are taken in linear time
+	 * 
+	 * @param tasks Tasks to fill the list with (nulls and duplicates are skipped)
+	 * @param count Number of Tasks at the front of the array to take
+	 */
+	public void load(Task[] tasks, int count) {
+		load(tasks, null, count);
 	}
-
-	@Override
-	public ListIterator<Task> listIterator() {
-		// TODO Auto-generated method stub
-		return null;
+	
+	/**
+	 * Replaces the list's contents with the given Tasks and their keys, linking them straight into a balanced tree
+	 * 	instead of inserting them one at a time; Tasks that already come in sorted order are taken in linear time
+	 * 
+	 * @param tasks Tasks to fill the list with (nulls and duplicates are skipped)
+	 * @param keys Key to keep with each Task, in step with 'tasks' (null keeps 0 with every Task)
+	 * @param count Number of Tasks at the front of the array to take
+	 */
+	public void load(Task[] tasks, long[] keys, int count) {
+		// sanity check
+		if (count < 0 || count > tasks.length || (keys != null && count > keys.length)) {
+			throw new IllegalArgumentException("Cannot load " + count + " of " + tasks.length + " Tasks");
+		}
+		
+		Node[] nodes = new Node[count];
+		int taken = 0;
+		boolean sorted = true;
+		for (int i = 0; i < count; i++) {
+			if (tasks[i] != null) {
+				nodes[taken] = new Node(tasks[i], (keys != null) ? keys[i] : 0);
+				sorted &= (taken == 0 || m_comparator.compare(nodes[taken - 1].task, nodes[taken].task) <= 0);
+				taken++;
+			}
+		}
+		
+		// Tasks that already come sorted cost one pass of comparisons rather than a sort
+		if (!sorted) {
+			Arrays.sort(nodes, 0, taken, new Comparator<Node>() {
+				@Override
+				public int compare(Node node1, Node node2) {
+					return m_comparator.compare(node1.task, node2.task);
+				}
+			});
+		}
+		
+		// duplicates compare equal, so they sort next to each other
+		int size = 0;
+		for (int i = 0; i < taken; i++) {
+			if (size > 0 && m_comparator.compare(nodes[size - 1].task, nodes[i].task) == 0) {
+				continue;
+			}
+			nodes[size++] = nodes[i];
+		}
+		
+		m_root = (size > 0) ? build(nodes, 0, size, null) : null;
+		m_maxSize = size;
+		modCount++;
 	}
-
-	@Override
-	public ListIterator<Task> listIterator(int arg0) {
-		// TODO Auto-generated method stub
-		return null;
+	
+	/**
+	 * Re-sorts every Task in the list, for when the values the Comparator reads have changed
+	 */
+	public void resort() {
+		if (m_root == null) {
+			return;
+		}
+		
+		Node[] nodes = new Node[m_root.size];
+		flatten(m_root, nodes, 0);
+		Arrays.sort(nodes, new Comparator<Node>() {
+			@Override
+			public int compare(Node node1, Node node2) {
+				return m_comparator.compare(node1.task, node2.task);
+			}
+		});
+		m_root = build(nodes, 0, nodes.length, null);
+		m_maxSize = nodes.length;
+		modCount++;
 	}
-
-	@Override
-	public Task remove(int arg0) {
-		// TODO Auto-generated method stub
+	
+	
+	// ========== Helper Functions ==========
+	/**
+	 * Descends the tree on the Comparator to the node holding the given Task
+	 * 
+	 * @param obj Task to search for
+	 * @return The node holding the Task, or null if it is not in the list
+	 */
+	private Node find(Object obj) {
+		if (!(obj instanceof Task)) {
+			return null;
+		}
+		
+		Task task = (Task)obj;
+		Node node = m_root;
+		while (node != null) {
+			int comparison = m_comparator.compare(task, node.task);
+			if (comparison == 0) {
+				return node;
+			}
+			node = (comparison < 0) ? node.left : node.right;
+		}
 		return null;
 	}
-
-	@Override
-	public boolean remove(Object arg0) {
-		// TODO Auto-generated method stub
-		return false;
-	}
-
-	@Override
-	public boolean removeAll(Collection<?> arg0) {
-		// TODO Auto-generated method stub
-		return false;
-	}
-
-	@Override
-	public boolean retainAll(Collection<?> arg0) {
-		// TODO Auto-generated method stub
-		return false;
+	
+	/**
+	 * Splices the given node out of the tree, keeping subtree sizes current
+	 * 
+	 * @param node Node to remove
+	 */
+	private void unlink(Node node) {
+		// a node with two children trades places with its in-order successor, which has at most one child
+		if (node.left != null && node.right != null) {
+			Node successor = node.right;
+			while (successor.left != null) {
+				successor = successor.left;
+			}
+			node.task = successor.task;
+			node.key = successor.key;
+			node = successor;
+		}
+		
+		Node child = (node.left != null) ? node.left : node.right;
+		Node parent = node.parent;
+		if (child != null) {
+			child.parent = parent;
+		}
+		if (parent == null) {
+			m_root = child;
+		}
+		else if (parent.left == node) {
+			parent.left = child;
+		}
+		else {
+			parent.right = child;
+		}
+		
+		for (Node ancestor = parent; ancestor != null; ancestor = ancestor.parent) {
+			ancestor.size--;
+		}
 	}
-
-	@Override
-	public Task set(int arg0, Task arg1) {
-		// TODO Auto-generated method stub
-		return null;
+	
+	/**
+	 * Rebuilds the subtree under the given node into a perfectly balanced tree
+	 * 
+	 * @param subtreeRoot Root of subtree to rebuild
+	 */
+	private void rebuild(Node subtreeRoot) {
+		Node parent = subtreeRoot.parent;
+		Node[] nodes = new Node[subtreeRoot.size];
+		flatten(subtreeRoot, nodes, 0);
+		Node newRoot = build(nodes, 0, nodes.length, parent);
+		
+		if (parent == null) {
+			m_root = newRoot;
+		}
+		else if (parent.left == subtreeRoot) {
+			parent.left = newRoot;
+		}
+		else {
+			parent.right = newRoot;
+		}
 	}
-
-	@Override
-	public int size() {
-		// TODO Auto-generated method stub
-		return 0;
+	
+	/**
+	 * Writes the subtree under the given node into the given array in sorted order
+	 * 
+	 * @return Next free index in the array
+	 */
+	private static int flatten(Node node, Node[] target, int index) {
+		while (node != null) {
+			index = flatten(node.left, target, index);
+			target[index++] = node;
+			node = node.right;
+		}
+		return index;
 	}
-
-	@Override
-	public List<Task> subList(int arg0, int arg1) {
-		// TODO Auto-generated method stub
-		return null;
+	
+	/**
+	 * Links the given sorted range of nodes into a balanced subtree
+	 * 
+	 * @return Root of the new subtree
+	 */
+	private static Node build(Node[] nodes, int from, int to, Node parent) {
+		int middle = (from + to) >>> 1;
+		Node node = nodes[middle];
+		node.parent = parent;
+		node.left = (from < middle) ? build(nodes, from, middle, node) : null;
+		node.right = (middle + 1 < to) ? build(nodes, middle + 1, to, node) : null;
+		node.size = to - from;
+		return node;
 	}
-
-	@Override
-	public Object[] toArray() {
-		// TODO Auto-generated method stub
-		return null;
+	
+	/**
+	 * Finds the deepest a node may sit in a balanced tree of the given size
+	 */
+	private static int maxBalancedDepth(int size) {
+		return (int)(Math.log(size) / Math.log(1 / BALANCE_FACTOR)) + 1;
 	}
-
-	@Override
-	public <T> T[] toArray(T[] arg0) {
-		// TODO Auto-generated method stub
-		return null;
+	
+	private static int sizeOf(Node node) {
+		return (node == null) ? 0 : node.size;
 	}
 	
 	
-
+	// ========== Inner Classes ==========
+	/**
+	 * Tree node holding one Task, its key, and the size of the subtree below it
+	 */
+	private static class Node {
+		Task task;
+		long key;
+		Node left;
+		Node right;
+		Node parent;
+		int size;
+		
+		Node(Task task, long key) {
+			this.task = task;
+			this.key = key;
+			this.size = 1;
+		}
+	}
 }
@@ -1,12 +1,9 @@
 package edu.illinois.cs.projects.today1.task;
 
-import java.util.Calendar;
-import java.util.Calendar;
-
 import edu.illinois.cs.projects.today1.POQTListConstants;
+import edu.illinois.cs.projects.today1.POQTListSettings;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 
 
 /**
@@ -117,12 +114,13 @@ public class Task {
 	};
 	
 	
+	public static final long NO_DUE_DATE = Long.MAX_VALUE;	// due date stored for Tasks without one
+	
+	
 	// ========== Member Variables ==========
-	private long m_id;				// unique int identifying a task
-	private String m_description;	// text description 
-	private Calendar m_dueDate;		// date and time the task is due
-	private Priority m_priority;	// constant denoting the task's priority
-	private Alarm m_alarm;		// date and time to remind about task
+	private final TaskStore m_store;	// columnar storage holding the task's data
+	private final int m_slot;			// slot within the store holding the task's data
+	private final long m_id;			// unique int identifying a task, kept here so identity survives release()
 	
 	// ========== Constructors ==========
 	/**
@@ -132,16 +130,7 @@ public class Task {
 	 * @param text The task's text description. Cannot be "null" or the empty string.
 	 */
 	public Task(long id, String text) {
-		// sanity check for text
-		if (text == null || text.length() == 0) {
-			throw new IllegalArgumentException("Text must be non-null, non-empty string");
-		}
-		
-		m_id = id;
-		m_description = text;
-		m_dueDate = null;
-		m_priority = Priority.NORMAL_PRIORITY;
-		m_alarm = null;
+		this(id, text, NO_DUE_DATE);
 	}
 	
 	/**
@@ -149,11 +138,10 @@ public class Task {
 	 * 
 	 * @param id The task's ID
 	 * @param text The task's text description. Cannot be "null" or the empty string.
-	 * @param dueDate The task's due date (no due date if "null")
+	 * @param dueMillis The task's due date in milliseconds (NO_DUE_DATE if none)
 	 */
-	public Task(long id, String text, Calendar dueDate) {
-		this(id, text);
-		m_dueDate = dueDate;
+	public Task(long id, String text, long dueMillis) {
+		this(id, text, dueMillis, null);
 	}
 	
 	/**
@@ -161,37 +149,66 @@ public class Task {
 	 * 
 	 * @param id The task's ID
 	 * @param text The task's text description. Cannot be "null" or the empty string.
-	 * @param dueDate The task's due date (no due date if "null")
+	 * @param dueMillis The task's due date in milliseconds (NO_DUE_DATE if none)
 	 * @param priority The task's priority (normal priority if "null")
 	 */
-	public Task(long id, String text, Calendar dueDate, Priority priority) {
-		this(id, text, dueDate);
-		
-		if (priority != null) {
-			m_priority = priority;
-		}
+	public Task(long id, String text, long dueMillis, Priority priority) {
+		this(id, text, dueMillis, priority, null);
 	}
 	
 	/**
-	 * Instantiates a new Task object with the given parameters
+	 * Instantiates a new Task object with the given parameters, held in a one-slot TaskStore of its own
+	 * NOTE: The store is dropped along with the Task; Tasks loaded in bulk should share a TaskStore instead
 	 * 
 	 * @param id The task's ID
 	 * @param text The task's text description. Cannot be "null" or the empty string.
-	 * @param dueDate The task's due date (no due date if "null")
+	 * @param dueMillis The task's due date in milliseconds (NO_DUE_DATE if none)
 	 * @param priority The task's priority (normal priority if "null")
 	 * @param alarm Date and time to remind about task (no alarm if "null")
 	 */
-	public Task(long id, String text, Calendar dueDate, Priority priority, Alarm alarm) {
-		this(id, text, dueDate, priority);
-		
-		if (alarm != null) {
-			m_alarm = alarm;
+	public Task(long id, String text, long dueMillis, Priority priority, Alarm alarm) {
+		this(new TaskStore(1), id, text, dueMillis, priority, alarm);
+	}
+	
+	/**
+	 * Instantiates a new Task object with the given parameters, held in the given TaskStore
+	 * 
+	 * @param store TaskStore to hold the task's data
+	 * @param id The task's ID
+	 * @param text The task's text description. Cannot be "null" or the empty string.
+	 * @param dueMillis The task's due date in milliseconds (NO_DUE_DATE if none)
+	 * @param priority The task's priority (normal priority if "null")
+	 * @param alarm Date and time to remind about task (no alarm if "null")
+	 */
+	public Task(TaskStore store, long id, String text, long dueMillis, Priority priority, Alarm alarm) {
+		// sanity check for store
+		if (store == null) {
+			throw new IllegalArgumentException("Task store cannot be null");
 		}
+		// sanity check for text
+		if (text == null || text.length() == 0) {
+			throw new IllegalArgumentException("Text must be non-null, non-empty string");
+		}
+		
+		m_store = store;
+		m_id = id;
+		m_slot = store.allocate(id, text, dueMillis, (priority == null) ? Priority.NORMAL_PRIORITY : priority, alarm);
 	}
 
 	
 	
 	// ========== Methods ==========
+	/**
+	 * Calculates an Urgency Score for the task based on the given context's preferences at the current time
+	 * NOTE: When scoring several Tasks together, capture the time once and use findUrgencyScore(Context, long)
+	 * 	so every Task is scored at the same instant
+	 *  
+	 *  @param context Context of preferences used in Urgency Score calculations
+	 */
+	public int findUrgencyScore(Context context) {
+		return findUrgencyScore(context, System.currentTimeMillis());
+	}
+	
 	/**
 	 * Calculates an Urgency Score for the task based on the given context's preferences
 	 * Urgency Scores are based on:
@@ -200,28 +217,58 @@ public class Task {
 	 *  - GPS location (UNIMPLEMENTED YET)
 	 *  
 	 *  @param context Context of preferences used in Urgency Score calculations
+	 *  @param now Time in milliseconds to calculate the Urgency Score at
 	 */
-	public int findUrgencyScore(Context context) {
-		// get application preferences for calculating urgency
-		SharedPreferences preferences = context.getSharedPreferences(POQTListConstants.PREFERENCES_FILEPATH, context.MODE_PRIVATE);
-		int timeWindow = preferences.getInt(POQTListConstants.PREF_KEY_TIME_WINDOW, POQTListConstants.DEFAULT_TIME_WINDOW);
-		int urgencyScale = preferences.getInt(POQTListConstants.PREF_KEY_URGENCY_SCALE, POQTListConstants.DEFAULT_URGENCY_SCALE);
-		
+	public int findUrgencyScore(Context context, long now) {
+		return findUrgencyScore(POQTListSettings.getInstance(context), now);
+	}
+	
+	/**
+	 * Calculates an Urgency Score for the task based on the given settings
+	 *  
+	 *  @param settings Cached preferences used in Urgency Score calculations
+	 *  @param now Time in milliseconds to calculate the Urgency Score at
+	 */
+	public int findUrgencyScore(POQTListSettings settings, long now) {
 		// if due date is null, calculate Urgency Score based on priority alone
-		if (m_dueDate == null) {
-			return (int)(m_priority.getWeight() * ((double)urgencyScale));
+		long dueMillis = m_store.getDueMillis(m_slot);
+		if (dueMillis == NO_DUE_DATE) {
+			return findUndatedUrgencyScore(getPriority(), settings.urgencyScale);
 		}
 		
+		// !!ALGORITHM DOES NOT COMBINE BOTH PRIORITY DUE DATE!!!!
+		// otherwise, use time until due date
+		return findDatedUrgencyScore(dueMillis, now, settings.timeWindow, settings.urgencyScale);
+	}
+	
+	/**
+	 * Calculates the Urgency Score of a Task with no due date, which depends on priority alone
+	 * 
+	 * @param priority The Task's priority
+	 * @param urgencyScale Scaling value used for Task urgency
+	 * @return The Task's Urgency Score
+	 */
+	static int findUndatedUrgencyScore(Priority priority, int urgencyScale) {
+		return (int)(priority.getWeight() * ((double)urgencyScale));
+	}
+	
+	/**
+	 * Calculates the Urgency Score of a Task with a due date at the given time. Scores rise linearly
+	 * 	as the due date approaches, at the same rate for every Task.
+	 * 
+	 * @param dueMillis The Task's due date in milliseconds
+	 * @param nowMillis Time to calculate the score at in milliseconds
+	 * @param timeWindow Maximum days from due date a Task must be to start gaining urgency
+	 * @param urgencyScale Scaling value used for Task urgency
+	 * @return The Task's Urgency Score
+	 */
+	static int findDatedUrgencyScore(long dueMillis, long nowMillis, int timeWindow, int urgencyScale) {
 		long NUM_MIN_IN_DAY = 1440;
 		long MIN_IN_TIME_WINDOW = timeWindow * NUM_MIN_IN_DAY;
 		
-		Calendar cal = Calendar.getInstance();
-		
-		// !!ALGORITHM DOES NOT COMBINE BOTH PRIORITY DUE DATE!!!!
-		// otherwise, use time until due date
 		long NUM_MILLIS_IN_MINUTE = 60000;
-		long minutesElapsedWhenDue = (long)(m_dueDate.getTimeInMillis() / NUM_MILLIS_IN_MINUTE);
-		long minutesElapsedCurrently = (long)(cal.getTimeInMillis() / NUM_MILLIS_IN_MINUTE);
+		long minutesElapsedWhenDue = (long)(dueMillis / NUM_MILLIS_IN_MINUTE);
+		long minutesElapsedCurrently = (long)(nowMillis / NUM_MILLIS_IN_MINUTE);
 		long minutesDifference = minutesElapsedWhenDue - minutesElapsedCurrently;
 		
 		// ratio of how long until the task is due to how long the time window is
@@ -230,6 +277,31 @@ public class Task {
 		return urgencyScore;
 	}
 	
+	/**
+	 * Finds the first minute at which a Task due at the given time reaches the given Urgency Score
+	 * 
+	 * @param dueMillis The Task's due date in milliseconds
+	 * @param targetScore Urgency Score to reach
+	 * @param timeWindow Maximum days from due date a Task must be to start gaining urgency
+	 * @param urgencyScale Scaling value used for Task urgency
+	 * @return Start of that minute in milliseconds
+	 */
+	static long findDatedScoreTime(long dueMillis, int targetScore, int timeWindow, int urgencyScale) {
+		long NUM_MILLIS_IN_MINUTE = 60000;
+		
+		// solve the linear score equation, then step to the exact minute to absorb rounding
+		double minutesInWindow = (double)timeWindow * 1440;
+		double leadMinutes = minutesInWindow * (1.00 - ((double)targetScore) / ((double)urgencyScale));
+		long minute = (long)Math.ceil((dueMillis / NUM_MILLIS_IN_MINUTE) - leadMinutes);
+		while (findDatedUrgencyScore(dueMillis, (minute - 1) * NUM_MILLIS_IN_MINUTE, timeWindow, urgencyScale) >= targetScore) {
+			minute--;
+		}
+		while (findDatedUrgencyScore(dueMillis, minute * NUM_MILLIS_IN_MINUTE, timeWindow, urgencyScale) < targetScore) {
+			minute++;
+		}
+		return minute * NUM_MILLIS_IN_MINUTE;
+	}
+	
 	@Override
 	/**
 	 * Two Task objects are equal iff their IDs are equal or they're the same object
@@ -245,7 +317,7 @@ public class Task {
 		
 		Task rhs = (Task) obj;
 		// compare IDs
-		if (this == obj || m_id == rhs.getID()) {
+		if (this == obj || getID() == rhs.getID()) {
 			return true;
 		}
 		
@@ -260,7 +332,16 @@ public class Task {
 	 */
 	public int hashCode() {
 		// Probably a terrible HashCode, but not worrying about optimization at the moment
-		return (int)m_id;
+		return (int)getID();
+	}
+	
+	
+	/**
+	 * Returns the task's slot to its TaskStore
+	 * WARNING: Only the Task's ID (and so equals() and hashCode()) may be used afterwards!
+	 */
+	void release() {
+		m_store.release(m_slot);
 	}
 	
 	
@@ -271,16 +352,25 @@ public class Task {
 	 * @return Task's description
 	 */
 	public String getDescription() {
-		return m_description;
+		return m_store.getDescription(m_slot);
+	}
+	
+	/**
+	 * Checks if the Task has a due date
+	 * 
+	 * @return 'true' if the Task has a due date; 'false' otherwise
+	 */
+	public boolean hasDueDate() {
+		return m_store.getDueMillis(m_slot) != NO_DUE_DATE;
 	}
 	
 	/**
-	 * Gets the Task's due date
+	 * Gets the Task's due date in milliseconds
 	 * 
-	 * @return Task's due date or null if no due date
+	 * @return Task's due date or NO_DUE_DATE if no due date
 	 */
-	public Calendar getDueDate() {
-		return m_dueDate;
+	public long getDueMillis() {
+		return m_store.getDueMillis(m_slot);
 	}
 	
 	/**
@@ -289,7 +379,7 @@ public class Task {
 	 * @return Task's priority
 	 */
 	public Priority getPriority() {
-		return m_priority;
+		return Priority.findPriority(m_store.getPriorityOrdinal(m_slot));
 	}
 	
 	/**
@@ -307,7 +397,25 @@ public class Task {
 	 * @return Task's alarm date or null if no alarm set
 	 */
 	public Alarm getAlarm() {
-		return m_alarm;
+		return Alarm.findAlarm(m_store.getAlarmOrdinal(m_slot));
+	}
+	
+	/**
+	 * Gets the TaskStore holding the Task's data
+	 * 
+	 * @return Task's store
+	 */
+	TaskStore getStore() {
+		return m_store;
+	}
+	
+	/**
+	 * Gets the slot within the TaskStore holding the Task's data
+	 * 
+	 * @return Task's slot
+	 */
+	int getSlot() {
+		return m_slot;
 	}
 
 	
@@ -322,16 +430,16 @@ public class Task {
 			throw new IllegalArgumentException("Cannot set task's description to empty");
 		}
 		
-		m_description = description;
+		m_store.setDescription(m_slot, description);
 	}
 	
 	/**
 	 * Sets the Task's due date
 	 * 
-	 * @param dueDate The task's new due date. 'null' indicates no due date
+	 * @param dueMillis The task's new due date in milliseconds. NO_DUE_DATE indicates no due date
 	 */
-	public void setDueDate(Calendar dueDate) {
-		m_dueDate = dueDate;
+	public void setDueMillis(long dueMillis) {
+		m_store.setDueMillis(m_slot, dueMillis);
 	}
 	
 	/**
@@ -344,7 +452,7 @@ public class Task {
 			throw new IllegalArgumentException("Cannot set task priority to null");
 		}
 		
-		m_priority = priority;
+		m_store.setPriority(m_slot, priority);
 	}
 	
 	/**
@@ -353,7 +461,7 @@ public class Task {
 	 * @param alarm The Task's new alarm date ("null" if no alarm)
 	 */
 	public void setAlarm(Alarm alarm) {
-		m_alarm = alarm;
+		m_store.setAlarm(m_slot, alarm);
 	}
 
 }
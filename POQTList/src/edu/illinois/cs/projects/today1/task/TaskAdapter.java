@@ -1,31 +1,35 @@
 package edu.illinois.cs.projects.today1.task;
 
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Calendar;
 import java.util.Collection;
-import java.util.GregorianCalendar;
-import java.util.concurrent.PriorityBlockingQueue;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-import android.graphics.Color;
-import android.text.format.DateFormat;
+import android.os.Handler;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 import android.widget.BaseAdapter;
-import android.widget.RelativeLayout;
-import android.widget.TextView;
-import edu.illinois.cs.projects.today1.POQTListConstants;
+import edu.illinois.cs.projects.today1.POQTListSettings;
 import edu.illinois.cs.projects.today1.R;
 
 /**
- * Custom adapter connecting a ListView and a PriorityBlockingQueue-backed ListAdapter extension
+ * Custom adapter connecting a ListView and a KineticTaskOrder-backed ListAdapter extension
+ * Changes are not announced one by one: every change made while handling one UI event is merged into a
+ * 	TaskChangeSet and published once, before the next frame is laid out.
+ * The UI thread never ranks Tasks: it reads them from an immutable TaskRanking, and a RankingScheduler brings the
+ * 	order up to the current time on a background thread and hands the adapter each new TaskRanking to show.
+ * 	A ranking that moves no Task only rebinds the rows whose coloring changed, found from a RowRefreshQueue of the
+ * 	times each bound row next changes color (every row is rebound when the day, and so the due date labels, change).
+ * A windowed TaskAdapter holds no Tasks itself; it reads its list through a TaskWindow, newest first, and shows a
+ * 	placeholder row for any Task whose page has not been read yet.
  * 
  * @author Kevin Today
  */
 public class TaskAdapter extends BaseAdapter {
 	// ========== Constants ==========
+	private static final long NO_ITEM_ID = Long.MIN_VALUE;	// ID of a row not loaded yet (AdapterView.INVALID_ROW_ID)
+	
 	// enumerated constant for type of TaskAdapter
 	public enum Type {
 		COLORED,
@@ -48,14 +52,57 @@ public class TaskAdapter extends BaseAdapter {
 			}
 		}
 	}
-	private final int DEFAULT_START_CAPACITY = 11;	// 11 is Java's default PriorityBlockingQueue start size
+	
+	/**
+	 * Listener told about each published TaskChangeSet
+	 */
+	public interface OnTasksChangedListener {
+		/**
+		 * Called once per published batch of changes
+		 * 
+		 * @param adapter TaskAdapter whose Tasks changed
+		 * @param changes The merged changes
+		 * @return 'true' if the listener brought every affected row up to date itself (only possible for in-place
+		 * 		changes), so the adapter need not notify its observers; 'false' otherwise
+		 */
+		boolean onTasksChanged(TaskAdapter adapter, TaskChangeSet changes);
+	}
 
 	
 	// ========== Member Variables ==========
 	private Context m_context;	// context for environment
-	private PriorityBlockingQueue<Task> m_tasks;	// priority queue containing items for the environment
+	private LayoutInflater m_inflater;	// inflates new Task rows
+	private POQTListSettings m_settings;	// cached preferences for urgency coloring
+	private DueDateFormatter m_dueDateFormatter;	// builds and caches due date labels
+	private TaskLayoutCache m_layoutCache;	// text layouts of the rows, laid out once per Task and width
+	private RowRefreshQueue m_refreshQueue;	// times at which bound rows next change color
+	private UrgencyColorTable m_colorTable;	// color table the rows were last colored from (null if none yet)
+	private int m_colorTimeWindow;	// time window the rows' color refreshes were scheduled with
+	private long m_labelDay;	// local day the due date labels were last built on
+	private KineticTaskOrder m_tasks;	// urgency-ordered Tasks for the environment (guarded by m_orderLock)
+	private TaskWindow m_window;	// window the Tasks are read through instead (null unless windowed)
 	private Type m_type;
 	
+	// ranked order shown, and the state it is checked against when a new ranking arrives
+	private final Object m_orderLock = new Object();	// guards m_tasks, m_modCount and m_orderVersion
+	private int m_modCount;	// number of additions and removals made (only changed on the UI thread)
+	private int m_orderVersion;	// number of times advancing the order moved a Task
+	private TaskRanking m_ranking;	// order shown (null if it must be read from m_tasks again)
+	
+	// changes waiting to be published
+	private Handler m_handler;	// UI thread handler changes are published on
+	private final Runnable m_publisher = new Runnable() {
+		public void run() {
+			publishChanges();
+		}
+	};
+	private boolean m_publishScheduled;	// whether unpublished changes are waiting
+	private TaskRanking m_publishedRanking;	// order as of the last publish (null if nothing is waiting)
+	private LongObjectMap<PendingChange> m_pendingChanges;	// Tasks added or removed since the last publish, by ID
+	private ArrayList<PendingChange> m_pendingOrder;	// the same changes, in the order they were first made
+	private boolean m_reordered;	// whether the whole order was re-ranked since the last publish
+	private OnTasksChangedListener m_listener;	// told about each published change set (null if none)
+	
 	
 	// ========== Constructors ==========
 	/**
@@ -71,7 +118,16 @@ public class TaskAdapter extends BaseAdapter {
 		}
 		
 		m_context = context;
-		m_tasks = new PriorityBlockingQueue<Task>(DEFAULT_START_CAPACITY, new TaskComparator(m_context));
+		m_inflater = (LayoutInflater)m_context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
+		m_settings = POQTListSettings.getInstance(m_context);
+		m_tasks = new KineticTaskOrder(m_context);
+		m_dueDateFormatter = new DueDateFormatter();
+		m_layoutCache = new TaskLayoutCache(m_context);
+		m_refreshQueue = new RowRefreshQueue();
+		m_labelDay = Long.MIN_VALUE;
+		m_handler = new Handler(m_context.getMainLooper());
+		m_pendingChanges = new LongObjectMap<PendingChange>();
+		m_pendingOrder = new ArrayList<PendingChange>();
 		
 		// sanity check for type
 		if (type == null) {
@@ -84,46 +140,72 @@ public class TaskAdapter extends BaseAdapter {
 	
 	/**
 	 * Instantiates a new TaskAdapter object with the given Tasks in it
+	 * The Tasks are loaded in bulk, in linear time if they come in rank order within their runs: dated Tasks soonest
+	 * 	due first (then by priority and ID), undated ones by ID, as TaskDBApparatus reads a loaded list. Any other order
+	 * 	is sorted first.
 	 * 
 	 * @param context The context to create the TaskAdapter in.
 	 * @param type Type of TaskAdapter to create (null defaults to UNCOLORED)
-	 * @param objects A list of objects to add to the PriorityBlockingQueue upon creation. 'null' will add nothing.
+	 * @param objects A list of objects to add to the TaskAdapter upon creation. 'null' will add nothing.
 	 */
 	public TaskAdapter(Context context, Type type, Collection<Task> objects) {
 		this(context, type);
 		
-		// add all the elements in the list
+		// build the order from all the elements in the list at once
 		if (objects != null) {
-			for (Task toAdd : objects) {
-				m_tasks.offer(toAdd);
-			}
+			m_tasks.load(objects.toArray(new Task[objects.size()]));
 		}
 	}
 	
 	/**
 	 * Instantiates a new TaskAdapter object with the given Tasks in it
+	 * The Tasks are loaded in bulk, in linear time if they come in rank order within their runs: dated Tasks soonest
+	 * 	due first (then by priority and ID), undated ones by ID, as TaskDBApparatus reads a loaded list. Any other order
+	 * 	is sorted first.
 	 * 
 	 * @param context The context to create the TaskAdapter in.
 	 * @param type Type of TaskAdapter to create (null defaults to UNCOLORED)
-	 * @param objects An array of objects to add to the PriorityBlockingQueue upon creation. 'null' will add nothing.
+	 * @param objects An array of objects to add to the TaskAdapter upon creation. 'null' will add nothing.
 	 */
 	public TaskAdapter(Context context, Type type, Task[] objects) {
 		this(context, type);
 		
-		// add all the elements in the list
+		// build the order from all the elements in the array at once
 		if (objects != null) {
-			for (Task toAdd : objects) {
-				m_tasks.offer(toAdd);
-			}
+			m_tasks.load(objects);
 		}
 	}
 
+	/**
+	 * Instantiates a windowed TaskAdapter reading the given TaskList's Tasks through the given source, so only
+	 * 	the pages of the list around the rows being shown are ever held in memory
+	 * 
+	 * @param context The Context to create the TaskAdapter in
+	 * @param type Type of TaskAdapter to create (null defaults to UNCOLORED)
+	 * @param source Source to read the list's Tasks from (non-null)
+	 * @param listID ID of the TaskList to read
+	 */
+	public TaskAdapter(Context context, Type type, TaskPageSource source, long listID) {
+		this(context, type);
+		m_window = new TaskWindow(source, listID, m_context.getMainLooper(), new TaskWindow.PageListener() {
+			public void onPageLoaded(int firstPosition, int count) {
+				publishInPlace(firstPosition, count);
+			}
+			
+			public void onListRefreshed() {
+				beginChange();
+				m_reordered = true;
+			}
+		});
+	}
+
 	
 	// ========== Member Functions ==========
 	public void print() {
 		System.out.print("[");
-		for (Task t : m_tasks) {
-			System.out.print(t.getDescription() + ", ");
+		TaskRanking ranking = findRanking();
+		for (int i = 0; i < ranking.size(); i++) {
+			System.out.print(ranking.get(i).getDescription() + ", ");
 		}
 		System.out.println("]");
 	}
@@ -131,102 +213,103 @@ public class TaskAdapter extends BaseAdapter {
 	
 	@Override
 	/**
-	 * Counts the number of items in the PriorityBlockingQueue
+	 * Counts the number of items in the TaskAdapter
 	 * 
-	 * @return The size of the PriorityBlockingQueue
+	 * @return The size of the TaskAdapter
 	 */
 	public int getCount() {
-		return m_tasks.size();
+		if (m_window != null) {
+			return m_window.size();
+		}
+		return findRanking().size();
 	}
 
 	@Override
 	/**
-	 * Gets the Task at the given index in the queue
+	 * Gets the Task at the given index in the sorted list
 	 * 
 	 * @param position Index within the adapter of the desired object
-	 * @return The Task at the given position (null if the Task could not be found)
+	 * @return The Task at the given position (null if the Task could not be found or is not loaded yet)
 	 */
 	public Object getItem(int position) {
 		// sanity check; return null if invalid position
-		if (position < 0 || position >= m_tasks.size()) {
+		if (position < 0 || position >= getCount()) {
 			return null;
 		}
 		
-		// !!! THIS IS AN INEFFICIENT WAY TO GET ITEMS AT LOCATION! USE MORE EFFICIENT !!!
-		// make queue into sorted array and return Task at "position"
-		Task[] taskArray = new Task[m_tasks.size()];
-		m_tasks.toArray(taskArray);
-		Arrays.sort(taskArray, new TaskComparator(m_context));
-		return taskArray[position];
+		if (m_window != null) {
+			return m_window.get(position);
+		}
+		return findRanking().get(position);
 	}
 
 	@Override
 	/**
-	 * Returns the ID of the Task at 'position' in the queue
+	 * Tells observers that a Task's ID follows it wherever it moves in the list
 	 * 
-	 * @return The ID of the Task at 'position'
+	 * @return 'true', since IDs are Task IDs
+	 */
+	public boolean hasStableIds() {
+		return true;
+	}
+
+	@Override
+	/**
+	 * Returns the ID of the Task at 'position' in the sorted list
+	 * 
+	 * @return The ID of the Task at 'position' (NO_ITEM_ID if it is not loaded yet)
 	 */
 	public long getItemId(int position) {
-		return ((Task)getItem(position)).getID();
+		Task task = (Task)getItem(position);
+		return (task == null) ? NO_ITEM_ID : task.getID();
 	}
 
 	@Override
 	/**
-	 * Creates a View representation of a Task object from the R.layout.task.xml file
+	 * Creates a TaskRowView representation of a Task object from the R.layout.task.xml file
 	 * 
-	 * @param position The index in the PriorityBlockingQueue that the given object is at
+	 * @param position The index in the TaskAdapter that the given object is at
 	 * @param convertView A pre-existing View for the given Task if it exists; 'null' otherwise
-	 * @param parent The ViewGroup to assign the newly-created View hierarchy to. Unused
+	 * @param parent The ViewGroup the row will be attached to, used for the row's layout parameters
 	 */
 	public View getView(int position, View convertView, ViewGroup parent) {
         Task taskObject = (Task) getItem(position);	// gets the Task object for the given position
-        RelativeLayout taskView = (RelativeLayout)convertView;	// layout to add objects to
+        TaskRowView taskView = (TaskRowView)convertView;	// row to bind the Task to
         
-        // inflate the XML into objects
+        // inflate the XML into a row only if there is none to recycle
         if (taskView == null) {
-        	LayoutInflater inflater = (LayoutInflater) m_context.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
-        	taskView = (RelativeLayout)inflater.inflate(R.layout.task, null);
+        	taskView = (TaskRowView)m_inflater.inflate(R.layout.task, parent, false);
         }
-
-        // get the newly-inflated TextView objects by their XML id
-        TextView descriptionView = (TextView) taskView.findViewById(R.id.textview_task_description);
-        TextView dueDateView = (TextView) taskView.findViewById(R.id.textview_task_duedate);
         
-        // set views as "selected" to initiate marquee scroll
-        descriptionView.setSelected(true);
-        dueDateView.setSelected(true);
-        
-        //Assign the appropriate data from task object above
-        descriptionView.setText(taskObject.getDescription());
-        
-        Calendar temp_due_date = taskObject.getDueDate();
-        // if no due date, hide due date display
-        if (temp_due_date == null) {
-        	dueDateView.setVisibility(View.GONE);
+        // a row whose page has not arrived shows a placeholder until it does
+        if (taskObject == null) {
+        	taskView.bindPlaceholder(m_layoutCache);
+        	taskView.bindColors(0xFFC0C0C0, 0xFFC0C0C0, 0);
+        	return taskView;
         }
-        // otherwise, parse due date into appropriate display string
-        else {
-        	String dateDisplay = findDueDateString(temp_due_date);
-        	dueDateView.setVisibility(View.VISIBLE);
-        	dueDateView.setText(dateDisplay);
+        
+        // if no due date, draw no due date line; otherwise, parse due date into appropriate display string
+        String dueLabel = null;
+        if (taskObject.hasDueDate()) {
+        	dueLabel = m_dueDateFormatter.format(taskObject.getDueMillis(), findRanking().getRankingTime());
         }
+        taskView.bindTask(m_layoutCache, taskObject, dueLabel);
         
         // color View based on TaskAdapter type, Task urgency, and user settings
         if (m_type == Type.COLORED) {
-        	scaleViewColors(taskView, descriptionView, dueDateView, taskObject);
+        	scaleViewColors(taskView, taskObject);
         }
         else if (m_type == Type.UNCOLORED) {
-        	descriptionView.setTextColor(0xFFFFFFFF);	// default uncolored main text to white
-        	dueDateView.setTextColor(0xFFC0C0C0);		// default uncolored subtext to light gray
+        	taskView.bindColors(0xFFFFFFFF, 0xFFC0C0C0, 0);	// default uncolored main text to white, subtext to light gray, no background
         }
  
         return taskView;
 	}
 	
 	
-	// ========== Queue Functions ==========
+	// ========== List Functions ==========
 	/**
-	 * Offers the given Task to the TaskAdapter, which sorts it according to due date
+	 * Offers the given Task to the TaskAdapter, which sorts it according to urgency
 	 * 
 	 * @param addition The Task object to add (non-null)
 	 */
@@ -235,12 +318,22 @@ public class TaskAdapter extends BaseAdapter {
 			throw new IllegalArgumentException("Cannot add null Task");
 		}
 		
-		m_tasks.offer(addition);
-		notifyDataSetChanged();
+		if (m_window != null) {
+			// the new row's position is only known to the database, so the window is read afresh and republished
+			m_window.invalidate();
+			return;
+		}
+		
+		beginChange();
+		if (addToOrder(addition)) {
+			recordChange(addition, true);
+		}
 	}
 	
 	/**
 	 * Removes the given Task object from the TaskAdapter
+	 * NOTE: A windowed TaskAdapter cannot tell whether an unloaded page holds the Task, so it is only told about
+	 * 	Tasks whose membership in its list changed; it reads its window afresh and always reports the removal
 	 * 
 	 * @param elimination The Task object to remove (non-null)
 	 * @return 'true' if the element was in the TaskAdapter; 'false' if not
@@ -250,17 +343,115 @@ public class TaskAdapter extends BaseAdapter {
 			throw new IllegalArgumentException("Cannot remove null Task");
 		}
 		
-		boolean returnValue = m_tasks.remove(elimination);
-		notifyDataSetChanged();
+		if (m_window != null) {
+			// the count and every page past the Task's row are stale, whether or not its own page is loaded
+			m_window.invalidate();
+			return true;
+		}
+		
+		beginChange();
+		boolean returnValue;
+		synchronized (m_orderLock) {
+			returnValue = m_tasks.remove(elimination);
+			if (returnValue) {
+				m_modCount++;
+			}
+		}
+		if (returnValue) {
+			m_ranking = null;
+			recordChange(elimination, false);
+		}
 		return returnValue;
 	}
 	
+	/**
+	 * Checks if the given Task is in the TaskAdapter
+	 * NOTE: A windowed TaskAdapter only knows about the Tasks in its loaded pages
+	 * 
+	 * @param task The Task object to look for
+	 * @return 'true' if the element is in the TaskAdapter; 'false' if not
+	 */
+	public boolean contains(Task task) {
+		if (m_window != null) {
+			return m_window.containsLoaded(task);
+		}
+		synchronized (m_orderLock) {
+			return m_tasks.contains(task);
+		}
+	}
+	
+	/**
+	 * Stops any background reading of a windowed TaskAdapter and drops its loaded pages
+	 */
+	public void close() {
+		if (m_window != null) {
+			m_window.close();
+		}
+	}
+	
+	/**
+	 * Brings the order up to the given time, since Task urgency drifts as time passes, and snapshots it
+	 * NOTE: Called on the RankingScheduler's thread, while the UI thread may be growing or filling the TaskStore
+	 * 	behind the Tasks, so nothing here reads the store: the order ranks on due dates it copied in on the UI
+	 * 	thread when each Task was added, and the snapshot only reads Task IDs, which are fixed at construction
+	 * 
+	 * @param now Time in milliseconds the order should reflect
+	 * @return The order at the given time
+	 */
+	TaskRanking rankAt(long now) {
+		synchronized (m_orderLock) {
+			if (m_tasks.advance(now)) {
+				m_orderVersion++;
+			}
+			return snapshotOrder();
+		}
+	}
+	
+	/**
+	 * Shows an order ranked by rankAt(), publishing a reorder if any Task moved or otherwise rebinding in place the
+	 * 	rows whose due date labels or colors changed since they were bound
+	 * NOTE: Called on the UI thread
+	 * 
+	 * @param ranking The order to show
+	 * @return 'true' if the ranking was shown (or was already superseded); 'false' if Tasks were added or removed
+	 * 		since it was ranked, so it is stale and must be ranked again
+	 */
+	boolean applyRanking(TaskRanking ranking) {
+		if (ranking.getModCount() != m_modCount) {
+			return false;
+		}
+		
+		TaskRanking shown = findRanking();
+		if (ranking.getOrderVersion() < shown.getOrderVersion() || ranking.getRankingTime() < shown.getRankingTime()) {
+			return true;
+		}
+		if (ranking.getOrderVersion() != shown.getOrderVersion()) {
+			// every row is rebound after a reorder, picking up the day's labels
+			beginChange();
+			m_ranking = ranking;
+			m_reordered = true;
+			m_labelDay = m_dueDateFormatter.findDay(ranking.getRankingTime());
+		}
+		else {
+			m_ranking = ranking;
+			publishDueRows(ranking);
+		}
+		return true;
+	}
+	
 	
 	// ========== Getter Functions ==========
 	public Type getType() {
 		return m_type;
 	}
 	
+	/**
+	 * @return 'true' if the TaskAdapter reads its Tasks through a window rather than holding them
+	 */
+	public boolean isWindowed() {
+		return m_window != null;
+	}
+	
 	
 	// ========== Setter Functions ==========
 	public void setType(TaskAdapter.Type newType) {
@@ -270,242 +461,327 @@ public class TaskAdapter extends BaseAdapter {
 		}
 		m_type = newType;
 	}
+	
+	/**
+	 * Sets the listener told about each published TaskChangeSet
+	 * 
+	 * @param listener Listener to tell (null for none)
+	 */
+	public void setOnTasksChangedListener(OnTasksChangedListener listener) {
+		m_listener = listener;
+	}
 
 
 	// ========== Helper Functions ==========
 	/**
-	 * Based on the user's preferences and a Task's urgency, scales the coloring of a View representing a Task object
-	 * 	to reflect its urgency
+	 * Based on the user's preferences and a Task's urgency, colors a View representing a Task object to reflect
+	 * 	its urgency, using the precomputed UrgencyColorTable
 	 * 
-	 * NOTE: Cutoffs should never be the same! (e.g. "mid" and "high" urgency cannot both have the cutoff "10" or a
-	 * 	divide-by-zero error will occur)
-	 * 
-	 * @param backgroundView The View objects to change the background color for
-	 * @param mainTextView The TextView objects to change the main text color for
-	 * @param subTextView TextView to apply the subtext color scaling to
+	 * @param row The row whose background, main text, and subtext to color
 	 * @param task The Task object upon whose urgency coloring is based
 	 */
-	private void scaleViewColors(View backgroundView, TextView mainTextView, TextView subTextView, Task task) {
-       	SharedPreferences preferences = m_context.getSharedPreferences(POQTListConstants.PREFERENCES_FILEPATH, m_context.MODE_PRIVATE);
-    	int urgencyScale = preferences.getInt(POQTListConstants.PREF_KEY_URGENCY_SCALE, POQTListConstants.DEFAULT_URGENCY_SCALE);
-    	
-    	// percents of urgency scale where "mid" and "high" urgencies start
-    	double midUrgencyWeight = (double)preferences.getFloat(POQTListConstants.PREF_KEY_MID_URGENCY_WEIGHT, POQTListConstants.DEFAULT_MID_URGENCY_WEIGHT);
-    	double highUrgencyWeight = (double)preferences.getFloat(POQTListConstants.PREF_KEY_HIGH_URGENCY_WEIGHT, POQTListConstants.DEFAULT_HIGH_URGENCY_WEIGHT);
-    	
-    	// values on urgency scale where "mid" and "high" urgencies start
-    	int midUrgencyCutoff = (int)(midUrgencyWeight * ((double)urgencyScale));
-    	int highUrgencyCutoff = (int)(highUrgencyWeight * ((double)urgencyScale));
-    	
-    	int taskUrgency = task.findUrgencyScore(m_context);
-    	int backgroundColor;
-    	int mainTextColor;
-    	int subTextColor;
-    	
-    	// if Task has no urgency, give Task "no urgency" coloring
-    	if (taskUrgency < 0) {
-    		backgroundColor = preferences.getInt(POQTListConstants.PREF_KEY_NO_URGNCY_BKGRND_COLR, POQTListConstants.DEFAULT_NO_URGENCY_BKGRND_COLOR);
-    		mainTextColor = preferences.getInt(POQTListConstants.PREF_KEY_NO_URGNCY_TEXT_COLR, POQTListConstants.DEFAULT_NO_URGENCY_TEXT_COLOR);
-    		subTextColor = preferences.getInt(POQTListConstants.PREF_KEY_NO_URGNCY_SUBTEXT_COLR, POQTListConstants.DEFAULT_NO_URGENCY_SUBTEXT_COLOR);
-    	}
-    	// if Task has some urgency value but less than "mid" urgency, give Task "low" urgency coloring
-    	// 	coloring is scaled based on distance to "mid" urgency cutoff
-    	else if (taskUrgency >= 0 && taskUrgency < midUrgencyCutoff) {
-    		// calculate a percentage representing how close to the midUrgencyCutoff the Task's urgency is
-    		double scaleFactor = ((double)taskUrgency) / ((double)midUrgencyCutoff);
-    		
-    		// find scaled background color
-    		int lowUrgencyBkgrndColor = preferences.getInt(POQTListConstants.PREF_KEY_LOW_URGNCY_BKGRND_COLR, POQTListConstants.DEFAULT_LOW_URGENCY_BKGRND_COLOR);
-    		int midUrgencyBkgrndColor = preferences.getInt(POQTListConstants.PREF_KEY_MID_URGNCY_BKGRND_COLR, POQTListConstants.DEFAULT_MID_URGENCY_BKGRND_COLOR);
-    		backgroundColor = findScaledColor(lowUrgencyBkgrndColor, midUrgencyBkgrndColor, scaleFactor);
-    	
-    		// find scaled text color
-    		int lowUrgencyTextColor = preferences.getInt(POQTListConstants.PREF_KEY_LOW_URGNCY_TEXT_COLR, POQTListConstants.DEFAULT_LOW_URGENCY_TEXT_COLOR);
-    		int midUrgencyTextColor = preferences.getInt(POQTListConstants.PREF_KEY_MID_URGNCY_TEXT_COLR, POQTListConstants.DEFAULT_MID_URGENCY_TEXT_COLOR);
-    		mainTextColor = findScaledColor(lowUrgencyTextColor, midUrgencyTextColor, scaleFactor);
-    		
-    		// find scaled subtext color
-    		int lowUrgencySubTextColor = preferences.getInt(POQTListConstants.PREF_KEY_LOW_URGNCY_SUBTEXT_COLR, POQTListConstants.DEFAULT_LOW_URGENCY_SUBTEXT_COLOR);
-    		int midUrgencySubTextColor = preferences.getInt(POQTListConstants.PREF_KEY_MID_URGNCY_SUBTEXT_COLR, POQTListConstants.DEFAULT_MID_URGENCY_SUBTEXT_COLOR);
-    		subTextColor = findScaledColor(lowUrgencySubTextColor, midUrgencySubTextColor, scaleFactor);
-    	}
-    	// if Task has urgency between "mid" urgency (inclusive) and "high" urgency (exclusive), give Task "mid" urgency
-    	// 	coloring, scaled based on distance to "high" urgency cutoff
-    	else if (taskUrgency >= midUrgencyCutoff && taskUrgency < highUrgencyCutoff) {
-    		// calculate percentage representing how close to highUrgencyCutoff Task's urgency is
-    		double scaleFactor = ((double)(taskUrgency - midUrgencyCutoff)) / ((double)(highUrgencyCutoff - midUrgencyCutoff));
-    		
-    		// find scaled background color and color View backgrounds
-    		int midUrgencyBkgrndColor = preferences.getInt(POQTListConstants.PREF_KEY_MID_URGNCY_BKGRND_COLR, POQTListConstants.DEFAULT_MID_URGENCY_BKGRND_COLOR);
-    		int highUrgencyBkgrndColor = preferences.getInt(POQTListConstants.PREF_KEY_HI_URGNCY_BKGRND_COLR, POQTListConstants.DEFAULT_HIGH_URGENCY_BKGRND_COLOR);
-    		backgroundColor = findScaledColor(midUrgencyBkgrndColor, highUrgencyBkgrndColor, scaleFactor);
-    	
-    		// find scaled text color and color TextView text
-    		int midUrgencyTextColor = preferences.getInt(POQTListConstants.PREF_KEY_MID_URGNCY_TEXT_COLR, POQTListConstants.DEFAULT_MID_URGENCY_TEXT_COLOR);
-    		int highUrgencyTextColor = preferences.getInt(POQTListConstants.PREF_KEY_HI_URGNCY_TEXT_COLR, POQTListConstants.DEFAULT_HIGH_URGENCY_TEXT_COLOR);
-    		mainTextColor = findScaledColor(midUrgencyTextColor, highUrgencyTextColor, scaleFactor);
-    		
-    		// find scaled subtext color
-    		int lowUrgencySubTextColor = preferences.getInt(POQTListConstants.PREF_KEY_MID_URGNCY_SUBTEXT_COLR, POQTListConstants.DEFAULT_MID_URGENCY_SUBTEXT_COLOR);
-    		int midUrgencySubTextColor = preferences.getInt(POQTListConstants.PREF_KEY_HI_URGNCY_SUBTEXT_COLR, POQTListConstants.DEFAULT_HIGH_URGENCY_SUBTEXT_COLOR);
-    		subTextColor = findScaledColor(lowUrgencySubTextColor, midUrgencySubTextColor, scaleFactor);
-    	}
-    	// if Task has urgency between "high" urgency (inclusive) and "overdue" (exclusive), give Task "high" urgency
-    	// 	coloring, scaled based on distance to "overdue" cutoff
-    	else if (taskUrgency >= highUrgencyCutoff && taskUrgency < urgencyScale) {
-    		// calculate percentage representing how close to overdueCutoff Task's urgency is
-    		double scaleFactor = ((double)(taskUrgency - highUrgencyCutoff)) / ((double)(urgencyScale - highUrgencyCutoff));
-    		
-    		// find scaled background color and color View backgrounds
-    		int highUrgencyBkgrndColor = preferences.getInt(POQTListConstants.PREF_KEY_HI_URGNCY_BKGRND_COLR, POQTListConstants.DEFAULT_HIGH_URGENCY_BKGRND_COLOR);
-    		int overdueBkgrndColor = preferences.getInt(POQTListConstants.PREF_KEY_DUE_BKGRND_COLR, POQTListConstants.DEFAULT_DUE_BKGRND_COLOR);
-    		backgroundColor = findScaledColor(highUrgencyBkgrndColor, overdueBkgrndColor, scaleFactor);
-    	
-    		// find scaled text color and color TextView text
-    		int highUrgencyTextColor = preferences.getInt(POQTListConstants.PREF_KEY_HI_URGNCY_TEXT_COLR, POQTListConstants.DEFAULT_HIGH_URGENCY_TEXT_COLOR);
-    		int overdueTextColor = preferences.getInt(POQTListConstants.PREF_KEY_DUE_TEXT_COLR, POQTListConstants.DEFAULT_DUE_TEXT_COLOR);
-    		mainTextColor = findScaledColor(highUrgencyTextColor, overdueTextColor, scaleFactor);
-    		
-    		// find scaled subtext color
-    		int lowUrgencySubTextColor = preferences.getInt(POQTListConstants.PREF_KEY_HI_URGNCY_SUBTEXT_COLR, POQTListConstants.DEFAULT_HIGH_URGENCY_SUBTEXT_COLOR);
-    		int midUrgencySubTextColor = preferences.getInt(POQTListConstants.PREF_KEY_DUE_SUBTEXT_COLR, POQTListConstants.DEFAULT_DUE_SUBTEXT_COLOR);
-    		subTextColor = findScaledColor(lowUrgencySubTextColor, midUrgencySubTextColor, scaleFactor);
-    	}
-    	// if Task is overdue, give Task "overdue" coloring
-    	else {
-    		backgroundColor = preferences.getInt(POQTListConstants.PREF_KEY_OVERDUE_BKGRND_COLR, POQTListConstants.DEFAULT_OVERDUE_BKGRND_COLOR);
-    		mainTextColor = preferences.getInt(POQTListConstants.PREF_KEY_OVERDUE_TEXT_COLR, POQTListConstants.DEFAULT_OVERDUE_TEXT_COLOR);
-    		subTextColor = preferences.getInt(POQTListConstants.PREF_KEY_OVERDUE_SUBTEXT_COLR, POQTListConstants.DEFAULT_OVERDUE_SUBTEXT_COLOR);
-    	}
-    	
+	private void scaleViewColors(TaskRowView row, Task task) {
+		UrgencyColorTable colorTable = UrgencyColorTable.getInstance(m_settings);
+		if (colorTable != m_colorTable || m_colorTimeWindow != m_settings.timeWindow) {
+			// new colors recolor every row, so refreshes scheduled from the old table no longer apply; a rebuilt
+			// 	table holding the same colors leaves them standing
+			if (!isColoredLike(colorTable)) {
+				m_refreshQueue.clear();
+			}
+			m_colorTable = colorTable;
+			m_colorTimeWindow = m_settings.timeWindow;
+		}
+		
+		// color on the same ranking time the list was ordered on so colors agree with positions
+		int entry = colorTable.findEntry(task.findUrgencyScore(m_settings, findRanking().getRankingTime()));
+		
 		// color views
-    	mainTextView.setTextColor(mainTextColor);
-    	subTextView.setTextColor(subTextColor);
-    	backgroundView.setBackgroundColor(backgroundColor);
+		row.bindColors(colorTable.getTextColor(entry), colorTable.getSubTextColor(entry), colorTable.getBackgroundColor(entry));
+		
+		// a dated Task's score climbs as its due date nears, so its row is refreshed once its color next changes
+		if (task.hasDueDate()) {
+			int nextEntry = colorTable.findNextDistinctEntry(entry);
+			long refreshTime = Long.MAX_VALUE;
+			if (nextEntry != -1) {
+				refreshTime = Task.findDatedScoreTime(task.getDueMillis(), colorTable.findLowestScore(nextEntry), m_settings.timeWindow, m_settings.urgencyScale);
+			}
+			m_refreshQueue.schedule(task.getID(), refreshTime);
+		}
+	}
+	
+	/**
+	 * Checks whether the rows were colored, and their refreshes scheduled, as the given table and the current time
+	 * 	window would color them
+	 * 
+	 * @param colorTable The up-to-date color table
+	 * @return 'true' if no bound row needs recoloring for the table; 'false' otherwise
+	 */
+	private boolean isColoredLike(UrgencyColorTable colorTable) {
+		return m_colorTable != null && m_colorTable.hasSameColors(colorTable) && m_colorTimeWindow == m_settings.timeWindow;
+	}
+	
+	/**
+	 * Gets the order shown, reading it from the KineticTaskOrder if a change made the last one stale
+	 * 
+	 * @return The order shown
+	 */
+	private TaskRanking findRanking() {
+		if (m_ranking == null) {
+			synchronized (m_orderLock) {
+				m_ranking = snapshotOrder();
+			}
+		}
+		return m_ranking;
+	}
+	
+	/**
+	 * Copies the KineticTaskOrder's current order into a TaskRanking
+	 * NOTE: Must be called holding m_orderLock
+	 */
+	private TaskRanking snapshotOrder() {
+		int size = m_tasks.size();
+		Task[] tasks = new Task[size];
+		long[] ids = new long[size];
+		for (int i = 0; i < size; i++) {
+			tasks[i] = m_tasks.get(i);
+			ids[i] = tasks[i].getID();
+		}
+		return new TaskRanking(tasks, ids, m_tasks.getRankingTime(), m_modCount, m_orderVersion);
 	}
 	
 	/**
-	 * Finds a color int at a percent of the RGB-distance between two colors
+	 * Adds the given Task to the KineticTaskOrder, making the shown order stale if it was not already present
 	 * 
-	 * @param startColor The starting color (0% RGB-distance)
-	 * @param endColor The ending color (100% RGB-distance)
-	 * @param scaleWeight Percent of RGB-distance between startColor and endColor the new color should be
-	 * @return An int 
+	 * @param addition The Task to add
+	 * @return 'true' if the Task was added; 'false' if it was already present
 	 */
-	private int findScaledColor(int startColor, int endColor, double scaleWeight) {
-		// get starting red, green, and blue values
-		int startRed = Color.red(startColor);
-		int startGreen = Color.green(startColor);
-		int startBlue = Color.blue(startColor);
+	private boolean addToOrder(Task addition) {
+		boolean added;
+		synchronized (m_orderLock) {
+			added = m_tasks.add(addition);
+			if (added) {
+				m_modCount++;
+			}
+		}
+		if (added) {
+			m_ranking = null;
+		}
+		return added;
+	}
+	
+	/**
+	 * Prepares for a change to the Tasks; the first change since the last publish keeps the shown order to compare
+	 * 	against and schedules the next publish
+	 * NOTE: Must be called before the Tasks are modified
+	 */
+	private void beginChange() {
+		if (m_publishScheduled) {
+			return;
+		}
 		
-		// get red, green, and blue difference between endColor and startColor
-		int diffRed = Color.red(endColor) - startRed;
-		int diffGreen = Color.green(endColor) - startGreen;
-		int diffBlue = Color.blue(endColor) - startBlue;
+		m_publishedRanking = findRanking();
 		
-		// find red, green, and blue components of the desired color
-		int newRed = startRed + (int)(scaleWeight * ((double) diffRed));
-		int newGreen = startGreen + (int)(scaleWeight * ((double) diffGreen));
-		int newBlue = startBlue + (int)(scaleWeight * ((double) diffBlue));
-
-		// create and return new color int
-		return Color.rgb(newRed, newGreen, newBlue);
+		// the front of the queue runs as soon as the current event is handled, ahead of the next layout pass
+		m_publishScheduled = true;
+		m_handler.postAtFrontOfQueue(m_publisher);
 	}
 	
 	/**
-	 * Helper function to get a string representing the given due date
+	 * Records that the given Task was added or removed, merging it with any earlier change to the same Task
 	 * 
-	 * @param dueDate Calendar object to represent
-	 * @return String representing due date
+	 * @param task Task that changed
+	 * @param present 'true' if the Task is now in the adapter; 'false' if it was removed
 	 */
-	private static String findDueDateString(Calendar dueDate) {
-		// sanity check
-		if (dueDate == null) {
-			return null;
+	private void recordChange(Task task, boolean present) {
+		PendingChange change = m_pendingChanges.get(task.getID());
+		if (change == null) {
+			change = new PendingChange(task);
+			m_pendingChanges.put(task.getID(), change);
+			m_pendingOrder.add(change);
 		}
+		change.task = task;
+		change.present = present;
+	}
+	
+	/**
+	 * Publishes a run of rows whose contents changed without any row moving (a windowed TaskAdapter's page
+	 * 	arriving, or the time a ranking was made at moving on), so they can be rebound in place
+	 * 
+	 * @param firstPosition Position of the run's first row
+	 * @param count Number of rows in the run
+	 */
+	private void publishInPlace(int firstPosition, int count) {
+		int[] positions = new int[count];
+		for (int i = 0; i < count; i++) {
+			positions[i] = firstPosition + i;
+		}
+		publishInPlace(positions);
+	}
+	
+	/**
+	 * Publishes rows whose contents changed without any row moving, so they can be rebound in place
+	 * 
+	 * @param positions Positions of the changed rows, in ascending order
+	 */
+	private void publishInPlace(int[] positions) {
+		int[] none = new int[0];
+		TaskChangeSet changes = new TaskChangeSet(none, none, none, none, positions, false);
 		
-		// parts of final string to fill out
-		String dateString = "";
-		String timeString = "";
-		String yearString = "";	
-		
-		// format date
-		Calendar today = Calendar.getInstance();
-		int daysDifference = daysDifference(today, dueDate);
-		if (daysDifference == 0) {
-    		dateString = "Today";
+		boolean handled = (m_listener != null) && m_listener.onTasksChanged(this, changes);
+		if (!handled) {
+			notifyDataSetChanged();
 		}
-		else if (daysDifference == -1) {
-    		dateString = "Yesterday";
+	}
+	
+	/**
+	 * Publishes the rows of the given ranking whose look changed since they were bound: every row if the day or the
+	 * 	color settings changed, or otherwise just the rows whose scheduled color refresh has come up
+	 * 
+	 * @param ranking The order shown, which no Task moved in
+	 */
+	private void publishDueRows(TaskRanking ranking) {
+		long rankingTime = ranking.getRankingTime();
+		long day = m_dueDateFormatter.findDay(rankingTime);
+		boolean recolored = (m_type == Type.COLORED) && m_colorTable != null && !isColoredLike(UrgencyColorTable.getInstance(m_settings));
+		if (day != m_labelDay || recolored) {
+			m_labelDay = day;
+			m_refreshQueue.clear();
+			publishInPlace(0, ranking.size());
+			return;
 		}
-		else if (daysDifference == 1) {
-    		dateString = "Tomorrow";
+		
+		LongObjectMap<RowRefreshQueue.Refresh> due = m_refreshQueue.pollDue(rankingTime);
+		if (due == null) {
+			return;
 		}
-		// use "last ________" format
-		else if (daysDifference < -1 && daysDifference > -7) {
-			dateString = "Last " + DateFormat.format("EEEE", dueDate);
+		int[] positions = new int[due.size()];
+		int count = 0;
+		for (int i = 0; i < ranking.size() && count < positions.length; i++) {
+			if (due.get(ranking.getID(i)) != null) {
+				positions[count++] = i;
+			}
 		}
-		// if upcoming Monday, Tuesday, etc., use plain name
-		else if (daysDifference > 1 && daysDifference < 7) {
-			dateString = (String)DateFormat.format("EEEE", dueDate);
+		if (count < positions.length) {
+			int[] shown = new int[count];
+			System.arraycopy(positions, 0, shown, 0, count);
+			positions = shown;
 		}
-		// otherwise, use "month date" form
-		else {
-			dateString = (String)DateFormat.format("MMM d", dueDate);
+		if (count > 0) {
+			publishInPlace(positions);
 		}
-		
-		// format time
-		timeString = (String)DateFormat.format("h:mm aa", dueDate);
-		
-		// format year (if due in year other than current year)
-		if (today.get(Calendar.YEAR) != dueDate.get(Calendar.YEAR)) {
-			yearString = ", " + dueDate.get(Calendar.YEAR);
+	}
+	
+	/**
+	 * Merges the changes made since the last publish into a TaskChangeSet and hands it to the listener, notifying
+	 * 	observers unless the listener rebound the affected rows itself
+	 */
+	private void publishChanges() {
+		m_publishScheduled = false;
+		TaskChangeSet changes = buildChangeSet();
+		if (changes.isEmpty()) {
+			return;
 		}
 		
-		return dateString + yearString + " at " + timeString;
+		boolean handled = (m_listener != null) && m_listener.onTasksChanged(this, changes);
+		if (!handled) {
+			notifyDataSetChanged();
+		}
 	}
 	
 	/**
-	 * Helper function to find the difference in days between the given dates (ignores hours/minutes/seconds!)
+	 * Builds the TaskChangeSet taking the order as of the last publish to the order shown now, and clears the
+	 * 	pending changes
 	 * 
-	 * @param date1 Date to start on
-	 * @param date2 Date to end at
-	 * @return Number of days difference between start and end date or +/-20; whichever comes first
+	 * @return The merged changes
 	 */
-	private static int daysDifference(Calendar date1, Calendar date2) {
-		// equality check
-		boolean datesEqual = date1.get(Calendar.YEAR) == date2.get(Calendar.YEAR)
-			&& date1.get(Calendar.MONTH) == date2.get(Calendar.MONTH)
-			&& date1.get(Calendar.DATE) == date2.get(Calendar.DATE);
-		if (datesEqual) {
-			return 0;
+	private TaskChangeSet buildChangeSet() {
+		// find where each changed Task stood before and where it stands now
+		TaskRanking before = m_publishedRanking;
+		TaskRanking after = findRanking();
+		for (int i = 0; i < before.size(); i++) {
+			PendingChange change = m_pendingChanges.get(before.getID(i));
+			if (change != null) {
+				change.from = i;
+			}
 		}
-		
-		int targetYear = date2.get(Calendar.YEAR);
-		int targetMonth = date2.get(Calendar.MONTH);
-		int targetDay = date2.get(Calendar.DATE);
-		
-		// set variables pertaining for counting
-		int daysDifference = 0;		// counter to keep track of difference in days
-		Calendar modifyDate = (Calendar)date1.clone();
-		boolean incrementForward = date1.before(date2);		// assign proper direction to count;
-		int diffIncrAmount;
-		if (incrementForward) {
-			diffIncrAmount = 1;
+		for (int i = 0; i < after.size(); i++) {
+			PendingChange change = m_pendingChanges.get(after.getID(i));
+			if (change != null) {
+				change.to = i;
+			}
 		}
-		else {
-			diffIncrAmount = -1;
+		int inserted = 0;
+		int removed = 0;
+		int moved = 0;
+		int changed = 0;
+		for (PendingChange change : m_pendingOrder) {
+			if (change.from == -1 && change.to != -1) {
+				inserted++;
+			}
+			else if (change.from != -1 && change.to == -1) {
+				removed++;
+			}
+			else if (change.from != change.to) {
+				moved++;
+			}
+			else if (change.from != -1) {
+				changed++;
+			}
 		}
 		
-		// count days difference either up or down while moving current date towards target date
-		while (Math.abs(daysDifference) < 20 
-				&& !(modifyDate.get(Calendar.DATE) == targetDay 
-				&& modifyDate.get(Calendar.MONTH) == targetMonth
-				&& modifyDate.get(Calendar.YEAR) == targetYear)) {
-			daysDifference += diffIncrAmount;
-			modifyDate.roll(Calendar.DATE, incrementForward);
+		// a Task back at its old index only kept its place if no other row moved; otherwise it counts as a move
+		boolean inPlace = (inserted == 0 && removed == 0 && moved == 0);
+		if (!inPlace) {
+			moved += changed;
+			changed = 0;
+		}
+		
+		int[] insertedPositions = new int[inserted];
+		int[] removedPositions = new int[removed];
+		int[] movedFrom = new int[moved];
+		int[] movedTo = new int[moved];
+		int[] changedPositions = new int[changed];
+		inserted = removed = moved = changed = 0;
+		for (PendingChange change : m_pendingOrder) {
+			if (change.from == -1 && change.to != -1) {
+				insertedPositions[inserted++] = change.to;
+			}
+			else if (change.from != -1 && change.to == -1) {
+				removedPositions[removed++] = change.from;
+			}
+			else if (change.from != -1 && inPlace) {
+				changedPositions[changed++] = change.to;
+			}
+			else if (change.from != -1) {
+				movedFrom[moved] = change.from;
+				movedTo[moved++] = change.to;
+			}
 		}
+		Arrays.sort(insertedPositions);
+		Arrays.sort(removedPositions);
+		Arrays.sort(changedPositions);
+		
+		TaskChangeSet changes = new TaskChangeSet(insertedPositions, removedPositions, movedFrom, movedTo, changedPositions, m_reordered);
+		m_pendingChanges.clear();
+		m_pendingOrder.clear();
+		m_reordered = false;
+		m_publishedRanking = null;
+		return changes;
+	}
+	
+	
+	// ========== Inner Classes ==========
+	/**
+	 * Unpublished change to one Task
+	 */
+	private static class PendingChange {
+		Task task;			// the changed Task
+		boolean present;	// whether the Task is in the adapter after the change
+		int from = -1;		// position before the pending changes (-1 if absent)
+		int to = -1;		// position after the pending changes (-1 if absent)
 		
-		return daysDifference;
+		PendingChange(Task task) {
+			this.task = task;
+		}
 	}
 }
@@ -1,10 +1,11 @@
 package edu.illinois.cs.projects.today1.task;
 
 import java.util.ArrayList;
-import java.util.Calendar;
 
 import android.content.Context;
 import android.os.Bundle;
+import android.os.Looper;
+import android.os.MessageQueue;
 import android.util.Log;
 import android.widget.Toast;
 import edu.illinois.cs.projects.today1.POQTListConstants;
@@ -15,6 +16,13 @@ import edu.illinois.cs.projects.today1.main.TaskActivity;
 /**
  * Manager class to oversee all Task operations for a main TaskList, completed TaskList, and
  * 	a set of custom TaskLists
+ * The completed TaskList is windowed: its Tasks stay in the database and are read a page at a time, so they are
+ * 	neither indexed nor tracked in memberships.
+ * Lists are displayed in a ring ({"completed"  "main"  custom lists...}) in which every TaskList knows its own
+ * 	position, so cycling to a neighbour or jumping to any list takes constant time.
+ * Custom TaskLists start out as descriptors; a custom list's adapter is only loaded when the list is shown or is
+ * 	one swipe away from the list shown, and adapters far from it are dropped when memory runs low. Memberships
+ * 	only cover loaded lists.
  * 
  * @author Kevin Today
  *
@@ -27,18 +35,36 @@ public class TaskApparatus {
 		COMPLETED,
 		CUSTOM
 	}
+	private static final int INITIAL_LIST_SLOTS = 16;	// list slots allocated up front
+	private static final int FIRST_CUSTOM_POSITION = 2;	// ring position of the first custom list, after "completed" and "main"
 
 	
 	// ========== Member Variables ==========
 	private Context m_context;						// Context the TaskListApparatus is operating for
+	private TaskStore m_taskStore;					// columnar storage holding every loaded Task's data
 	private TaskList m_selectedList;				// current TaskList the user is interacting with
 	private TaskList m_mainList;					// TaskList representing the main task list for the Activity
 	private TaskList m_completedList;				// TaskList representing completed tasks
-	private ArrayList<TaskList> m_customLists;		// Ordered list of TaskLists representing user-defined task lists
+	private ArrayList<TaskList> m_ring;				// every TaskList in display order: "completed", "main", then custom lists (loaded or not)
+	private LongObjectMap<Task> m_taskIndex;		// every Task held by a TaskList, by ID
+	private LongObjectMap<TaskMembership> m_memberships;	// loaded TaskLists holding each indexed Task, by Task ID
+	private TaskList[] m_slotLists;					// TaskList occupying each list slot (null if the slot is free)
+	private int m_listSlotCount;					// list slots ever handed out (highest slot + 1)
+	private int[] m_freeListSlots;					// stack of released list slots ready for reuse
+	private int m_freeListSlotCount;				// number of slots on the free stack
 	private TaskDBApparatus m_databaseApparatus;	// apparatus to manage task information in the database
 	private TaskFactory m_taskFactory;				// factory to produce Tasks for the apparatus
 	private TaskListFactory m_taskListFactory;		// factory to produce TaskLists for the apparatus
 	private AlarmHelper m_alarmHelper;				// task alarm helper
+	private boolean m_neighbourLoadScheduled;		// whether the selected list's neighbours are waiting to be loaded
+	private final MessageQueue.IdleHandler m_neighbourLoader = new MessageQueue.IdleHandler() {
+		public boolean queueIdle() {
+			m_neighbourLoadScheduled = false;
+			loadListTool(findLeftList(m_selectedList));
+			loadListTool(findRightList(m_selectedList));
+			return false;
+		}
+	};
 
 	
 	// ========== Constructors ==========
@@ -55,40 +81,79 @@ public class TaskApparatus {
 		}
 		
 		m_context = context;
-		m_databaseApparatus = new TaskDBApparatus(m_context);	// apparatus to manage all database activity
-		m_taskFactory = new TaskFactory(m_context);
+		m_taskStore = new TaskStore();
+		m_databaseApparatus = new TaskDBApparatus(m_context, m_taskStore);	// apparatus to manage all database activity
+		m_taskFactory = new TaskFactory(m_context, m_taskStore);
 		m_taskListFactory = new TaskListFactory(m_context);
 		m_alarmHelper = new AlarmHelper(m_context);
+		m_taskIndex = new LongObjectMap<Task>();
+		m_memberships = new LongObjectMap<TaskMembership>();
+		m_slotLists = new TaskList[INITIAL_LIST_SLOTS];
+		m_freeListSlots = new int[INITIAL_LIST_SLOTS];
 		
-		// load lists from database
-		TaskList storedMainList = m_databaseApparatus.getTaskList(POQTListConstants.MAIN_TASKLIST_ID);
-		TaskList storedCompletedList = m_databaseApparatus.getTaskList(POQTListConstants.COMPLETED_TASKLIST_ID);
-		ArrayList<TaskList> storedCustomLists = m_databaseApparatus.getCustomLists();
+		// load every list from the database in one pass, then sort out "main" and "completed" from the custom lists
+		ArrayList<TaskList> storedLists = m_databaseApparatus.getAllTaskLists();
+		TaskList storedMainList = null;
+		TaskList storedCompletedList = null;
+		ArrayList<TaskList> storedCustomLists = new ArrayList<TaskList>(storedLists.size());
+		for (TaskList storedList : storedLists) {
+			if (storedList.getID() == POQTListConstants.MAIN_TASKLIST_ID) {
+				storedMainList = storedList;
+			}
+			else if (storedList.getID() == POQTListConstants.COMPLETED_TASKLIST_ID) {
+				storedCompletedList = storedList;
+			}
+			else {
+				storedCustomLists.add(storedList);
+			}
+		}
 		
 		Log.d(POQTListConstants.LOG_TAG, "Size of custom list array: " + storedCustomLists.size());
 		
 		// if any of the loaded task lists had issues, start a fresh instance
-		if (storedMainList == null || storedCompletedList == null || storedCustomLists == null) {
+		if (storedMainList == null || storedCompletedList == null) {
 			// build "main" task list
 			TaskAdapter mainAdapter = new TaskAdapter(m_context, POQTListConstants.MAIN_TASKADAPTER_TYPE);
 			m_mainList = new TaskList(POQTListConstants.MAIN_TASKLIST_ID, POQTListConstants.MAIN_TASKLIST_NAME, mainAdapter);
-			m_databaseApparatus.addTaskList(m_mainList);
 			m_selectedList = m_mainList;
 			
-			// build "completed" task list
-			TaskAdapter completedAdapter = new TaskAdapter(m_context, POQTListConstants.COMPLETED_TASKADAPTER_TYPE);
+			// build "completed" task list, read through the database a page at a time
+			TaskAdapter completedAdapter = new TaskAdapter(m_context, POQTListConstants.COMPLETED_TASKADAPTER_TYPE,
+					m_databaseApparatus, POQTListConstants.COMPLETED_TASKLIST_ID);
 			m_completedList = new TaskList(POQTListConstants.COMPLETED_TASKLIST_ID, POQTListConstants.COMPLETED_TASKLIST_NAME, completedAdapter);
-			m_databaseApparatus.addTaskList(m_completedList);
 			
-			m_customLists = new ArrayList<TaskList>();		// custom TaskLists
+			m_databaseApparatus.beginBatch();
+			try {
+				m_databaseApparatus.addTaskList(m_mainList);
+				m_databaseApparatus.addTaskList(m_completedList);
+				m_databaseApparatus.commitBatch();
+			}
+			finally {
+				m_databaseApparatus.endBatch();
+			}
+			
+			storedCustomLists = new ArrayList<TaskList>();		// custom TaskLists
 		}
 		// otherwise, use loaded data
 		else {
 			m_mainList = storedMainList;
 			m_completedList = storedCompletedList;
-			m_customLists = storedCustomLists;
 			m_selectedList = m_mainList;
 		}
+		
+		// give every list a slot, then index every loaded Task; custom lists are loaded from the index later
+		m_ring = new ArrayList<TaskList>(FIRST_CUSTOM_POSITION + storedCustomLists.size());
+		claimListSlot(m_mainList);
+		claimListSlot(m_completedList);
+		addToRing(m_completedList);
+		addToRing(m_mainList);
+		for (TaskList customList : storedCustomLists) {
+			claimListSlot(customList);
+			addToRing(customList);
+		}
+		indexListTool(m_mainList);
+		indexListTool(m_completedList);
+		selectListTool(m_selectedList);
 	}
 	
 	
@@ -111,14 +176,14 @@ public class TaskApparatus {
 		}
 		
 		String description = task.getDescription();
-		Calendar dueDate = task.getDueDate();
+		long dueMillis = task.getDueMillis();
 		Task.Priority priority = task.getPriority();
 		Task.Alarm alarm = task.getAlarm();
 		
 		// build bundle to pass back
 		Bundle taskInfo = new Bundle();
 		taskInfo.putString(POQTListConstants.TASK_INFO_KEY_DESCRIPTION, description);
-		taskInfo.putAll(TaskActivity.packDueDate(dueDate));
+		taskInfo.putAll(TaskActivity.packDueDate(dueMillis));
 		taskInfo.putInt(POQTListConstants.TASK_INFO_KEY_PRIORITY_ORDINAL, priority.ordinal());
 		taskInfo.putInt(POQTListConstants.TASK_INFO_KEY_ALARM_ORDINAL, alarm.ordinal());
 		return taskInfo;
@@ -136,7 +201,7 @@ public class TaskApparatus {
 		}
 		
 		String listName = m_selectedList.getName();
-		int adapterTypeOrdinal = m_selectedList.getAdapter().getType().ordinal();
+		int adapterTypeOrdinal = m_selectedList.getAdapterType().ordinal();
 		
 		// build bundle to pass back
 		Bundle taskListInfo = new Bundle();
@@ -150,18 +215,28 @@ public class TaskApparatus {
 	 * Creates a new task with the given parameters
 	 * 
 	 * @param description Task description (must not be null or whitespace)
-	 * @param dueDate Task due date (null value signifies no due date)
+	 * @param dueMillis Task due date in milliseconds (Task.NO_DUE_DATE signifies no due date)
 	 * @param priority Task priority (null value defaults to "Normal" priority)
 	 * @param alarm Task alarm offset from due date (null value indicates no alarm)
 	 * @return True if the task was created successfully; false otherwise
 	 */
-	public boolean createTask(String description, Calendar dueDate, Task.Priority priority, Task.Alarm alarm) {
+	public boolean createTask(String description, long dueMillis, Task.Priority priority, Task.Alarm alarm) {
 		// description must be valid, non-whitespace string
 		if (description == null || description.trim().length() == 0) {
 			throw new IllegalArgumentException("New task's description must be valid, non-whitespace string");
 		}
-		Task newTask = m_taskFactory.buildTask(description, dueDate, priority, alarm);
-		boolean informationAdded = addTaskTool(newTask, m_selectedList);
+		Task newTask = m_taskFactory.buildTask(description, dueMillis, priority, alarm);
+		
+		// the Task and its memberships are written in one transaction
+		boolean informationAdded;
+		m_databaseApparatus.beginBatch();
+		try {
+			informationAdded = addTaskTool(newTask, m_selectedList);
+			m_databaseApparatus.commitBatch();
+		}
+		finally {
+			m_databaseApparatus.endBatch();
+		}
 		boolean alarmsAdded = m_alarmHelper.addTask(newTask);
 		return (informationAdded && alarmsAdded);
 	}
@@ -171,12 +246,12 @@ public class TaskApparatus {
 	 * 
 	 * @param index Index of task within current task list
 	 * @param description Modified description for task
-	 * @param dueDate Modified due date for task
+	 * @param dueMillis Modified due date for task in milliseconds (Task.NO_DUE_DATE for none)
 	 * @param priority Modified priority for task
 	 * @param alarm Modified alarm offset for task
 	 * @return True if the modification was successful, false otherwise
 	 */
-	public boolean modifyTask(int index, String description, Calendar dueDate, Task.Priority priority, Task.Alarm alarm) {
+	public boolean modifyTask(int index, String description, long dueMillis, Task.Priority priority, Task.Alarm alarm) {
 		Task changedTask = (Task)m_selectedList.getAdapter().getItem(index);
 		// sanity check
 		if (changedTask == null) {
@@ -186,10 +261,19 @@ public class TaskApparatus {
 		if (description == null || description.trim().length() == 0) {
 			return false;
 		}
+		
+		// pull the Task out of the lists holding it while the fields it is sorted on change, then re-sort it back in
+		ArrayList<TaskAdapter> holdingAdapters = findHoldingAdapters(changedTask);
+		for (TaskAdapter adapter : holdingAdapters) {
+			adapter.remove(changedTask);
+		}
 		changedTask.setDescription(description);
-		changedTask.setDueDate(dueDate);
+		changedTask.setDueMillis(dueMillis);
 		changedTask.setPriority(priority);
 		changedTask.setAlarm(alarm);
+		for (TaskAdapter adapter : holdingAdapters) {
+			adapter.add(changedTask);
+		}
 		return updateTaskInfoTool(changedTask);
 	}
 	
@@ -205,9 +289,23 @@ public class TaskApparatus {
 		if (completedTask == null) {
 			return false;
 		}
-		boolean informationRemoved = this.deleteTaskTool(completedTask);	// remove completed Task from all lists containing it
-		boolean informationAdded = this.addTaskTool(completedTask, m_completedList);	// re-add Task to completed list only
+		boolean informationRemoved;
+		boolean informationAdded;
+		m_databaseApparatus.beginBatch();
+		try {
+			informationRemoved = this.deleteTaskTool(completedTask);	// remove completed Task from all lists containing it
+			informationAdded = this.addTaskTool(completedTask, m_completedList);	// re-add Task to completed list only
+			m_databaseApparatus.commitBatch();
+		}
+		finally {
+			m_databaseApparatus.endBatch();
+		}
 		boolean alarmsDeleted = m_alarmHelper.deleteTask(completedTask);
+		
+		// a windowed completed list reads the Task back from the database, so its storage can be reused
+		if (m_completedList.getAdapter().isWindowed()) {
+			completedTask.release();
+		}
 		return informationRemoved && informationAdded && alarmsDeleted;
 	}
 	
@@ -223,8 +321,19 @@ public class TaskApparatus {
 		if (deletion == null) {
 			return false;
 		}
-		boolean informationDeleted = deleteTaskTool(deletion);
+		boolean informationDeleted;
+		m_databaseApparatus.beginBatch();
+		try {
+			informationDeleted = deleteTaskTool(deletion);
+			m_databaseApparatus.commitBatch();
+		}
+		finally {
+			m_databaseApparatus.endBatch();
+		}
 		boolean alarmsDeleted = m_alarmHelper.deleteTask(deletion);
+		
+		// the Task is out of every list and alarm, so its storage can be reused
+		deletion.release();
 		return informationDeleted && alarmsDeleted;
 	}
 	
@@ -288,7 +397,7 @@ public class TaskApparatus {
 		}
 		
 		m_selectedList.setName(newName);
-		m_selectedList.getAdapter().setType(newAdapterType);
+		m_selectedList.setAdapterType(newAdapterType);
 		return this.updateCustomListInfoTool(m_selectedList);
 	}
 	
@@ -312,32 +421,7 @@ public class TaskApparatus {
 	 * List Arrangement: {"completed"  "main"  custom lists...}
 	 */
 	public void cycleLeft()	 {
-		int numCustomLists = m_customLists.size();
-		// wrap around to the far right if the current list is the completed TaskList
-		if (m_selectedList == m_completedList) {
-			if (numCustomLists > 0) {
-				m_selectedList = m_customLists.get(numCustomLists - 1);
-			}
-			else {
-				m_selectedList = m_mainList;
-			}
-		}
-		// go left to the completed TaskList if the current TaskList is the completed list
-		else if (m_selectedList == m_mainList) {
-			m_selectedList = m_completedList;
-		}
-		// otherwise, the current list is a custom list
-		else {
-			// go to the main list if the current TaskList is the leftmost custom list
-			if (m_selectedList == m_customLists.get(0)) {
-				m_selectedList = m_mainList;
-			}
-			// otherwise, cycle to the custom TaskList left of the current one
-			else {
-				int position = m_customLists.indexOf(m_selectedList);
-				m_selectedList = m_customLists.get(position - 1);
-			}
-		}
+		selectListTool(findLeftList(m_selectedList));
 	}
 	
 	/**
@@ -345,74 +429,35 @@ public class TaskApparatus {
 	 * List Arrangement: {"completed"  "main"  custom lists...}
 	 */
 	public void cycleRight()	 {
-		Log.d("POQTList", "Inside cycleRight()");
-		System.out.println("CustomList size: " + m_customLists.size());
-		System.out.println("Selected list: " + m_selectedList.getName());
-		for (TaskList list : m_customLists) {
-			System.out.println(list.getName() + "   " + list.getID());
+		selectListTool(findRightList(m_selectedList));
+	}
+	
+	/**
+	 * Jumps straight to the TaskList at the given position, without cycling through the lists before it
+	 * 
+	 * @param position Position of the TaskList in the list arrangement (0 is "completed", 1 is "main")
+	 */
+	public void jumpToList(int position) {
+		// sanity check
+		if (position < 0 || position >= m_ring.size()) {
+			throw new IllegalArgumentException("No task list at position " + position);
 		}
 		
-		
-		int numCustomLists = m_customLists.size();
-		// cycle right to main list if current list is the completed list
-		if (m_selectedList == m_completedList) {
-			m_selectedList = m_mainList;
-		}
-		// go right to the first custom TaskList if the current list is the completed List
-		// wrap around to the main TaskList otherwise
-		else if (m_selectedList == m_mainList) {
-			if (numCustomLists > 0) {
-				
-				
-				try{
-					
-					
-					
-				m_selectedList = m_customLists.get(0);
-				
-				
-				
-				}
-				catch (IndexOutOfBoundsException exc) {
-					Log.e("POQTList", "ERROR 1");
-				}
-				
-				
-				
-				
-			}
-			else {
-				m_selectedList = m_completedList;
-			}
-		}
-		// otherwise, the current list is a custom list
-		else {
-			// go to the main list if the current TaskList is the rightmost custom list
-			if (m_selectedList == m_customLists.get(numCustomLists - 1)) {
-				System.out.println("Wrapping around when cycling right");
-				m_selectedList = m_completedList;
-			}
-			// otherwise, cycle to the custom TaskList right of the current
-			else {
-				System.out.println("Cycling right in custom lists");
-				int position = m_customLists.indexOf(m_selectedList);
-				
-				
-				
-				try {
-				
-				m_selectedList = m_customLists.get(position + 1);
-				
-				
-				
-				
-				}
-				catch (IndexOutOfBoundsException exc) {
-					Log.e("POQTList", "ERROR 1");
-				}
-				
-				
-				
+		selectListTool(m_ring.get(position));
+	}
+	
+	/**
+	 * Drops the adapters of custom TaskLists more than one swipe away from the displayed list, to be loaded again
+	 * 	from the database when next needed
+	 * NOTE: Meant to be called when the system is running low on memory
+	 */
+	public void releaseDistantLists() {
+		TaskList left = findLeftList(m_selectedList);
+		TaskList right = findRightList(m_selectedList);
+		for (int position = FIRST_CUSTOM_POSITION; position < m_ring.size(); position++) {
+			TaskList customList = m_ring.get(position);
+			if (customList.isLoaded() && customList != m_selectedList && customList != left && customList != right) {
+				unloadListTool(customList);
 			}
 		}
 	}
@@ -428,6 +473,7 @@ public class TaskApparatus {
 	 * Closes TaskApparatus to free resources and save state
 	 */
 	public void close() {
+		m_completedList.getAdapter().close();
 		m_databaseApparatus.close();
 	}
 	
@@ -490,12 +536,19 @@ public class TaskApparatus {
 	 * @return True if the Task was successfuly deleted, false otherwise
 	 */
 	private boolean deleteTaskTool(Task elimination) {
-		// delete given Task from all TaskLists that may have contained it
-		m_mainList.getAdapter().remove(elimination);
-		m_completedList.getAdapter().remove(elimination);
-		for (TaskList customList : m_customLists) {
-			customList.getAdapter().remove(elimination);
+		// delete given Task from the TaskLists containing it
+		TaskMembership membership = m_memberships.remove(elimination.getID());
+		if (membership != null) {
+			for (int slot = membership.nextSlot(0); slot != -1; slot = membership.nextSlot(slot + 1)) {
+				m_slotLists[slot].getAdapter().remove(elimination);
+			}
+		}
+		
+		// Tasks of a windowed list are not tracked, so the list is told directly
+		if (isInWindowedList(elimination, m_completedList)) {
+			m_completedList.getAdapter().remove(elimination);
 		}
+		m_taskIndex.remove(elimination.getID());
 		return m_databaseApparatus.deleteTask(elimination);
 	}
 	
@@ -513,7 +566,15 @@ public class TaskApparatus {
 			return false;
 		}
 		
-		list.getAdapter().add(addition);
+		// a windowed list reads its rows back from the database, and an unloaded one reads them when it loads, so
+		//	only held lists track membership
+		TaskAdapter adapter = list.getAdapter();
+		if (adapter != null) {
+			adapter.add(addition);
+			if (!adapter.isWindowed()) {
+				findMembership(addition).add(list.getSlot());
+			}
+		}
 		return m_databaseApparatus.addTaskToList(addition, list);
 	}
 	
@@ -538,7 +599,13 @@ public class TaskApparatus {
 		
 		
 		
-		list.getAdapter().remove(removal);
+		if (list.isLoaded()) {
+			list.getAdapter().remove(removal);
+		}
+		TaskMembership membership = m_memberships.get(removal.getID());
+		if (membership != null) {
+			membership.remove(list.getSlot());
+		}
 		return m_databaseApparatus.removeTaskFromList(removal, list);
 	}
 	
@@ -555,8 +622,9 @@ public class TaskApparatus {
 			return false;
 		}
 		
-		m_customLists.add(addition);
-		m_selectedList = addition;
+		claimListSlot(addition);
+		addToRing(addition);
+		selectListTool(addition);
 		return m_databaseApparatus.addTaskList(addition);
 	}
 	
@@ -592,26 +660,191 @@ public class TaskApparatus {
 		// if deletion is currently selected list, switch selected list before deleting
 		if (deletion == m_selectedList) {
 			// if last custom list, default to main task list
-			if (m_customLists.size() == 1) {
-				m_selectedList = m_mainList;
+			int deletionPosition = deletion.getPosition();
+			if (m_ring.size() == FIRST_CUSTOM_POSITION + 1) {
+				selectListTool(m_mainList);
 			}
 			else {
 				// otherwise, select appropriate custom list
-				int deletionIndex = findCustomListIndex(deletion);
-				if (deletionIndex == m_customLists.size() - 1) {
-					m_selectedList = m_customLists.get(deletionIndex - 1);
+				if (deletionPosition == m_ring.size() - 1) {
+					selectListTool(m_ring.get(deletionPosition - 1));
 				}
 				else {
-					m_selectedList = m_customLists.get(deletionIndex + 1);
+					selectListTool(m_ring.get(deletionPosition + 1));
 				}
 			}
 		}
 		
-		m_customLists.remove(deletion);
-		m_databaseApparatus.deleteTaskList(deletion);
+		// the list's Tasks stay in "main", so only their memberships change
+		if (deletion.isLoaded()) {
+			unloadListTool(deletion);
+		}
+		
+		releaseListSlot(deletion);
+		removeFromRing(deletion);
+		
+		// the list and its memberships are deleted in one transaction
+		m_databaseApparatus.beginBatch();
+		try {
+			m_databaseApparatus.deleteTaskList(deletion);
+			m_databaseApparatus.commitBatch();
+		}
+		finally {
+			m_databaseApparatus.endBatch();
+		}
 		return true;
 	}
 	
+	/**
+	 * Shows the given TaskList, loading its adapter now and its neighbours' adapters once the UI thread is idle
+	 * NOTE: On a thread without a Looper (there is no queue to go idle) the neighbours are loaded right away
+	 * 
+	 * @param list TaskList to select
+	 */
+	private void selectListTool(TaskList list) {
+		m_selectedList = list;
+		loadListTool(list);
+		
+		if (Looper.myLooper() == null) {
+			loadListTool(findLeftList(list));
+			loadListTool(findRightList(list));
+			return;
+		}
+		
+		// neighbours are loaded after the selected list is drawn, so the next swipe finds its list ready
+		if (!m_neighbourLoadScheduled) {
+			m_neighbourLoadScheduled = true;
+			Looper.myQueue().addIdleHandler(m_neighbourLoader);
+		}
+	}
+	
+	/**
+	 * Loads the adapter of a TaskList that is only a descriptor
+	 * Every Task of a custom list is also in "main", which is always loaded, so only the list's Task IDs are read
+	 * 	and its adapter is filled with the indexed Tasks; a Task missing from the index makes the list load in full.
+	 * 
+	 * @param list TaskList to load
+	 */
+	private void loadListTool(TaskList list) {
+		if (list.isLoaded()) {
+			return;
+		}
+		
+		long[] taskIDs = m_databaseApparatus.getListTaskIDs(list.getID());
+		Task[] tasks = new Task[taskIDs.length];
+		for (int i = 0; i < taskIDs.length; i++) {
+			tasks[i] = m_taskIndex.get(taskIDs[i]);
+			if (tasks[i] == null) {
+				Log.w(POQTListConstants.LOG_TAG, "Task " + taskIDs[i] + " of list " + list.getID() + " is not indexed; loading the list in full");
+				TaskList storedList = m_databaseApparatus.getTaskList(list.getID());
+				list.setAdapter((storedList != null) ? storedList.getAdapter() : new TaskAdapter(m_context, list.getAdapterType()));
+				indexListTool(list);
+				return;
+			}
+		}
+		
+		list.setAdapter(new TaskAdapter(m_context, list.getAdapterType(), tasks));
+		for (Task task : tasks) {
+			findMembership(task).add(list.getSlot());
+		}
+	}
+	
+	/**
+	 * Drops the adapter of a loaded custom TaskList, leaving its descriptor; its Tasks stay indexed through "main"
+	 * 
+	 * @param list TaskList to unload
+	 */
+	private void unloadListTool(TaskList list) {
+		TaskAdapter adapter = list.getAdapter();
+		for (int i = 0; i < adapter.getCount(); i++) {
+			TaskMembership membership = m_memberships.get(adapter.getItemId(i));
+			if (membership != null) {
+				membership.remove(list.getSlot());
+			}
+		}
+		adapter.close();
+		list.unloadAdapter();
+	}
+	
+	/**
+	 * Finds the TaskList one swipe left of the given one, wrapping around from "completed" to the last list
+	 * 
+	 * @param list TaskList to start from
+	 * @return The TaskList cycleLeft() would select
+	 */
+	private TaskList findLeftList(TaskList list) {
+		int numLists = m_ring.size();
+		return m_ring.get((list.getPosition() + numLists - 1) % numLists);
+	}
+	
+	/**
+	 * Finds the TaskList one swipe right of the given one, wrapping around from the last list to "completed"
+	 * 
+	 * @param list TaskList to start from
+	 * @return The TaskList cycleRight() would select
+	 */
+	private TaskList findRightList(TaskList list) {
+		return m_ring.get((list.getPosition() + 1) % m_ring.size());
+	}
+	
+	/**
+	 * Places the given TaskList at the end of the ring
+	 * 
+	 * @param list TaskList to place
+	 */
+	private void addToRing(TaskList list) {
+		list.setPosition(m_ring.size());
+		m_ring.add(list);
+	}
+	
+	/**
+	 * Takes the given TaskList out of the ring, moving every list after it down one position
+	 * 
+	 * @param list TaskList to take out
+	 */
+	private void removeFromRing(TaskList list) {
+		int position = list.getPosition();
+		m_ring.remove(position);
+		list.setPosition(-1);
+		for (int i = position; i < m_ring.size(); i++) {
+			m_ring.get(i).setPosition(i);
+		}
+	}
+	
+	/**
+	 * Adds the Tasks of a TaskList loaded from the database to the Task index
+	 * A Task in several lists is loaded once per list, so any copy of an already-indexed Task is swapped for
+	 * 	the indexed one and its storage released
+	 * 
+	 * @param list Loaded TaskList to index
+	 */
+	private void indexListTool(TaskList list) {
+		// a windowed list holds no Tasks to index
+		TaskAdapter adapter = list.getAdapter();
+		if (adapter.isWindowed()) {
+			return;
+		}
+		
+		Task[] loadedTasks = new Task[adapter.getCount()];
+		for (int i = 0; i < loadedTasks.length; i++) {
+			loadedTasks[i] = (Task)adapter.getItem(i);
+		}
+		
+		for (Task loadedTask : loadedTasks) {
+			Task indexedTask = m_taskIndex.get(loadedTask.getID());
+			if (indexedTask == null) {
+				indexedTask = loadedTask;
+				m_taskIndex.put(indexedTask.getID(), indexedTask);
+			}
+			else if (indexedTask != loadedTask) {
+				adapter.remove(loadedTask);
+				adapter.add(indexedTask);
+				loadedTask.release();
+			}
+			findMembership(indexedTask).add(list.getSlot());
+		}
+	}
+	
 	/**
 	 * Finds the given list's category
 	 * 
@@ -619,13 +852,17 @@ public class TaskApparatus {
 	 * @return Constant representing list's category (null if the list is not in the TaskApparatus)
 	 */
 	private TaskApparatus.ListCategory findListCategory(TaskList list) {
-		if (list == m_mainList) {
+		if (list == null) {
+			return null;
+		}
+		else if (list == m_mainList) {
 			return ListCategory.MAIN;
 		}
 		else if (list == m_completedList) {
 			return ListCategory.COMPLETED;
 		}
-		else if (m_customLists.contains(list)) {
+		// custom lists are recognized by owning their slot, so no search is needed
+		else if (list.getSlot() >= 0 && list.getSlot() < m_listSlotCount && m_slotLists[list.getSlot()] == list) {
 			return ListCategory.CUSTOM;
 		}
 		else {
@@ -634,29 +871,109 @@ public class TaskApparatus {
 	}
 	
 	/**
-	 * Finds the given list's index in the list of custom TaskLists
+	 * Finds the adapters of every TaskList containing the given Task
 	 * 
-	 * @param list TaskList to find position for
-	 * @return Index of given list or -1 if list not found
+	 * @param task Task to search for
+	 * @return Adapters containing the Task
 	 */
-	private int findCustomListIndex(TaskList list) {
-		// ensure list category is custom
-		if (findListCategory(list) != ListCategory.CUSTOM) {
-			return -1;
+	private ArrayList<TaskAdapter> findHoldingAdapters(Task task) {
+		ArrayList<TaskAdapter> holdingAdapters = new ArrayList<TaskAdapter>();
+		TaskMembership membership = m_memberships.get(task.getID());
+		if (membership != null) {
+			for (int slot = membership.nextSlot(0); slot != -1; slot = membership.nextSlot(slot + 1)) {
+				holdingAdapters.add(m_slotLists[slot].getAdapter());
+			}
 		}
 		
-		for (int i = 0; i < m_customLists.size(); i++) {
-			TaskList compareList = m_customLists.get(i);
-			if (compareList.getID() == list.getID()) {
-				return i;
+		// memberships of a windowed list are not tracked, so the database is asked
+		if (isInWindowedList(task, m_completedList)) {
+			holdingAdapters.add(m_completedList.getAdapter());
+		}
+		return holdingAdapters;
+	}
+	
+	/**
+	 * Checks if the given list reads its Tasks through a window and holds the given Task in the database
+	 * 
+	 * @param task Task to search for
+	 * @param list TaskList to search
+	 * @return True if the list is windowed and contains the Task; false otherwise
+	 */
+	private boolean isInWindowedList(Task task, TaskList list) {
+		TaskAdapter adapter = list.getAdapter();
+		return adapter != null && adapter.isWindowed() && m_databaseApparatus.doesListContain(list.getID(), task.getID());
+	}
+	
+	/**
+	 * Hands the given TaskList a list slot, reusing a released one when possible
+	 * 
+	 * @param list TaskList to give a slot to
+	 */
+	private void claimListSlot(TaskList list) {
+		int slot;
+		if (m_freeListSlotCount > 0) {
+			slot = m_freeListSlots[--m_freeListSlotCount];
+		}
+		else {
+			if (m_listSlotCount == m_slotLists.length) {
+				TaskList[] grown = new TaskList[m_slotLists.length * 2];
+				System.arraycopy(m_slotLists, 0, grown, 0, m_listSlotCount);
+				m_slotLists = grown;
 			}
+			slot = m_listSlotCount++;
 		}
 		
-		return -1;
+		m_slotLists[slot] = list;
+		list.setSlot(slot);
+	}
+	
+	/**
+	 * Returns the given TaskList's slot for reuse
+	 * NOTE: No Task's membership may still have the slot's bit set!
+	 * 
+	 * @param list TaskList giving up its slot
+	 */
+	private void releaseListSlot(TaskList list) {
+		int slot = list.getSlot();
+		m_slotLists[slot] = null;
+		list.setSlot(-1);
+		
+		if (m_freeListSlotCount == m_freeListSlots.length) {
+			int[] grown = new int[m_freeListSlots.length * 2];
+			System.arraycopy(m_freeListSlots, 0, grown, 0, m_freeListSlotCount);
+			m_freeListSlots = grown;
+		}
+		m_freeListSlots[m_freeListSlotCount++] = slot;
+	}
+	
+	/**
+	 * Finds the membership record of the given Task, indexing the Task if it is not indexed yet
+	 * 
+	 * @param task Task to find the membership of
+	 * @return The Task's membership record
+	 */
+	private TaskMembership findMembership(Task task) {
+		TaskMembership membership = m_memberships.get(task.getID());
+		if (membership == null) {
+			membership = new TaskMembership();
+			m_memberships.put(task.getID(), membership);
+			m_taskIndex.put(task.getID(), task);
+		}
+		return membership;
 	}
 	
 	
 	// ========== Getter Methods ==========
+	/**
+	 * Finds the Task with the given ID among the apparatus' TaskLists
+	 * 
+	 * @param taskID ID of the Task to find
+	 * @return The Task, or null if no TaskList holds a Task with the ID
+	 */
+	public Task findTask(long taskID) {
+		return m_taskIndex.get(taskID);
+	}
+	
 	/**
 	 * Gets the TaskAdapter for the currently selected task list.
 	 * NOTE: To preserve encapsulation, do not modify the return value
@@ -664,9 +981,43 @@ public class TaskApparatus {
 	 * @return The list's TaskAdapter
 	 */
 	public final TaskAdapter getSelectedAdapter() {
+		loadListTool(m_selectedList);
 		return m_selectedList.getAdapter();
 	}
 	
+	/**
+	 * Counts the TaskLists that can be displayed
+	 * 
+	 * @return Number of TaskLists, "main" and "completed" included
+	 */
+	public int getListCount() {
+		return m_ring.size();
+	}
+	
+	/**
+	 * Gets the title of the TaskList at the given position
+	 * 
+	 * @param position Position of the TaskList in the list arrangement (0 is "completed", 1 is "main")
+	 * @return The task list's title
+	 */
+	public String getListTitle(int position) {
+		// sanity check
+		if (position < 0 || position >= m_ring.size()) {
+			throw new IllegalArgumentException("No task list at position " + position);
+		}
+		
+		return m_ring.get(position).getName();
+	}
+	
+	/**
+	 * Gets the position of the currently selected task list
+	 * 
+	 * @return Position of the task list in the list arrangement (0 is "completed", 1 is "main")
+	 */
+	public int getSelectedPosition() {
+		return m_selectedList.getPosition();
+	}
+	
 	/**
 	 * Get the currently selected list's title
 	 * 
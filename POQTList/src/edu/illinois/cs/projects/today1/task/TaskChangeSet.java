@@ -0,0 +1,102 @@
+package edu.illinois.cs.projects.today1.task;
+
+/**
+ * Summary of how a TaskAdapter's rows changed between two published states
+ * Every change made since the previous publish is merged, so a Task removed and re-added by one operation shows up
+ * 	once, as a move (or, if no row changed position, a change) rather than as a removal and an insertion.
+ * Positions of removed Tasks and the origins of moves refer to the order before the changes; positions of inserted
+ * 	and changed Tasks and the destinations of moves refer to the order after them.
+ *
+ * @author Kevin Today
+ */
+public class TaskChangeSet {
+	// ========== Member Variables ==========
+	private final int[] m_inserted;		// new positions of Tasks that were added
+	private final int[] m_removed;		// old positions of Tasks that were removed
+	private final int[] m_movedFrom;	// old positions of Tasks that changed position
+	private final int[] m_movedTo;		// new positions of those Tasks, in the same order
+	private final int[] m_changed;		// positions of Tasks that were modified in place
+	private final boolean m_reordered;	// whether the whole order may have shifted (the positions above are then moot)
+
+
+	// ========== Constructors ==========
+	TaskChangeSet(int[] inserted, int[] removed, int[] movedFrom, int[] movedTo, int[] changed, boolean reordered) {
+		// sanity check
+		if (movedFrom.length != movedTo.length) {
+			throw new IllegalArgumentException("Every moved Task needs both an old and a new position");
+		}
+
+		m_inserted = inserted;
+		m_removed = removed;
+		m_movedFrom = movedFrom;
+		m_movedTo = movedTo;
+		m_changed = changed;
+		m_reordered = reordered;
+	}
+
+
+	// ========== Public Functions ==========
+	/**
+	 * Checks if nothing changed
+	 *
+	 * @return 'true' if the change set holds no changes; 'false' otherwise
+	 */
+	public boolean isEmpty() {
+		return !m_reordered && m_inserted.length == 0 && m_removed.length == 0 && m_movedFrom.length == 0 && m_changed.length == 0;
+	}
+
+	/**
+	 * Checks if every row kept its position, so the changed rows can be rebound in place without laying the list
+	 * 	out again
+	 *
+	 * @return 'true' if only Tasks modified in place changed; 'false' otherwise
+	 */
+	public boolean isInPlace() {
+		return !m_reordered && m_inserted.length == 0 && m_removed.length == 0 && m_movedFrom.length == 0;
+	}
+
+
+	// ========== Getter Functions ==========
+	public int getInsertedCount() {
+		return m_inserted.length;
+	}
+
+	public int getInserted(int index) {
+		return m_inserted[index];
+	}
+
+	public int getRemovedCount() {
+		return m_removed.length;
+	}
+
+	public int getRemoved(int index) {
+		return m_removed[index];
+	}
+
+	public int getMovedCount() {
+		return m_movedFrom.length;
+	}
+
+	public int getMovedFrom(int index) {
+		return m_movedFrom[index];
+	}
+
+	public int getMovedTo(int index) {
+		return m_movedTo[index];
+	}
+
+	public int getChangedCount() {
+		return m_changed.length;
+	}
+
+	public int getChanged(int index) {
+		return m_changed[index];
+	}
+
+	/**
+	 * @return 'true' if the order was re-ranked as a whole (e.g. as time passed), so any row may have moved
+	 */
+	public boolean isReordered() {
+		return m_reordered;
+	}
+}
@@ -3,6 +3,7 @@ package edu.illinois.cs.projects.today1.task;
 import java.util.Comparator;
 
 import android.content.Context;
+import edu.illinois.cs.projects.today1.POQTListSettings;
 
 /**
  * Comparator to compare two Task objects and assign priority based on due date
@@ -12,51 +13,91 @@ import android.content.Context;
  */
 public class TaskComparator implements Comparator<Task> {
 	// ========== Member Variables ==========
-	private final Context m_context;		// context comparator is being used in
+	private final POQTListSettings m_settings;	// cached preferences Tasks are scored with
+	private long m_now;							// ranking time every comparison scores Tasks at
 
 	
 	// ========== Constructors ==========
 	/**
-	 * Instantiates a new TaskComparator object within the given context
+	 * Instantiates a new TaskComparator object within the given context, ranking Tasks as of now
 	 * 
 	 * @param context Context comparator is being used in
 	 */
 	public TaskComparator(Context context) {
+		this(context, System.currentTimeMillis());
+	}
+	
+	/**
+	 * Instantiates a new TaskComparator object within the given context, ranking Tasks as of the given time
+	 * 
+	 * @param context Context comparator is being used in
+	 * @param now Time in milliseconds every comparison scores Tasks at
+	 */
+	public TaskComparator(Context context, long now) {
 		if (context == null) {
 			throw new IllegalArgumentException("TaskComparator context cannot be null");
 		}
 		
-		m_context = context;
+		m_settings = POQTListSettings.getInstance(context);
+		m_now = now;
 	}
 	
+	
 	// ========== Public Functions ==========
 	/**
-	 * Compares two Task objects by evaluating their time till due date and priority
-	 * Tasks due sooner should be counted as lesser, to put them higher in the queue
+	 * Compares two Task objects on a composite key: Urgency Score, then due date, then priority, then ID
+	 * Tasks that should sit higher in the queue count as lesser. The ID tie-break makes this a strict total order
+	 * 	consistent with Task.equals, so Tasks never trade places between sorts and can be located by binary search.
 	 * 
-	 * @param task_1 The Task being compared
-	 * @param task_2 The Task to compare to
+	 * @param task1 The Task being compared
+	 * @param task2 The Task to compare to
 	 * @return 
-	 * 	If task_1 is due sooner than task_2, 1 is returned. 
-	 * 	If task_1 is due later than task_2, -1 is returned.
-	 * 	If task_1 and task_2 are due at the same time, 0 is returned.
+	 * 	A negative value if task1 ranks ahead of task2 (more urgent, then due sooner, then higher priority, then lower ID).
+	 * 	A positive value if task1 ranks behind task2.
+	 * 	0 only if task1 and task2 are the same Task.
 	 */
 	@Override
 	public int compare(Task task1, Task task2) {
-		final long NUM_MILLISEC_IN_MIN = 60000;	// constant for number of milliseconds in a minute
-		
-		int urgencyScore1 = task1.findUrgencyScore(m_context);
-		int urgencyScore2 = task2.findUrgencyScore(m_context);
-		
-		// in the case of scores where at least one is not 0, compare normally
-		if (urgencyScore1 < urgencyScore2) {
-			return 1;
+		// score both Tasks at the same instant so a whole sort sees one consistent ranking
+		int urgencyScore1 = task1.findUrgencyScore(m_settings, m_now);
+		int urgencyScore2 = task2.findUrgencyScore(m_settings, m_now);
+		if (urgencyScore1 != urgencyScore2) {
+			return (urgencyScore1 > urgencyScore2) ? -1 : 1;
 		}
-		else if (urgencyScore1 > urgencyScore2) {
-			return -1;
+		
+		// at equal urgency, a dated Task goes ahead of an undated one (NO_DUE_DATE is the largest due date)
+		long dueMillis1 = task1.getDueMillis();
+		long dueMillis2 = task2.getDueMillis();
+		if (dueMillis1 != dueMillis2) {
+			return (dueMillis1 < dueMillis2) ? -1 : 1;
 		}
-		else {
-			return 0;
+		
+		int priority1 = task1.getPriority().ordinal();
+		int priority2 = task2.getPriority().ordinal();
+		if (priority1 != priority2) {
+			return (priority1 > priority2) ? -1 : 1;
 		}
+		
+		long id1 = task1.getID();
+		long id2 = task2.getID();
+		return (id1 < id2) ? -1 : ((id1 == id2) ? 0 : 1);
+	}
+	
+	
+	// ========== Getter Functions ==========
+	public long getRankingTime() {
+		return m_now;
+	}
+	
+	
+	// ========== Setter Functions ==========
+	/**
+	 * Moves the ranking time forward for the next sort pass
+	 * NOTE: Never change this in the middle of a sort!
+	 * 
+	 * @param now Time in milliseconds every comparison scores Tasks at
+	 */
+	public void setRankingTime(long now) {
+		m_now = now;
 	}
 }
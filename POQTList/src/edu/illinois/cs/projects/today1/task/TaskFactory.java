@@ -1,11 +1,9 @@
 package edu.illinois.cs.projects.today1.task;
 
-import java.util.Calendar;
-
 import edu.illinois.cs.projects.today1.POQTListConstants;
+import edu.illinois.cs.projects.today1.POQTListSettings;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.util.Log;
 
 /**
@@ -18,20 +16,35 @@ import android.util.Log;
 public class TaskFactory {
 	// ========== Member Variables ==========
 	private Context m_context;					// context to create the Task within
+	private TaskStore m_store;					// store to hold the created Tasks' data
 	
 	
 	// ========== Constructors ==========
 	/**
-	 * Instantiates a new TaskFactory object with the given Context
+	 * Instantiates a new TaskFactory object with the given Context, holding its Tasks in a TaskStore of its own
 	 * 
 	 * @param context Context to create the TaskFactory object within (cannot be null)
 	 */
 	public TaskFactory(Context context) {
+		this(context, new TaskStore());
+	}
+	
+	/**
+	 * Instantiates a new TaskFactory object with the given Context, holding its Tasks in the given TaskStore
+	 * 
+	 * @param context Context to create the TaskFactory object within (cannot be null)
+	 * @param store TaskStore to hold created Tasks (cannot be null)
+	 */
+	public TaskFactory(Context context, TaskStore store) {
 		if (context == null) {
 			throw new IllegalArgumentException("Context cannot be null");
 		}
+		if (store == null) {
+			throw new IllegalArgumentException("TaskStore cannot be null");
+		}
 		
 		m_context = context;
+		m_store = store;
 	}
 	
 	
@@ -40,18 +53,18 @@ public class TaskFactory {
 	 * Manufactures a new Task with the given parameters.
 	 * 
 	 * @param description The Task's description
-	 * @param dueDate The date the Task is due (null for no due date)
+	 * @param dueMillis The date the Task is due in milliseconds (Task.NO_DUE_DATE for no due date)
 	 * @param priority The Task's priority (null defaults to normal priority)
 	 * @param alarm The Task's alarm offset (null defaults to no alarm)
 	 * @return The new Task, or null if an error occurred
 	 */
-	public Task buildTask(String description, Calendar dueDate, Task.Priority priority, Task.Alarm alarm) {
+	public Task buildTask(String description, long dueMillis, Task.Priority priority, Task.Alarm alarm) {
 		try {
 			long freeID = getUnusedID();
 			
 			Log.d(POQTListConstants.LOG_TAG, "Got free ID: " + freeID);
 			
-			Task newTask = new Task(freeID, description, dueDate, priority, alarm);
+			Task newTask = new Task(m_store, freeID, description, dueMillis, priority, alarm);
 			return newTask;
 		}
 		catch (IllegalArgumentException exc) {
@@ -67,15 +80,6 @@ public class TaskFactory {
 	 * @return Free task ID
 	 */
 	private synchronized long getUnusedID() {
-		// get free ID
-		SharedPreferences preferences = m_context.getSharedPreferences(POQTListConstants.PREFERENCES_FILEPATH, Context.MODE_PRIVATE);
-		long freeID = preferences.getLong(POQTListConstants.PREF_KEY_TASK_ID_COUNTER, 0);
-
-		// increment ID counter
-		SharedPreferences.Editor editor = preferences.edit();
-		editor.putLong(POQTListConstants.PREF_KEY_TASK_ID_COUNTER, freeID + 1);
-		editor.commit();
-		
-		return freeID;
+		return POQTListSettings.getInstance(m_context).claimTaskID();
 	}
 }
@@ -0,0 +1,194 @@
+package edu.illinois.cs.projects.today1.task;
+
+import android.content.Context;
+import android.text.Layout;
+import android.text.StaticLayout;
+import android.text.TextPaint;
+import android.text.TextUtils;
+import android.util.DisplayMetrics;
+import android.util.TypedValue;
+
+/**
+ * Cache of the text layouts TaskRowViews draw, kept per Task
+ * Laying text out is the expensive part of drawing a row, so each Task's description and due date label are laid
+ * 	out once for a given row width and reused on every frame and every rebind until the text or width changes.
+ * NOTE: A TaskLayoutCache is not thread-safe; it is meant to be used from the UI thread.
+ *
+ * @author Kevin Today
+ */
+class TaskLayoutCache {
+	// ========== Constants ==========
+	private static final float DESCRIPTION_TEXT_SIZE_SP = 20;	// text size of a Task's description
+	private static final float DUE_DATE_TEXT_SIZE_SP = 14;		// text size of a Task's due date label
+	private static final int MAX_CACHED_ROWS = 512;				// cache is dropped once it grows past this many Tasks
+	private static final String PLACEHOLDER_TEXT = "\u2026";		// drawn in rows whose Task is not loaded yet
+
+
+	// ========== Member Variables ==========
+	private final TextPaint m_descriptionPaint;		// paint descriptions are laid out and drawn with
+	private final TextPaint m_dueDatePaint;			// paint due date labels are laid out and drawn with
+	private final LongObjectMap<RowLayouts> m_rows;	// cached layouts by Task ID
+	private RowLayouts m_placeholder;				// cached placeholder layouts (null until first needed)
+
+
+	// ========== Constructors ==========
+	/**
+	 * Instantiates an empty TaskLayoutCache with text sized for the given Context's display
+	 *
+	 * @param context Context whose display the text is drawn on
+	 */
+	TaskLayoutCache(Context context) {
+		DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+		m_descriptionPaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+		m_descriptionPaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, DESCRIPTION_TEXT_SIZE_SP, metrics));
+		m_dueDatePaint = new TextPaint(TextPaint.ANTI_ALIAS_FLAG);
+		m_dueDatePaint.setTextSize(TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, DUE_DATE_TEXT_SIZE_SP, metrics));
+		m_rows = new LongObjectMap<RowLayouts>();
+	}
+
+
+	// ========== Public Functions ==========
+	/**
+	 * Gets the layouts for the given Task's row, laying its text out again only if the description, the label, or
+	 * 	the width changed since they were cached
+	 *
+	 * @param task Task to get layouts for
+	 * @param dueLabel The Task's due date label (null if it has none)
+	 * @param width Width available to the text in pixels
+	 * @return The row's layouts
+	 */
+	RowLayouts findLayouts(Task task, String dueLabel, int width) {
+		TaskStore store = task.getStore();
+		int slot = task.getSlot();
+		char[] chars = store.getDescriptionChars();
+		int offset = store.getDescriptionOffset(slot);
+		int length = store.getDescriptionLength(slot);
+
+		RowLayouts layouts = m_rows.get(task.getID());
+		if (layouts != null && layouts.matches(chars, offset, length, dueLabel, width)) {
+			return layouts;
+		}
+
+		if (m_rows.size() >= MAX_CACHED_ROWS) {
+			m_rows.clear();
+		}
+		String description = new String(chars, offset, length);
+		boolean truncated = Layout.getDesiredWidth(description, m_descriptionPaint) > width;
+		layouts = new RowLayouts(chars, offset, length, dueLabel, width, description, truncated,
+				layOutLine(description, m_descriptionPaint, width),
+				(dueLabel == null) ? null : layOutLine(dueLabel, m_dueDatePaint, width));
+		m_rows.put(task.getID(), layouts);
+		return layouts;
+	}
+
+	/**
+	 * Gets the layouts of a row whose Task is not loaded yet, laying them out again only if the width changed
+	 *
+	 * @param width Width available to the text in pixels
+	 * @return The placeholder row's layouts
+	 */
+	RowLayouts findPlaceholderLayouts(int width) {
+		if (m_placeholder == null || !m_placeholder.matches(null, 0, 0, null, width)) {
+			m_placeholder = new RowLayouts(null, 0, 0, null, width, PLACEHOLDER_TEXT, false,
+					layOutLine(PLACEHOLDER_TEXT, m_descriptionPaint, width), null);
+		}
+		return m_placeholder;
+	}
+
+	/**
+	 * Lays out the full, untruncated description for scrolling across a row
+	 *
+	 * @param layouts Row layouts holding the description
+	 * @return Single-line layout as wide as the whole description
+	 */
+	StaticLayout layOutMarquee(RowLayouts layouts) {
+		String description = layouts.getDescription();
+		int width = (int)Math.ceil(Layout.getDesiredWidth(description, m_descriptionPaint));
+		return new StaticLayout(description, m_descriptionPaint, Math.max(width, 1), Layout.Alignment.ALIGN_NORMAL, 1.0f, 0.0f, true);
+	}
+
+	/**
+	 * Removes every cached layout (e.g. when memory runs low)
+	 */
+	void clear() {
+		m_rows.clear();
+		m_placeholder = null;
+	}
+
+	TextPaint getDescriptionPaint() {
+		return m_descriptionPaint;
+	}
+
+	TextPaint getDueDatePaint() {
+		return m_dueDatePaint;
+	}
+
+
+	// ========== Helper Functions ==========
+	/**
+	 * Lays the given text out as one centered line, ending it with an ellipsis if it does not fit
+	 */
+	private static StaticLayout layOutLine(String text, TextPaint paint, int width) {
+		width = Math.max(width, 1);
+		CharSequence fitted = TextUtils.ellipsize(text, paint, width, TextUtils.TruncateAt.END);
+		return new StaticLayout(fitted, paint, width, Layout.Alignment.ALIGN_CENTER, 1.0f, 0.0f, true);
+	}
+
+
+	// ========== Nested Classes ==========
+	/**
+	 * Layouts of one Task's row, along with the text and width they were built for
+	 */
+	static class RowLayouts {
+		private final char[] m_chars;					// arena the description was read from
+		private final int m_offset;						// start of the description within its arena
+		private final int m_length;						// length of the description
+		private final String m_dueLabel;				// due date label laid out (null if none)
+		private final int m_width;						// width the text was laid out for
+		private final String m_description;				// the full description
+		private final boolean m_descriptionTruncated;	// whether the description is wider than the width
+		private final StaticLayout m_descriptionLayout;	// description, ellipsized to the width
+		private final StaticLayout m_dueDateLayout;		// due date label, ellipsized to the width (null if none)
+
+		private RowLayouts(char[] chars, int offset, int length, String dueLabel, int width, String description,
+				boolean descriptionTruncated, StaticLayout descriptionLayout, StaticLayout dueDateLayout) {
+			m_chars = chars;
+			m_offset = offset;
+			m_length = length;
+			m_dueLabel = dueLabel;
+			m_width = width;
+			m_description = description;
+			m_descriptionTruncated = descriptionTruncated;
+			m_descriptionLayout = descriptionLayout;
+			m_dueDateLayout = dueDateLayout;
+		}
+
+		/**
+		 * Checks if the layouts were built for the given text and width
+		 * (stored description characters are never overwritten, so an unchanged range is unchanged text)
+		 */
+		private boolean matches(char[] chars, int offset, int length, String dueLabel, int width) {
+			return chars == m_chars && offset == m_offset && length == m_length && width == m_width
+					&& (dueLabel == null ? m_dueLabel == null : dueLabel.equals(m_dueLabel));
+		}
+
+		String getDescription() {
+			return m_description;
+		}
+
+		boolean isDescriptionTruncated() {
+			return m_descriptionTruncated;
+		}
+
+		StaticLayout getDescriptionLayout() {
+			return m_descriptionLayout;
+		}
+
+		/**
+		 * @return The due date label's layout, or null if the Task has no due date
+		 */
+		StaticLayout getDueDateLayout() {
+			return m_dueDateLayout;
+		}
+	}
+}
@@ -2,6 +2,8 @@ package edu.illinois.cs.projects.today1.task;
 
 /**
  * Class containing all the information for a list of Tasks
+ * A TaskList may start out as a descriptor alone (ID, name, and adapter type), its TaskAdapter only being loaded
+ * 	once the list is about to be shown, and dropped again if memory runs low.
  * 
  * @author Kevin Today
  */
@@ -9,7 +11,10 @@ public class TaskList {
 	// ========== Member Variables ==========
 	private long m_ID;				// task list ID
 	private String m_name;			// task list name
-	private TaskAdapter m_adapter;	// TaskAdapter containing Task objects for the TaskList
+	private TaskAdapter m_adapter;	// TaskAdapter containing Task objects for the TaskList (null if not loaded)
+	private TaskAdapter.Type m_adapterType;	// type the TaskList's adapter has, whether loaded or not
+	private int m_slot;				// dense index the owning TaskApparatus tracks the TaskList by (-1 if none)
+	private int m_position;			// position in the owning TaskApparatus' ring of displayed lists (-1 if none)
 	
 	
 	// ========== Constructors ==========
@@ -31,6 +36,31 @@ public class TaskList {
 		m_ID = ID;
 		m_name = name;
 		m_adapter = adapter;
+		m_adapterType = adapter.getType();
+		m_slot = -1;
+		m_position = -1;
+	}
+	
+	/**
+	 * Instantiates a TaskList descriptor whose TaskAdapter is loaded later
+	 * 
+	 * @param name Name for the TaskList (must not be null)
+	 * @param adapterType Type the TaskList's adapter will have (must not be null)
+	 */
+	public TaskList(long ID, String name, TaskAdapter.Type adapterType) {
+		// sanity check
+		if (name == null) {
+			throw new IllegalArgumentException("TaskList name cannot be null");
+		}
+		if (adapterType == null) {
+			throw new IllegalArgumentException("TaskList adapter type cannot be null");
+		}
+		
+		m_ID = ID;
+		m_name = name;
+		m_adapterType = adapterType;
+		m_slot = -1;
+		m_position = -1;
 	}
 	
 	
@@ -43,10 +73,32 @@ public class TaskList {
 		return m_name;
 	}
 	
+	/**
+	 * @return The TaskList's TaskAdapter, or null if it is not loaded
+	 */
 	public TaskAdapter getAdapter() {
 		return m_adapter;
 	}
 	
+	public TaskAdapter.Type getAdapterType() {
+		return m_adapterType;
+	}
+	
+	/**
+	 * @return 'true' if the TaskList's TaskAdapter is loaded; 'false' if the TaskList is only a descriptor
+	 */
+	public boolean isLoaded() {
+		return m_adapter != null;
+	}
+	
+	int getSlot() {
+		return m_slot;
+	}
+	
+	int getPosition() {
+		return m_position;
+	}
+	
 	// ========== Setter Functions ==========
 	public void setName(String name) {
 		// sanity check
@@ -64,5 +116,33 @@ public class TaskList {
 		}
 		
 		m_adapter = adapter;
+		m_adapterType = adapter.getType();
+	}
+	
+	public void setAdapterType(TaskAdapter.Type adapterType) {
+		// sanity check
+		if (adapterType == null) {
+			throw new IllegalArgumentException("TaskList adapter type cannot be null");
+		}
+		
+		m_adapterType = adapterType;
+		if (m_adapter != null) {
+			m_adapter.setType(adapterType);
+		}
+	}
+	
+	/**
+	 * Drops the TaskList's TaskAdapter, leaving only its descriptor
+	 */
+	void unloadAdapter() {
+		m_adapter = null;
+	}
+	
+	void setSlot(int slot) {
+		m_slot = slot;
+	}
+	
+	void setPosition(int position) {
+		m_position = position;
 	}
 }
@@ -3,8 +3,7 @@ package edu.illinois.cs.projects.today1.task;
 import java.util.Calendar;
 
 import android.content.Context;
-import android.content.SharedPreferences;
-import edu.illinois.cs.projects.today1.POQTListConstants;
+import edu.illinois.cs.projects.today1.POQTListSettings;
 
 public class TaskListFactory {
 	// ========== Member Variables ==========
@@ -54,15 +53,6 @@ public class TaskListFactory {
 	 * @return Free task list ID
 	 */
 	private synchronized long getUnusedID() {
-		// get free ID
-		SharedPreferences preferences = m_context.getSharedPreferences(POQTListConstants.PREFERENCES_FILEPATH, Context.MODE_PRIVATE);
-		long freeID = preferences.getLong(POQTListConstants.PREF_KEY_TASKLIST_ID_COUNTER, 0);
-
-		// increment ID counter
-		SharedPreferences.Editor editor = preferences.edit();
-		editor.putLong(POQTListConstants.PREF_KEY_TASKLIST_ID_COUNTER, freeID + 1);
-		editor.commit();
-		
-		return freeID;
+		return POQTListSettings.getInstance(m_context).claimTaskListID();
 	}
 }
@@ -0,0 +1,101 @@
+package edu.illinois.cs.projects.today1.task;
+
+/**
+ * Record of the TaskLists a Task belongs to, as a bitset over the dense slots TaskApparatus hands its lists
+ * Lets cross-list operations (delete, complete, modify) visit just the set bits instead of checking every list
+ * 	the apparatus owns.
+ *
+ * @author Kevin Today
+ */
+class TaskMembership {
+	// ========== Constants ==========
+	private static final int BITS_PER_WORD = 64;
+
+
+	// ========== Member Variables ==========
+	private long[] m_words;		// bit n is set iff the Task is in the list in slot n
+
+
+	// ========== Constructors ==========
+	/**
+	 * Instantiates a TaskMembership for a Task in no lists
+	 */
+	TaskMembership() {
+		m_words = new long[1];
+	}
+
+
+	// ========== Public Functions ==========
+	/**
+	 * Records that the Task belongs to the list in the given slot
+	 *
+	 * @param slot Slot of the TaskList the Task joined
+	 * @return 'true' if the membership changed; 'false' if the Task was already in the list
+	 */
+	boolean add(int slot) {
+		int word = slot / BITS_PER_WORD;
+		if (word >= m_words.length) {
+			long[] grown = new long[Math.max(word + 1, m_words.length * 2)];
+			System.arraycopy(m_words, 0, grown, 0, m_words.length);
+			m_words = grown;
+		}
+
+		long bit = 1L << (slot % BITS_PER_WORD);
+		if ((m_words[word] & bit) != 0) {
+			return false;
+		}
+		m_words[word] |= bit;
+		return true;
+	}
+
+	/**
+	 * Records that the Task no longer belongs to the list in the given slot
+	 *
+	 * @param slot Slot of the TaskList the Task left
+	 * @return 'true' if the membership changed; 'false' if the Task was not in the list
+	 */
+	boolean remove(int slot) {
+		if (!contains(slot)) {
+			return false;
+		}
+		m_words[slot / BITS_PER_WORD] &= ~(1L << (slot % BITS_PER_WORD));
+		return true;
+	}
+
+	/**
+	 * Checks if the Task belongs to the list in the given slot
+	 *
+	 * @param slot Slot of the TaskList to check
+	 * @return 'true' if the Task is in the list; 'false' if not
+	 */
+	boolean contains(int slot) {
+		int word = slot / BITS_PER_WORD;
+		return word < m_words.length && (m_words[word] & (1L << (slot % BITS_PER_WORD))) != 0;
+	}
+
+	/**
+	 * Finds the first slot at or after the given one whose list holds the Task
+	 * Walk every list holding the Task with:
+	 * 	for (int slot = membership.nextSlot(0); slot != -1; slot = membership.nextSlot(slot + 1))
+	 *
+	 * @param fromSlot Slot to start searching at
+	 * @return The next slot holding the Task, or -1 if there is none
+	 */
+	int nextSlot(int fromSlot) {
+		int word = fromSlot / BITS_PER_WORD;
+		if (word >= m_words.length) {
+			return -1;
+		}
+
+		// ignore bits below the starting slot, then skip empty words
+		long bits = m_words[word] & (-1L << (fromSlot % BITS_PER_WORD));
+		while (bits == 0) {
+			word++;
+			if (word == m_words.length) {
+				return -1;
+			}
+			bits = m_words[word];
+		}
+		return word * BITS_PER_WORD + Long.numberOfTrailingZeros(bits);
+	}
+}
@@ -0,0 +1,37 @@
+package edu.illinois.cs.projects.today1.task;
+
+/**
+ * Source a windowed TaskAdapter reads its TaskList through, one page of rows at a time
+ * A list's rows are ordered newest membership first, and each row carries a key that decreases down the list, so a
+ * 	page following one already read can be found from that page's last key instead of by counting rows from the top.
+ * NOTE: Pages are loaded off the UI thread, so implementations must be safe to call from a background thread.
+ *
+ * @author Kevin Today
+ */
+public interface TaskPageSource {
+	// ========== Constants ==========
+	public static final long NO_KEY = Long.MAX_VALUE;	// key to read after when a page's start is found by offset
+
+
+	// ========== Functions ==========
+	/**
+	 * Counts the Tasks in the given TaskList
+	 *
+	 * @param listID ID of the TaskList
+	 * @return Number of Tasks in the list
+	 */
+	public int countListTasks(long listID);
+
+	/**
+	 * Reads one page of the given TaskList's Tasks
+	 *
+	 * @param listID ID of the TaskList
+	 * @param afterKey Key of the row just before the page, or NO_KEY to find the page by offset
+	 * @param offset Position of the page's first row (only used if afterKey is NO_KEY)
+	 * @param store TaskStore to hold the page's Tasks
+	 * @param tasks Array to fill with the page's Tasks (its length is the most rows read)
+	 * @param rowKeys Array to fill with the key of each row read, in step with tasks
+	 * @return Number of rows read
+	 */
+	public int loadListPage(long listID, long afterKey, int offset, TaskStore store, Task[] tasks, long[] rowKeys);
+}
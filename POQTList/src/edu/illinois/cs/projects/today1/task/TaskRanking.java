@@ -0,0 +1,59 @@
+package edu.illinois.cs.projects.today1.task;
+
+/**
+ * Immutable snapshot of a TaskAdapter's Tasks in ranked order at one moment
+ * Snapshots are built under the adapter's order lock (on the RankingScheduler's thread, or on the UI thread after
+ * 	a change) and then only read, so the UI thread can index into one without locking and without ranking anything.
+ *
+ * @author Kevin Today
+ */
+class TaskRanking {
+	// ========== Member Variables ==========
+	private final Task[] m_tasks;		// Tasks, most urgent first
+	private final long[] m_ids;			// IDs of the Tasks, in step with m_tasks (read once, since a removed Task may be released)
+	private final long m_rankingTime;	// time in milliseconds the Tasks were ranked at
+	private final int m_modCount;		// adapter modification count the snapshot was built at
+	private final int m_orderVersion;	// adapter order version the snapshot was built at
+
+
+	// ========== Constructors ==========
+	TaskRanking(Task[] tasks, long[] ids, long rankingTime, int modCount, int orderVersion) {
+		m_tasks = tasks;
+		m_ids = ids;
+		m_rankingTime = rankingTime;
+		m_modCount = modCount;
+		m_orderVersion = orderVersion;
+	}
+
+
+	// ========== Getter Functions ==========
+	int size() {
+		return m_tasks.length;
+	}
+
+	Task get(int position) {
+		return m_tasks[position];
+	}
+
+	long getID(int position) {
+		return m_ids[position];
+	}
+
+	long getRankingTime() {
+		return m_rankingTime;
+	}
+
+	/**
+	 * @return The number of additions and removals the adapter had seen when the snapshot was built
+	 */
+	int getModCount() {
+		return m_modCount;
+	}
+
+	/**
+	 * @return The number of times time had reordered the adapter's Tasks when the snapshot was built
+	 */
+	int getOrderVersion() {
+		return m_orderVersion;
+	}
+}
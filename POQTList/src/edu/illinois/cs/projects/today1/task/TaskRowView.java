@@ -0,0 +1,330 @@
+package edu.illinois.cs.projects.today1.task;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.text.StaticLayout;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+
+/**
+ * Single View drawing one Task's row: its background, its description, and its due date label
+ * Replaces a RelativeLayout holding two TextViews, so a row costs one View to measure and draw, and the text itself
+ * 	is laid out once per Task and width by a shared TaskLayoutCache rather than on every bind. A description too
+ * 	wide for the row is ellipsized, and scrolls as a marquee only while the row is selected or focused, so the rows
+ * 	merely on screen never redraw on their own. A row whose Task is not loaded yet draws a one-line placeholder.
+ * 	Rows are never shorter than their minimum height (android:minHeight in task.xml).
+ * NOTE: Every bind only invalidates (or re-measures) the row if something it draws actually changed.
+ *
+ * @author Kevin Today
+ */
+public class TaskRowView extends View {
+	// ========== Constants ==========
+	private static final long MARQUEE_START_DELAY = 1200;	// milliseconds the row rests before scrolling
+	private static final long MARQUEE_FRAME_DELAY = 33;		// milliseconds between marquee frames (~30 fps)
+	private static final float MARQUEE_SPEED_DIP = 1;		// distance the description scrolls each frame
+	private static final float MARQUEE_GAP_DIP = 48;		// space between the end of the description and its repeat
+
+
+	// ========== Member Variables ==========
+	private TaskLayoutCache m_layoutCache;	// cache the row's layouts come from (null until first bound)
+	private Task m_task;					// Task shown (null if unbound or showing a placeholder)
+	private String m_dueLabel;				// due date label shown (null if none)
+	private TaskLayoutCache.RowLayouts m_layouts;	// layouts last drawn (null until measured)
+
+	// colors last bound
+	private int m_textColor;
+	private int m_subTextColor;
+	private int m_backgroundColor;			// transparent (0) draws no background
+
+	// marquee state
+	private final float m_marqueeSpeed;		// pixels scrolled each frame
+	private final float m_marqueeGap;		// pixels between repeats of the description
+	private boolean m_marqueeEnabled;		// whether a truncated description may scroll (off until selected or focused)
+	private StaticLayout m_marqueeLayout;	// full description being scrolled (null if not scrolling)
+	private float m_marqueeOffset;			// how far the description has scrolled
+	private final Runnable m_marqueeStep = new Runnable() {
+		public void run() {
+			stepMarquee();
+		}
+	};
+
+
+	// ========== Constructors ==========
+	public TaskRowView(Context context) {
+		this(context, null);
+	}
+
+	public TaskRowView(Context context, AttributeSet attrs) {
+		super(context, attrs);
+		m_marqueeSpeed = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, MARQUEE_SPEED_DIP, getResources().getDisplayMetrics());
+		m_marqueeGap = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, MARQUEE_GAP_DIP, getResources().getDisplayMetrics());
+		m_textColor = 0xFFFFFFFF;
+		m_subTextColor = 0xFFC0C0C0;
+	}
+
+
+	// ========== Public Functions ==========
+	/**
+	 * Shows the given Task in the row
+	 *
+	 * @param layoutCache Cache to take the row's text layouts from (non-null)
+	 * @param task Task to show (non-null)
+	 * @param dueLabel The Task's due date label (null if it has none)
+	 */
+	public void bindTask(TaskLayoutCache layoutCache, Task task, String dueLabel) {
+		// sanity checks
+		if (layoutCache == null) {
+			throw new IllegalArgumentException("TaskRowView layout cache must not be null");
+		}
+		if (task == null) {
+			throw new IllegalArgumentException("TaskRowView cannot show a null Task");
+		}
+
+		// the row's height only depends on whether it has a due date line
+		boolean heightChanged = m_layoutCache == null || (dueLabel == null) != (m_dueLabel == null);
+		m_layoutCache = layoutCache;
+		m_task = task;
+		m_dueLabel = dueLabel;
+		if (heightChanged) {
+			stopMarquee();
+			m_layouts = null;
+			requestLayout();
+			invalidate();
+			return;
+		}
+
+		// same height, so redraw only if the text (and therefore the cached layouts) changed
+		TaskLayoutCache.RowLayouts layouts = findLayouts(getWidth() - getPaddingLeft() - getPaddingRight());
+		if (layouts != m_layouts) {
+			m_layouts = layouts;
+			stopMarquee();
+			updateMarquee();
+			invalidate();
+		}
+	}
+
+	/**
+	 * Shows a placeholder in the row while its Task is being loaded
+	 *
+	 * @param layoutCache Cache to take the placeholder's layout from (non-null)
+	 */
+	public void bindPlaceholder(TaskLayoutCache layoutCache) {
+		// sanity check
+		if (layoutCache == null) {
+			throw new IllegalArgumentException("TaskRowView layout cache must not be null");
+		}
+		if (m_layoutCache != null && m_task == null) {
+			return;
+		}
+
+		// a placeholder has one line, like a Task without a due date
+		boolean heightChanged = m_layoutCache == null || m_dueLabel != null;
+		m_layoutCache = layoutCache;
+		m_task = null;
+		m_dueLabel = null;
+		stopMarquee();
+		m_layouts = null;
+		if (heightChanged) {
+			requestLayout();
+		}
+		invalidate();
+	}
+
+	/**
+	 * Colors the row
+	 *
+	 * @param textColor Color of the description
+	 * @param subTextColor Color of the due date label
+	 * @param backgroundColor Color of the row's background (transparent for none)
+	 */
+	public void bindColors(int textColor, int subTextColor, int backgroundColor) {
+		if (textColor == m_textColor && subTextColor == m_subTextColor && backgroundColor == m_backgroundColor) {
+			return;
+		}
+
+		m_textColor = textColor;
+		m_subTextColor = subTextColor;
+		m_backgroundColor = backgroundColor;
+		invalidate();
+	}
+
+	@Override
+	public void setSelected(boolean selected) {
+		super.setSelected(selected);
+		setMarqueeEnabled(selected || isFocused());
+	}
+
+
+	// ========== Setter Functions ==========
+	/**
+	 * Sets whether a truncated description scrolls
+	 * The row turns this on while it is selected or focused, and off again once it is neither
+	 *
+	 * @param enabled 'true' to scroll; 'false' to keep it ellipsized
+	 */
+	public void setMarqueeEnabled(boolean enabled) {
+		m_marqueeEnabled = enabled;
+		updateMarquee();
+	}
+
+
+	// ========== View Functions ==========
+	@Override
+	protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+		int width = getDefaultSize(0, widthMeasureSpec);
+		int contentWidth = width - getPaddingLeft() - getPaddingRight();
+
+		int contentHeight = 0;
+		if (m_layoutCache != null) {
+			TaskLayoutCache.RowLayouts layouts = findLayouts(contentWidth);
+			if (layouts != m_layouts) {
+				// a truncated description starts scrolling once it is laid out
+				m_layouts = layouts;
+				stopMarquee();
+				updateMarquee();
+			}
+			contentHeight = findTextHeight(m_layouts);
+		}
+
+		int height = resolveSize(Math.max(contentHeight + getPaddingTop() + getPaddingBottom(), getSuggestedMinimumHeight()), heightMeasureSpec);
+		setMeasuredDimension(width, height);
+	}
+
+	@Override
+	protected void onDraw(Canvas canvas) {
+		if ((m_backgroundColor >>> 24) != 0) {
+			canvas.drawColor(m_backgroundColor);
+		}
+		if (m_layoutCache == null) {
+			return;
+		}
+
+		TaskLayoutCache.RowLayouts layouts = findLayouts(getWidth() - getPaddingLeft() - getPaddingRight());
+		if (layouts != m_layouts) {
+			m_layouts = layouts;
+			stopMarquee();
+			updateMarquee();
+		}
+
+		int left = getPaddingLeft();
+		int right = getWidth() - getPaddingRight();
+		int top = getPaddingTop() + (getHeight() - getPaddingTop() - getPaddingBottom() - findTextHeight(layouts)) / 2;
+		StaticLayout descriptionLayout = layouts.getDescriptionLayout();
+		StaticLayout dueDateLayout = layouts.getDueDateLayout();
+
+		// description, scrolling if the marquee is running
+		m_layoutCache.getDescriptionPaint().setColor(m_textColor);
+		canvas.save();
+		if (m_marqueeLayout != null) {
+			canvas.clipRect(left, top, right, top + descriptionLayout.getHeight());
+			canvas.translate(left - m_marqueeOffset, top);
+			m_marqueeLayout.draw(canvas);
+			canvas.translate(m_marqueeLayout.getWidth() + m_marqueeGap, 0);
+			m_marqueeLayout.draw(canvas);
+		}
+		else {
+			canvas.translate(left, top);
+			descriptionLayout.draw(canvas);
+		}
+		canvas.restore();
+
+		// due date label beneath it
+		if (dueDateLayout != null) {
+			m_layoutCache.getDueDatePaint().setColor(m_subTextColor);
+			canvas.save();
+			canvas.translate(left, top + descriptionLayout.getHeight());
+			dueDateLayout.draw(canvas);
+			canvas.restore();
+		}
+	}
+
+	@Override
+	protected void onFocusChanged(boolean gainFocus, int direction, Rect previouslyFocusedRect) {
+		super.onFocusChanged(gainFocus, direction, previouslyFocusedRect);
+		setMarqueeEnabled(gainFocus || isSelected());
+	}
+
+	@Override
+	protected void onAttachedToWindow() {
+		super.onAttachedToWindow();
+		updateMarquee();
+	}
+
+	@Override
+	protected void onDetachedFromWindow() {
+		stopMarquee();
+		super.onDetachedFromWindow();
+	}
+
+
+	// ========== Helper Functions ==========
+	/**
+	 * Gets the layouts of the bound Task (or of the placeholder) for the given width
+	 */
+	private TaskLayoutCache.RowLayouts findLayouts(int contentWidth) {
+		if (m_task == null) {
+			return m_layoutCache.findPlaceholderLayouts(contentWidth);
+		}
+		return m_layoutCache.findLayouts(m_task, m_dueLabel, contentWidth);
+	}
+
+	/**
+	 * Totals the height of the given layouts' text
+	 */
+	private static int findTextHeight(TaskLayoutCache.RowLayouts layouts) {
+		int height = layouts.getDescriptionLayout().getHeight();
+		if (layouts.getDueDateLayout() != null) {
+			height += layouts.getDueDateLayout().getHeight();
+		}
+		return height;
+	}
+
+	/**
+	 * Starts the marquee if it is enabled and the row's description is truncated, or stops it if not
+	 */
+	private void updateMarquee() {
+		boolean wanted = m_marqueeEnabled && m_layouts != null && m_layouts.isDescriptionTruncated();
+		if (!wanted) {
+			stopMarquee();
+		}
+		else if (m_marqueeLayout == null) {
+			m_marqueeLayout = m_layoutCache.layOutMarquee(m_layouts);
+			m_marqueeOffset = 0;
+			postDelayed(m_marqueeStep, MARQUEE_START_DELAY);
+			invalidate();
+		}
+	}
+
+	/**
+	 * Stops scrolling and goes back to the ellipsized description
+	 */
+	private void stopMarquee() {
+		if (m_marqueeLayout == null) {
+			return;
+		}
+
+		removeCallbacks(m_marqueeStep);
+		m_marqueeLayout = null;
+		m_marqueeOffset = 0;
+		invalidate();
+	}
+
+	/**
+	 * Scrolls the description one frame, wrapping around once its repeat reaches the start
+	 */
+	private void stepMarquee() {
+		if (m_marqueeLayout == null) {
+			return;
+		}
+
+		float cycle = m_marqueeLayout.getWidth() + m_marqueeGap;
+		m_marqueeOffset += m_marqueeSpeed;
+		if (m_marqueeOffset >= cycle) {
+			m_marqueeOffset -= cycle;
+		}
+		invalidate();
+		postDelayed(m_marqueeStep, MARQUEE_FRAME_DELAY);
+	}
+}
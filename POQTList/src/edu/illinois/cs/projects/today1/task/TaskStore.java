@@ -0,0 +1,269 @@
+package edu.illinois.cs.projects.today1.task;
+
+/**
+ * Columnar storage for Task data
+ * Each Task field lives in its own primitive array, indexed by a slot number, and descriptions are packed into one
+ * 	shared char arena. A Task object is only a view onto its slot, so large lists cost a few primitives per Task
+ * 	instead of a Calendar, an enum reference and a String each.
+ * NOTE: A TaskStore is not thread-safe; it is meant to be used from the UI thread.
+ *
+ * @author Kevin Today
+ */
+public class TaskStore {
+	// ========== Constants ==========
+	private static final int DEFAULT_CAPACITY = 16;				// slots allocated up front
+	private static final int DEFAULT_ARENA_CAPACITY = 256;		// description chars allocated up front
+	private static final byte NO_ALARM = -1;					// alarm ordinal marking a null alarm
+
+
+	// ========== Member Variables ==========
+	private long[] m_ids;						// ID of the Task in each slot
+	private long[] m_dueMillis;					// due date of each slot in milliseconds (Task.NO_DUE_DATE if none)
+	private byte[] m_priorities;				// priority ordinal of each slot
+	private byte[] m_alarms;					// alarm ordinal of each slot (NO_ALARM if none)
+	private int[] m_descriptionOffsets;			// start of each slot's description in the arena
+	private int[] m_descriptionLengths;			// length of each slot's description
+	private char[] m_arena;						// packed description characters
+	private int m_arenaSize;					// chars of the arena in use, including stale descriptions
+	private int m_liveChars;					// chars of the arena belonging to live descriptions
+	private int m_slotCount;					// slots ever handed out (highest slot + 1)
+	private int[] m_freeSlots;					// stack of released slots ready for reuse
+	private int m_freeCount;					// number of slots on the free stack
+
+
+	// ========== Constructors ==========
+	/**
+	 * Instantiates an empty TaskStore
+	 */
+	public TaskStore() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Instantiates an empty TaskStore with room for the given number of Tasks before growing
+	 *
+	 * @param capacity Number of Tasks to allocate room for
+	 */
+	public TaskStore(int capacity) {
+		// sanity check
+		if (capacity < 1) {
+			throw new IllegalArgumentException("TaskStore capacity must be positive");
+		}
+
+		m_ids = new long[capacity];
+		m_dueMillis = new long[capacity];
+		m_priorities = new byte[capacity];
+		m_alarms = new byte[capacity];
+		m_descriptionOffsets = new int[capacity];
+		m_descriptionLengths = new int[capacity];
+		m_arena = new char[Math.max(capacity * 16, DEFAULT_ARENA_CAPACITY)];
+		m_freeSlots = new int[capacity];
+	}
+
+
+	// ========== Public Functions ==========
+	/**
+	 * Claims a slot and fills it with the given Task data
+	 *
+	 * @param id The Task's ID
+	 * @param description The Task's description (non-null)
+	 * @param dueMillis The Task's due date in milliseconds (Task.NO_DUE_DATE if none)
+	 * @param priority The Task's priority (non-null)
+	 * @param alarm The Task's alarm (null if none)
+	 * @return The slot now holding the Task
+	 */
+	public int allocate(long id, String description, long dueMillis, Task.Priority priority, Task.Alarm alarm) {
+		int slot;
+		if (m_freeCount > 0) {
+			slot = m_freeSlots[--m_freeCount];
+		}
+		else {
+			if (m_slotCount == m_ids.length) {
+				growSlots();
+			}
+			slot = m_slotCount++;
+		}
+
+		m_ids[slot] = id;
+		m_dueMillis[slot] = dueMillis;
+		m_descriptionLengths[slot] = 0;
+		setPriority(slot, priority);
+		setAlarm(slot, alarm);
+		setDescription(slot, description);
+		return slot;
+	}
+
+	/**
+	 * Returns the given slot to the store for reuse
+	 * WARNING: Any Task still viewing the slot will see whichever Task claims it next!
+	 *
+	 * @param slot Slot to release
+	 */
+	public void release(int slot) {
+		m_liveChars -= m_descriptionLengths[slot];
+		m_descriptionLengths[slot] = 0;
+		if (m_freeCount == m_freeSlots.length) {
+			int[] grown = new int[m_freeSlots.length * 2];
+			System.arraycopy(m_freeSlots, 0, grown, 0, m_freeCount);
+			m_freeSlots = grown;
+		}
+		m_freeSlots[m_freeCount++] = slot;
+	}
+
+	/**
+	 * Counts the Tasks currently held
+	 *
+	 * @return Number of occupied slots
+	 */
+	public int size() {
+		return m_slotCount - m_freeCount;
+	}
+
+
+	// ========== Getter Functions ==========
+	public long getID(int slot) {
+		return m_ids[slot];
+	}
+
+	public long getDueMillis(int slot) {
+		return m_dueMillis[slot];
+	}
+
+	public int getPriorityOrdinal(int slot) {
+		return m_priorities[slot];
+	}
+
+	/**
+	 * @return The slot's alarm ordinal, or -1 if it has no alarm
+	 */
+	public int getAlarmOrdinal(int slot) {
+		return m_alarms[slot];
+	}
+
+	/**
+	 * Builds the given slot's description
+	 * NOTE: This allocates a String; renderers can read the characters in place through getDescriptionChars
+	 *
+	 * @param slot Slot to read
+	 * @return The slot's description
+	 */
+	public String getDescription(int slot) {
+		return new String(m_arena, m_descriptionOffsets[slot], m_descriptionLengths[slot]);
+	}
+
+	/**
+	 * Gets the arena holding descriptions; a slot's description is the range starting at getDescriptionOffset
+	 * 	with length getDescriptionLength
+	 * NOTE: The arena is replaced as it grows, so fetch it again after any modification. Characters already
+	 * 	written to an arena are never overwritten (descriptions are only ever appended, and compaction copies into a
+	 * 	new arena), so a range read from an arena keeps its contents for as long as the array is held.
+	 *
+	 * @return The description arena (do not modify)
+	 */
+	public char[] getDescriptionChars() {
+		return m_arena;
+	}
+
+	public int getDescriptionOffset(int slot) {
+		return m_descriptionOffsets[slot];
+	}
+
+	public int getDescriptionLength(int slot) {
+		return m_descriptionLengths[slot];
+	}
+
+
+	// ========== Setter Functions ==========
+	public void setDueMillis(int slot, long dueMillis) {
+		m_dueMillis[slot] = dueMillis;
+	}
+
+	public void setPriority(int slot, Task.Priority priority) {
+		m_priorities[slot] = (byte)priority.ordinal();
+	}
+
+	public void setAlarm(int slot, Task.Alarm alarm) {
+		m_alarms[slot] = (alarm == null) ? NO_ALARM : (byte)alarm.ordinal();
+	}
+
+	/**
+	 * Replaces the given slot's description; the old characters are reclaimed the next time the arena is compacted
+	 *
+	 * @param slot Slot to modify
+	 * @param description New description (non-null)
+	 */
+	public void setDescription(int slot, String description) {
+		int length = description.length();
+		m_liveChars -= m_descriptionLengths[slot];
+		m_descriptionLengths[slot] = 0;
+
+		// make room, compacting first if most of the arena is stale
+		if (m_arenaSize + length > m_arena.length) {
+			if (m_liveChars + length <= m_arena.length / 2) {
+				compactArena(m_arena.length);
+			}
+			else {
+				compactArena(Math.max(m_arena.length * 2, m_liveChars + length));
+			}
+		}
+
+		description.getChars(0, length, m_arena, m_arenaSize);
+		m_descriptionOffsets[slot] = m_arenaSize;
+		m_descriptionLengths[slot] = length;
+		m_arenaSize += length;
+		m_liveChars += length;
+	}
+
+
+	// ========== Helper Functions ==========
+	/**
+	 * Grows every column to make room for more slots
+	 */
+	private void growSlots() {
+		int capacity = m_ids.length * 2;
+
+		long[] ids = new long[capacity];
+		System.arraycopy(m_ids, 0, ids, 0, m_slotCount);
+		m_ids = ids;
+
+		long[] dueMillis = new long[capacity];
+		System.arraycopy(m_dueMillis, 0, dueMillis, 0, m_slotCount);
+		m_dueMillis = dueMillis;
+
+		byte[] priorities = new byte[capacity];
+		System.arraycopy(m_priorities, 0, priorities, 0, m_slotCount);
+		m_priorities = priorities;
+
+		byte[] alarms = new byte[capacity];
+		System.arraycopy(m_alarms, 0, alarms, 0, m_slotCount);
+		m_alarms = alarms;
+
+		int[] offsets = new int[capacity];
+		System.arraycopy(m_descriptionOffsets, 0, offsets, 0, m_slotCount);
+		m_descriptionOffsets = offsets;
+
+		int[] lengths = new int[capacity];
+		System.arraycopy(m_descriptionLengths, 0, lengths, 0, m_slotCount);
+		m_descriptionLengths = lengths;
+	}
+
+	/**
+	 * Copies every live description into a fresh arena of the given size, dropping stale characters
+	 *
+	 * @param capacity Size of the new arena
+	 */
+	private void compactArena(int capacity) {
+		char[] arena = new char[capacity];
+		int size = 0;
+		for (int slot = 0; slot < m_slotCount; slot++) {
+			int length = m_descriptionLengths[slot];
+			if (length > 0) {
+				System.arraycopy(m_arena, m_descriptionOffsets[slot], arena, size, length);
+				m_descriptionOffsets[slot] = size;
+				size += length;
+			}
+		}
+		m_arena = arena;
+		m_arenaSize = size;
+	}
+}
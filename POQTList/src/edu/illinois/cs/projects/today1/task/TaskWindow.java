@@ -0,0 +1,337 @@
+package edu.illinois.cs.projects.today1.task;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import edu.illinois.cs.projects.today1.POQTListConstants;
+
+/**
+ * Window onto a TaskList too long to hold in memory, read through a TaskPageSource one fixed-size page at a time
+ * Only the few pages around where the list was last read are kept (least recently used pages are dropped), and
+ * 	missing pages are read on a background thread, so memory use and load time stay flat however long the list
+ * 	grows. Rows whose page is not loaded yet read as null until it arrives. The list's count is read on the same
+ * 	thread, so the UI thread never waits on the database.
+ * NOTE: A TaskWindow is not thread-safe; apart from its own fetch thread, it is meant to be used from the UI thread.
+ *
+ * @author Kevin Today
+ */
+class TaskWindow {
+	// ========== Constants ==========
+	static final int PAGE_SIZE = 40;					// rows read per page
+	private static final int MAX_PAGES = 5;				// pages kept in memory at once
+	private static final int PREFETCH_DISTANCE = 10;	// rows from a page's edge at which the neighbouring page is read
+	private static final int UNKNOWN_COUNT = -1;		// count of a window whose list changed since it was counted
+
+
+	// ========== Member Variables ==========
+	private final TaskPageSource m_source;			// source the list's rows are read from
+	private final long m_listID;					// ID of the windowed TaskList
+	private final Handler m_uiHandler;				// UI thread handler loaded pages are delivered on
+	private final PageListener m_listener;			// told whenever a page or a recount arrives
+	private HandlerThread m_fetchThread;			// background thread pages are read on (null until needed)
+	private Handler m_fetchHandler;					// handler of the fetch thread (null until needed)
+	private final LinkedHashMap<Integer, Page> m_pages;	// loaded pages by page number, least recently used first
+	private final HashSet<Integer> m_pendingPages;	// page numbers being read
+	private int m_count;							// number of rows in the list (UNKNOWN_COUNT until first counted)
+	private int m_generation;						// bumped on every change, so pages read before it are discarded
+	private boolean m_refreshing;					// whether a recount is being read (pages shown are stale meanwhile)
+	private int m_lastPage;							// page holding the row read most recently (-1 if none)
+
+
+	// ========== Constructors ==========
+	/**
+	 * Instantiates a TaskWindow onto the given TaskList; nothing is read until the window is first used
+	 *
+	 * @param source Source to read the list's rows from
+	 * @param listID ID of the TaskList to window
+	 * @param uiLooper Looper of the UI thread
+	 * @param listener Listener to tell whenever a page arrives
+	 */
+	TaskWindow(TaskPageSource source, long listID, Looper uiLooper, PageListener listener) {
+		// sanity check
+		if (source == null) {
+			throw new IllegalArgumentException("TaskWindow source cannot be null");
+		}
+
+		m_source = source;
+		m_listID = listID;
+		m_uiHandler = new Handler(uiLooper);
+		m_listener = listener;
+		m_pages = new LinkedHashMap<Integer, Page>(MAX_PAGES + 1, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+				return size() > MAX_PAGES;
+			}
+		};
+		m_pendingPages = new HashSet<Integer>();
+		m_count = UNKNOWN_COUNT;
+		m_lastPage = -1;
+	}
+
+
+	// ========== Public Functions ==========
+	/**
+	 * Counts the rows in the list as of the last count read, starting the first count if there has been none
+	 *
+	 * @return Number of rows in the list (0 until the first count arrives)
+	 */
+	int size() {
+		if (m_count == UNKNOWN_COUNT) {
+			if (!m_refreshing) {
+				refresh();
+			}
+			return 0;
+		}
+		return m_count;
+	}
+
+	/**
+	 * Gets the Task at the given position, requesting its page (and a neighbouring page, near an edge) if needed
+	 *
+	 * @param position Position of the row in the list
+	 * @return The Task, or null if its page has not arrived yet
+	 */
+	Task get(int position) {
+		int page = position / PAGE_SIZE;
+		int row = position % PAGE_SIZE;
+		m_lastPage = page;
+
+		// read ahead in whichever direction the reader is heading
+		if (row >= PAGE_SIZE - PREFETCH_DISTANCE && (page + 1) * PAGE_SIZE < size()) {
+			requestPage(page + 1);
+		}
+		else if (row < PREFETCH_DISTANCE && page > 0) {
+			requestPage(page - 1);
+		}
+
+		Page loaded = m_pages.get(page);
+		if (loaded == null) {
+			requestPage(page);
+			return null;
+		}
+		return (row < loaded.size) ? loaded.tasks[row] : null;
+	}
+
+	/**
+	 * Checks if the given Task is in one of the loaded pages
+	 *
+	 * @param task Task to look for
+	 * @return 'true' if a loaded page holds the Task; 'false' if not (it may still be in an unloaded page)
+	 */
+	boolean containsLoaded(Task task) {
+		for (Page page : m_pages.values()) {
+			for (int row = 0; row < page.size; row++) {
+				if (page.tasks[row].getID() == task.getID()) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reads the count and the page read most recently again after the list changed
+	 * The stale pages and count stay in use until the new ones arrive, so the rows on screen do not flash as
+	 * 	placeholders; the listener is told once they have.
+	 */
+	void invalidate() {
+		refresh();
+	}
+
+	/**
+	 * Stops the fetch thread and forgets everything loaded; the window starts afresh if it is used again
+	 */
+	void close() {
+		m_generation++;
+		m_pages.clear();
+		m_pendingPages.clear();
+		m_count = UNKNOWN_COUNT;
+		m_refreshing = false;
+		if (m_fetchThread != null) {
+			m_fetchThread.quit();
+			m_fetchThread = null;
+			m_fetchHandler = null;
+		}
+	}
+
+
+	// ========== Helper Functions ==========
+	/**
+	 * Reads the count, and the page read most recently, on the fetch thread; pages read before are discarded
+	 */
+	private void refresh() {
+		m_generation++;
+		m_pendingPages.clear();
+		m_refreshing = true;
+
+		final int generation = m_generation;
+		final int lastPage = m_lastPage;
+		startFetchThread();
+		m_fetchHandler.post(new Runnable() {
+			public void run() {
+				final int count;
+				Page read = null;
+				try {
+					count = m_source.countListTasks(m_listID);
+					if (lastPage >= 0 && lastPage * PAGE_SIZE < count) {
+						read = readPage(lastPage, TaskPageSource.NO_KEY);
+					}
+				}
+				catch (RuntimeException exc) {
+					// the database may have been closed under the read; the stale rows stay until the next change
+					Log.e(POQTListConstants.LOG_TAG, "Could not recount list " + m_listID, exc);
+					m_uiHandler.post(new Runnable() {
+						public void run() {
+							if (generation == m_generation) {
+								m_refreshing = false;
+							}
+						}
+					});
+					return;
+				}
+
+				final Page loaded = read;
+				m_uiHandler.post(new Runnable() {
+					public void run() {
+						deliverRefresh(generation, count, lastPage, loaded);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Replaces the stale count and pages with the ones read on the fetch thread, unless the list changed again
+	 * 	while they were being read
+	 */
+	private void deliverRefresh(int generation, int count, int page, Page loaded) {
+		if (generation != m_generation) {
+			return;
+		}
+
+		m_refreshing = false;
+		m_count = count;
+		m_pages.clear();
+		if (loaded != null) {
+			m_pages.put(page, loaded);
+		}
+		if (m_listener != null) {
+			m_listener.onListRefreshed();
+		}
+	}
+
+	/**
+	 * Reads the given page on the fetch thread unless it is loaded or already being read
+	 * A page following a loaded page is found by that page's last key; any other page is found by offset.
+	 * NOTE: No page is read while a recount is, since the count and pages on hand are stale until it arrives
+	 *
+	 * @param page Number of the page to read
+	 */
+	private void requestPage(final int page) {
+		Integer key = Integer.valueOf(page);
+		if (m_refreshing || m_pages.containsKey(key) || m_pendingPages.contains(key)) {
+			return;
+		}
+
+		Page previous = m_pages.get(page - 1);
+		final long afterKey = (previous != null && previous.size > 0) ? previous.rowKeys[previous.size - 1] : TaskPageSource.NO_KEY;
+		final int generation = m_generation;
+		m_pendingPages.add(key);
+		startFetchThread();
+		m_fetchHandler.post(new Runnable() {
+			public void run() {
+				final Page loaded;
+				try {
+					loaded = readPage(page, afterKey);
+				}
+				catch (RuntimeException exc) {
+					// the database may have been closed under the read; the page is requested again when next needed
+					Log.e(POQTListConstants.LOG_TAG, "Could not read page " + page + " of list " + m_listID, exc);
+					m_uiHandler.post(new Runnable() {
+						public void run() {
+							if (generation == m_generation) {
+								m_pendingPages.remove(Integer.valueOf(page));
+							}
+						}
+					});
+					return;
+				}
+
+				m_uiHandler.post(new Runnable() {
+					public void run() {
+						deliverPage(generation, page, loaded);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * Stores a page read on the fetch thread, unless the list changed while it was being read
+	 */
+	private void deliverPage(int generation, int page, Page loaded) {
+		if (generation != m_generation) {
+			return;
+		}
+
+		m_pendingPages.remove(Integer.valueOf(page));
+		m_pages.put(page, loaded);
+		if (m_listener != null) {
+			m_listener.onPageLoaded(page * PAGE_SIZE, loaded.size);
+		}
+	}
+
+	/**
+	 * Reads the given page from the source, into a TaskStore of its own so the page can be dropped as a whole
+	 */
+	private Page readPage(int page, long afterKey) {
+		Page loaded = new Page();
+		loaded.size = m_source.loadListPage(m_listID, afterKey, page * PAGE_SIZE, new TaskStore(PAGE_SIZE), loaded.tasks, loaded.rowKeys);
+		return loaded;
+	}
+
+	/**
+	 * Starts the fetch thread if it is not running
+	 */
+	private void startFetchThread() {
+		if (m_fetchThread == null) {
+			m_fetchThread = new HandlerThread("TaskWindow", Process.THREAD_PRIORITY_BACKGROUND);
+			m_fetchThread.start();
+			m_fetchHandler = new Handler(m_fetchThread.getLooper());
+		}
+	}
+
+
+	// ========== Inner Classes ==========
+	/**
+	 * Listener told whenever a page of rows, or a recount of the list, arrives
+	 */
+	interface PageListener {
+		/**
+		 * @param firstPosition Position of the page's first row
+		 * @param count Number of rows the page holds
+		 */
+		void onPageLoaded(int firstPosition, int count);
+
+		/**
+		 * Called once the list's count and the page read most recently have been read again after a change;
+		 * 	every row may have moved
+		 */
+		void onListRefreshed();
+	}
+
+	/**
+	 * One page of rows
+	 */
+	private static class Page {
+		final Task[] tasks = new Task[PAGE_SIZE];		// the page's Tasks
+		final long[] rowKeys = new long[PAGE_SIZE];		// key of each row, in step with tasks
+		int size;										// number of rows read
+	}
+}
@@ -0,0 +1,262 @@
+package edu.illinois.cs.projects.today1.task;
+
+import java.util.Arrays;
+
+import android.graphics.Color;
+import edu.illinois.cs.projects.today1.POQTListSettings;
+
+/**
+ * Precomputed Task coloring for every possible Urgency Score
+ * Entry 0 holds "no urgency" coloring, entries 1 through urgencyScale hold the scaled low/mid/high coloring for
+ * 	scores 0 through urgencyScale - 1, and the last entry holds "overdue" coloring, so coloring a Task is an index
+ * 	into each table.
+ *
+ * @author Kevin Today
+ */
+class UrgencyColorTable {
+	// ========== Constants ==========
+	private static final int NUM_SETTING_COLORS = 18;	// background, text, and subtext colors for each of the six urgency levels
+
+
+	// ========== Static Variables ==========
+	private static volatile UrgencyColorTable s_table;	// table for the most recently seen settings
+	private static final int[] s_scratchColors = new int[NUM_SETTING_COLORS];	// settings colors read by getInstance for comparison
+
+
+	// ========== Member Variables ==========
+	private final int m_urgencyScale;			// urgency scale the table was built for
+	private final float m_midUrgencyWeight;		// "mid" urgency weight the table was built for
+	private final float m_highUrgencyWeight;	// "high" urgency weight the table was built for
+	private final int[] m_settingColors;		// settings colors the table was built from, in readSettingColors() order
+	private final int[] m_backgroundColors;		// background color for each entry
+	private final int[] m_textColors;			// main text color for each entry
+	private final int[] m_subTextColors;		// subtext color for each entry
+	private volatile int m_checkedVersion;		// settings version the table was last found up to date at
+
+
+	// ========== Constructors ==========
+	/**
+	 * Builds the tables from the given settings
+	 * NOTE: Cutoffs should never be the same! (e.g. "mid" and "high" urgency cannot both have the cutoff "10")
+	 *
+	 * @param settings Cached preferences to build the tables from
+	 */
+	private UrgencyColorTable(POQTListSettings settings) {
+		m_urgencyScale = Math.max(0, settings.urgencyScale);
+		m_midUrgencyWeight = settings.midUrgencyWeight;
+		m_highUrgencyWeight = settings.highUrgencyWeight;
+		m_settingColors = new int[NUM_SETTING_COLORS];
+		readSettingColors(settings, m_settingColors);
+		m_backgroundColors = new int[m_urgencyScale + 2];
+		m_textColors = new int[m_urgencyScale + 2];
+		m_subTextColors = new int[m_urgencyScale + 2];
+
+		// values on urgency scale where "mid" and "high" urgencies start
+		int midUrgencyCutoff = (int)(((double)settings.midUrgencyWeight) * ((double)m_urgencyScale));
+		int highUrgencyCutoff = (int)(((double)settings.highUrgencyWeight) * ((double)m_urgencyScale));
+
+		// Task has no urgency
+		m_backgroundColors[0] = settings.noUrgencyBackgroundColor;
+		m_textColors[0] = settings.noUrgencyTextColor;
+		m_subTextColors[0] = settings.noUrgencySubTextColor;
+
+		for (int urgency = 0; urgency < m_urgencyScale; urgency++) {
+			int entry = urgency + 1;
+
+			// "low" urgency, scaled based on distance to "mid" urgency cutoff
+			if (urgency < midUrgencyCutoff) {
+				double scaleFactor = ((double)urgency) / ((double)midUrgencyCutoff);
+				m_backgroundColors[entry] = findScaledColor(settings.lowUrgencyBackgroundColor, settings.midUrgencyBackgroundColor, scaleFactor);
+				m_textColors[entry] = findScaledColor(settings.lowUrgencyTextColor, settings.midUrgencyTextColor, scaleFactor);
+				m_subTextColors[entry] = findScaledColor(settings.lowUrgencySubTextColor, settings.midUrgencySubTextColor, scaleFactor);
+			}
+			// "mid" urgency, scaled based on distance to "high" urgency cutoff
+			else if (urgency < highUrgencyCutoff) {
+				double scaleFactor = ((double)(urgency - midUrgencyCutoff)) / ((double)(highUrgencyCutoff - midUrgencyCutoff));
+				m_backgroundColors[entry] = findScaledColor(settings.midUrgencyBackgroundColor, settings.highUrgencyBackgroundColor, scaleFactor);
+				m_textColors[entry] = findScaledColor(settings.midUrgencyTextColor, settings.highUrgencyTextColor, scaleFactor);
+				m_subTextColors[entry] = findScaledColor(settings.midUrgencySubTextColor, settings.highUrgencySubTextColor, scaleFactor);
+			}
+			// "high" urgency, scaled based on distance to "overdue" cutoff
+			else {
+				double scaleFactor = ((double)(urgency - highUrgencyCutoff)) / ((double)(m_urgencyScale - highUrgencyCutoff));
+				m_backgroundColors[entry] = findScaledColor(settings.highUrgencyBackgroundColor, settings.dueBackgroundColor, scaleFactor);
+				m_textColors[entry] = findScaledColor(settings.highUrgencyTextColor, settings.dueTextColor, scaleFactor);
+				m_subTextColors[entry] = findScaledColor(settings.highUrgencySubTextColor, settings.dueSubTextColor, scaleFactor);
+			}
+		}
+
+		// Task is overdue
+		m_backgroundColors[m_urgencyScale + 1] = settings.overdueBackgroundColor;
+		m_textColors[m_urgencyScale + 1] = settings.overdueTextColor;
+		m_subTextColors[m_urgencyScale + 1] = settings.overdueSubTextColor;
+	}
+
+
+	// ========== Public Functions ==========
+	/**
+	 * Gets the table for the given settings, rebuilding it only if the colors or urgency settings it was built from
+	 * 	have changed (other preferences, such as the ID counters, do not affect it)
+	 * The settings are only compared when their version has moved since the table was last found up to date, so
+	 * 	the common case takes no lock and reads two fields.
+	 *
+	 * @param settings Cached preferences the table should reflect
+	 * @return An up-to-date UrgencyColorTable
+	 */
+	static UrgencyColorTable getInstance(POQTListSettings settings) {
+		UrgencyColorTable table = s_table;
+		int version = settings.version;
+		if (table != null && table.m_checkedVersion == version) {
+			return table;
+		}
+
+		synchronized (UrgencyColorTable.class) {
+			if (s_table == null || !s_table.isBuiltFrom(settings)) {
+				s_table = new UrgencyColorTable(settings);
+			}
+			// the version was read before the comparison, so a change made during it is seen next time
+			s_table.m_checkedVersion = version;
+			return s_table;
+		}
+	}
+
+	/**
+	 * Finds the table entry holding the coloring for the given Urgency Score
+	 *
+	 * @param urgency Urgency Score of a Task
+	 * @return Index into the color tables
+	 */
+	int findEntry(int urgency) {
+		if (urgency < 0) {
+			return 0;
+		}
+		if (urgency >= m_urgencyScale) {
+			return m_urgencyScale + 1;
+		}
+		return urgency + 1;
+	}
+
+	/**
+	 * Finds the next entry up the scale whose coloring differs from the given entry's, skipping entries that
+	 * 	round to the same colors, so a Task's coloring only changes visibly when its score reaches that entry
+	 *
+	 * @param entry Index into the color tables
+	 * @return Index of the next differently colored entry, or -1 if no entry above the given one differs
+	 */
+	int findNextDistinctEntry(int entry) {
+		for (int next = entry + 1; next < m_backgroundColors.length; next++) {
+			if (m_backgroundColors[next] != m_backgroundColors[entry] || m_textColors[next] != m_textColors[entry]
+					|| m_subTextColors[next] != m_subTextColors[entry]) {
+				return next;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the lowest Urgency Score colored by the given entry
+	 *
+	 * @param entry Index into the color tables, above the "no urgency" entry
+	 * @return The lowest Urgency Score findEntry() maps to the entry
+	 */
+	int findLowestScore(int entry) {
+		return entry - 1;
+	}
+
+	/**
+	 * Checks whether the given table colors every entry the same way as this one, even if it was rebuilt
+	 *
+	 * @param other Table to compare with (null is never the same)
+	 * @return True if both tables hold the same colors for the same entries
+	 */
+	boolean hasSameColors(UrgencyColorTable other) {
+		if (other == this) {
+			return true;
+		}
+		return other != null && Arrays.equals(m_backgroundColors, other.m_backgroundColors)
+				&& Arrays.equals(m_textColors, other.m_textColors) && Arrays.equals(m_subTextColors, other.m_subTextColors);
+	}
+
+	int getBackgroundColor(int entry) {
+		return m_backgroundColors[entry];
+	}
+
+	int getTextColor(int entry) {
+		return m_textColors[entry];
+	}
+
+	int getSubTextColor(int entry) {
+		return m_subTextColors[entry];
+	}
+
+
+	// ========== Helper Functions ==========
+	/**
+	 * Checks whether the table was built from the colors and urgency settings the given settings currently hold
+	 * NOTE: Must be called while holding the class lock, as it reads into the shared scratch array
+	 */
+	private boolean isBuiltFrom(POQTListSettings settings) {
+		if (m_urgencyScale != Math.max(0, settings.urgencyScale)
+				|| m_midUrgencyWeight != settings.midUrgencyWeight
+				|| m_highUrgencyWeight != settings.highUrgencyWeight) {
+			return false;
+		}
+		readSettingColors(settings, s_scratchColors);
+		return Arrays.equals(m_settingColors, s_scratchColors);
+	}
+
+	/**
+	 * Copies every color setting the table is built from into the given array
+	 *
+	 * @param settings Cached preferences to read
+	 * @param colors Array of length NUM_SETTING_COLORS to fill
+	 */
+	private static void readSettingColors(POQTListSettings settings, int[] colors) {
+		colors[0] = settings.noUrgencyBackgroundColor;
+		colors[1] = settings.lowUrgencyBackgroundColor;
+		colors[2] = settings.midUrgencyBackgroundColor;
+		colors[3] = settings.highUrgencyBackgroundColor;
+		colors[4] = settings.dueBackgroundColor;
+		colors[5] = settings.overdueBackgroundColor;
+		colors[6] = settings.noUrgencyTextColor;
+		colors[7] = settings.lowUrgencyTextColor;
+		colors[8] = settings.midUrgencyTextColor;
+		colors[9] = settings.highUrgencyTextColor;
+		colors[10] = settings.dueTextColor;
+		colors[11] = settings.overdueTextColor;
+		colors[12] = settings.noUrgencySubTextColor;
+		colors[13] = settings.lowUrgencySubTextColor;
+		colors[14] = settings.midUrgencySubTextColor;
+		colors[15] = settings.highUrgencySubTextColor;
+		colors[16] = settings.dueSubTextColor;
+		colors[17] = settings.overdueSubTextColor;
+	}
+
+	/**
+	 * Finds a color int at a percent of the RGB-distance between two colors
+	 *
+	 * @param startColor The starting color (0% RGB-distance)
+	 * @param endColor The ending color (100% RGB-distance)
+	 * @param scaleWeight Percent of RGB-distance between startColor and endColor the new color should be
+	 * @return An int
+	 */
+	private static int findScaledColor(int startColor, int endColor, double scaleWeight) {
+		// get starting red, green, and blue values
+		int startRed = Color.red(startColor);
+		int startGreen = Color.green(startColor);
+		int startBlue = Color.blue(startColor);
+
+		// get red, green, and blue difference between endColor and startColor
+		int diffRed = Color.red(endColor) - startRed;
+		int diffGreen = Color.green(endColor) - startGreen;
+		int diffBlue = Color.blue(endColor) - startBlue;
+
+		// find red, green, and blue components of the desired color
+		int newRed = startRed + (int)(scaleWeight * ((double) diffRed));
+		int newGreen = startGreen + (int)(scaleWeight * ((double) diffGreen));
+		int newBlue = startBlue + (int)(scaleWeight * ((double) diffBlue));
+
+		// create and return new color int
+		return Color.rgb(newRed, newGreen, newBlue);
+	}
+}
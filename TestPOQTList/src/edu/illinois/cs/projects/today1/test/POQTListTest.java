@@ -1,20 +1,37 @@
 package edu.illinois.cs.projects.today1.test;
 
+import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.GregorianCalendar;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Random;
 import java.util.Stack;
 
 import junit.framework.Assert;
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
 import android.test.ActivityInstrumentationTestCase2;
 import android.widget.ListView;
 import edu.illinois.cs.projects.today1.POQTListConstants;
+import edu.illinois.cs.projects.today1.POQTListSettings;
+import edu.illinois.cs.projects.today1.database.TaskDBApparatus;
+import edu.illinois.cs.projects.today1.database.TaskDBHelper;
 import edu.illinois.cs.projects.today1.main.POQTListActivity;
+import edu.illinois.cs.projects.today1.task.DueDateFormatter;
+import edu.illinois.cs.projects.today1.task.KineticTaskOrder;
+import edu.illinois.cs.projects.today1.task.LongObjectMap;
+import edu.illinois.cs.projects.today1.task.SortedTaskList;
 import edu.illinois.cs.projects.today1.task.Task;
 import edu.illinois.cs.projects.today1.task.TaskAdapter;
 import edu.illinois.cs.projects.today1.task.TaskApparatus;
 import edu.illinois.cs.projects.today1.task.TaskComparator;
 import edu.illinois.cs.projects.today1.task.TaskFactory;
 import edu.illinois.cs.projects.today1.task.TaskList;
+import edu.illinois.cs.projects.today1.task.TaskStore;
 
 /**
  * Testing framework for the POQTListActivity class
@@ -32,6 +49,9 @@ public class POQTListTest extends ActivityInstrumentationTestCase2<POQTListActiv
 	private final Task.Priority GENERIC_PRIORITY = Task.Priority.NORMAL_PRIORITY;
 	private final TaskAdapter.Type GENERIC_ADAPTER_TYPE = TaskAdapter.Type.COLORED;
 	private final String GENERIC_LIST_NAME = "Test List Name";
+	
+	// database built in an old schema to test upgrades, kept apart from the app's own
+	private final String TEST_DB_NAME = "TestTaskDatabase";
 
 	
 	// ========== Member Variables ==========
@@ -148,25 +168,284 @@ public class POQTListTest extends ActivityInstrumentationTestCase2<POQTListActiv
 		assertEquals(false, testTask1.equals(testTask3));
 	}
 	
+	/*	Test DueDateFormatter	*/
+	/**
+	 * Tests due date labels relative to fixed times, including across month and year boundaries
+	 */
+	public void testDueDateFormatter() {
+		Locale originalLocale = Locale.getDefault();
+		Locale.setDefault(Locale.US);
+		try {
+			// Thursday, 28 Feb 2013: the next day is in another month
+			long now = new GregorianCalendar(2013, 1, 28, 10, 0).getTimeInMillis();
+			DueDateFormatter formatter = new DueDateFormatter();
+			
+			assertEquals("Today at 9:05 AM", formatter.format(new GregorianCalendar(2013, 1, 28, 9, 5).getTimeInMillis(), now));
+			assertEquals("Tomorrow at 5:00 PM", formatter.format(new GregorianCalendar(2013, 2, 1, 17, 0).getTimeInMillis(), now));
+			assertEquals("Yesterday at 11:59 PM", formatter.format(new GregorianCalendar(2013, 1, 27, 23, 59).getTimeInMillis(), now));
+			assertEquals("Last Monday at 12:30 PM", formatter.format(new GregorianCalendar(2013, 1, 25, 12, 30).getTimeInMillis(), now));
+			assertEquals("Monday at 8:00 AM", formatter.format(new GregorianCalendar(2013, 2, 4, 8, 0).getTimeInMillis(), now));
+			assertEquals("Mar 10 at 12:00 AM", formatter.format(new GregorianCalendar(2013, 2, 10, 0, 0).getTimeInMillis(), now));
+			assertEquals("Feb 1 at 7:15 PM", formatter.format(new GregorianCalendar(2013, 1, 1, 19, 15).getTimeInMillis(), now));
+			
+			// dates in another year carry the year
+			assertEquals("Jan 3, 2014 at 12:30 PM", formatter.format(new GregorianCalendar(2014, 0, 3, 12, 30).getTimeInMillis(), now));
+			assertEquals("Dec 30, 2012 at 6:45 AM", formatter.format(new GregorianCalendar(2012, 11, 30, 6, 45).getTimeInMillis(), now));
+			
+			// once the day changes, the cached labels are rebuilt relative to it
+			now = new GregorianCalendar(2013, 2, 1, 8, 0).getTimeInMillis();
+			assertEquals("Today at 5:00 PM", formatter.format(new GregorianCalendar(2013, 2, 1, 17, 0).getTimeInMillis(), now));
+			assertEquals("Yesterday at 9:05 AM", formatter.format(new GregorianCalendar(2013, 1, 28, 9, 5).getTimeInMillis(), now));
+			assertEquals("Last Monday at 12:30 PM", formatter.format(new GregorianCalendar(2013, 1, 25, 12, 30).getTimeInMillis(), now));
+		}
+		finally {
+			Locale.setDefault(originalLocale);
+		}
+	}
+	
+	/*	Test TaskStore	*/
+	/**
+	 * Tests that Tasks sharing a TaskStore keep their own data through modification and slot reuse
+	 */
+	public void testTaskStore() {
+		TaskStore store = new TaskStore(1);
+		Task testTask1 = new Task(store, 0, "Go to grocery store", GENERIC_DUE_DATE.getTimeInMillis(), Task.Priority.HIGH_PRIORITY, Task.Alarm.ONE_HOUR_ALARM);
+		Task testTask2 = new Task(store, 1, "Pick up mom", Task.NO_DUE_DATE, null, null);
+		assertEquals(2, store.size());
+		
+		assertEquals("Go to grocery store", testTask1.getDescription());
+		assertEquals(GENERIC_DUE_DATE.getTimeInMillis(), testTask1.getDueMillis());
+		assertEquals(Task.Priority.HIGH_PRIORITY, testTask1.getPriority());
+		assertEquals(Task.Alarm.ONE_HOUR_ALARM, testTask1.getAlarm());
+		assertEquals(false, testTask2.hasDueDate());
+		assertEquals(Task.NO_DUE_DATE, testTask2.getDueMillis());
+		assertEquals(GENERIC_PRIORITY, testTask2.getPriority());
+		assertEquals(null, testTask2.getAlarm());
+		
+		// modifying one Task must leave the other alone
+		testTask2.setDescription("Pick up mom from the airport");
+		testTask2.setDueMillis(GENERIC_DUE_DATE.getTimeInMillis());
+		assertEquals("Go to grocery store", testTask1.getDescription());
+		assertEquals("Pick up mom from the airport", testTask2.getDescription());
+		assertEquals(GENERIC_DUE_DATE.getTimeInMillis(), testTask2.getDueMillis());
+	}
+	
+	/*	Test LongObjectMap	*/
+	/**
+	 * Tests that removing keys from the middle of a probe run that wraps around the table leaves every other key
+	 * 	reachable, before and after the table grows
+	 */
+	public void testLongObjectMapWrappedRemoval() {
+		final int CAPACITY = 16;	// LongObjectMap's starting capacity
+		
+		// one key homed just before the end of the table, three homed at its last slot, and two homed at its first,
+		// 	so the run fills slots 14, 15, 0, 1, 2, 3 and wraps around
+		long[] keys = new long[6];
+		int[] homes = {CAPACITY - 2, CAPACITY - 1, CAPACITY - 1, CAPACITY - 1, 0, 0};
+		long candidate = 0;
+		for (int i = 0; i < keys.length; i++) {
+			while (findLongObjectMapHome(candidate, CAPACITY) != homes[i]) {
+				candidate++;
+			}
+			keys[i] = candidate++;
+		}
+		
+		LongObjectMap<String> map = new LongObjectMap<String>();
+		for (long key : keys) {
+			assertEquals(null, map.put(key, Long.toString(key)));
+		}
+		assertEquals(keys.length, map.size());
+		
+		// remove from the middle of the run, on both sides of the wrap
+		assertEquals(Long.toString(keys[2]), map.remove(keys[2]));
+		assertEquals(Long.toString(keys[1]), map.remove(keys[1]));
+		assertEquals(null, map.remove(keys[1]));
+		assertEquals(keys.length - 2, map.size());
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals((i == 1 || i == 2) ? null : Long.toString(keys[i]), map.get(keys[i]));
+		}
+		
+		// grow the table past its rehash point; every remaining key must still be found
+		for (long key = -1; map.size() <= CAPACITY; key--) {
+			map.put(key, Long.toString(key));
+		}
+		for (int i = 0; i < keys.length; i++) {
+			assertEquals((i == 1 || i == 2) ? null : Long.toString(keys[i]), map.get(keys[i]));
+		}
+		assertEquals(Long.toString(keys[4]), map.remove(keys[4]));
+		assertEquals(Long.toString(keys[5]), map.get(keys[5]));
+		assertEquals(Long.toString(keys[3]), map.get(keys[3]));
+	}
+	
+	/**
+	 * Tests a LongObjectMap against a HashMap through a long run of random puts and removes
+	 */
+	public void testLongObjectMapChurn() {
+		LongObjectMap<Long> map = new LongObjectMap<Long>();
+		HashMap<Long, Long> reference = new HashMap<Long, Long>();
+		Random random = new Random(42);
+		for (int step = 0; step < 20000; step++) {
+			// a small key range keeps runs long and makes removals hit present keys
+			long key = random.nextInt(300) - 150;
+			if (random.nextInt(3) == 0) {
+				assertEquals(reference.remove(key), map.remove(key));
+			}
+			else {
+				Long value = Long.valueOf(step);
+				assertEquals(reference.put(key, value), map.put(key, value));
+			}
+			assertEquals(reference.size(), map.size());
+		}
+		for (long key = -150; key < 150; key++) {
+			assertEquals(reference.get(key), map.get(key));
+		}
+	}
+	
 	/*	Test TaskComparator	*/
 	/**
 	 * Tests the TaskComparator class's functionality
 	 */
 	public void testTaskComparator() {
-		// test null date
-		Task testTask1 = new Task(m_activity, 0, "Fly to Denver", new GregorianCalendar(2012, 1, 17, 8, 0, 0), GENERIC_PRIORITY);
-		Task testTask2 = new Task(m_activity, 1, "Take plane to Denver", new GregorianCalendar(2012, 1, 17, 8, 0, 0), GENERIC_PRIORITY);
-		Task testTask3 = new Task(m_activity, 2, "Hurtle through space towards Denver", new GregorianCalendar(2012, 1, 17, 8, 0, 28), GENERIC_PRIORITY);
-		Task testTask4 = new Task(m_activity, 3, "Pack for Denver", new GregorianCalendar(2012, 1, 15, 8, 6, 28), GENERIC_PRIORITY);
-		Task testTask5 = new Task(m_activity, 4, "Unpack after Denver", new GregorianCalendar(2012, 1, 22, 8, 6, 28), GENERIC_PRIORITY);
+		long sameDueDate = new GregorianCalendar(2012, 1, 17, 8, 0, 0).getTimeInMillis();
+		Task testTask1 = new Task(0, "Fly to Denver", sameDueDate, GENERIC_PRIORITY);
+		Task testTask2 = new Task(1, "Take plane to Denver", sameDueDate, GENERIC_PRIORITY);
+		Task testTask3 = new Task(2, "Hurtle through space towards Denver", new GregorianCalendar(2012, 1, 17, 8, 0, 28).getTimeInMillis(), GENERIC_PRIORITY);
+		Task testTask4 = new Task(3, "Pack for Denver", sameDueDate, Task.Priority.HIGH_PRIORITY);
+		
+		TaskComparator taskComparator = new TaskComparator(m_activity, sameDueDate);
+		
+		// only a Task compares equal to itself
+		assertEquals(0, taskComparator.compare(testTask1, testTask1));
+		assertEquals(0, taskComparator.compare(testTask1, new Task(0, "Fly to Denver", sameDueDate, GENERIC_PRIORITY)));
+		
+		// Tasks equal on every key are told apart by ID
+		assertEquals(-1, taskComparator.compare(testTask1, testTask2));
+		assertEquals(1, taskComparator.compare(testTask2, testTask1));
+		
+		// at equal urgency the sooner due date goes first, then the higher priority
+		assertEquals(-1, taskComparator.compare(testTask2, testTask3));
+		assertEquals(-1, taskComparator.compare(testTask4, testTask1));
+		assertEquals(1, taskComparator.compare(testTask1, testTask4));
+	}
+	
+	/**
+	 * Tests that a TaskComparator scores every Task at its single ranking time
+	 */
+	public void testTaskComparatorRankingTime() {
+		final long NUM_MILLIS_IN_DAY = 86400000L;
+		long now = GENERIC_DUE_DATE.getTimeInMillis() - NUM_MILLIS_IN_DAY;
 		
-		TaskComparator taskComparator = new TaskComparator();
+		Task datedTask = new Task(0, GENERIC_DESCRIPTION, GENERIC_DUE_DATE.getTimeInMillis(), Task.Priority.LOW_PRIORITY);
+		Task undatedTask = new Task(1, GENERIC_DESCRIPTION, Task.NO_DUE_DATE, Task.Priority.NORMAL_PRIORITY);
 		
-		// test exact due date equality
-		assertEquals(0, taskComparator.compare(testTask1, testTask2));
+		// a day before its due date the dated Task outranks a normal-priority undated one...
+		TaskComparator taskComparator = new TaskComparator(m_activity, now);
+		assertEquals(now, taskComparator.getRankingTime());
+		assertEquals(-1, taskComparator.compare(datedTask, undatedTask));
 		
-		// test that equality ignores seconds
-		assertEquals(0, taskComparator.compare(testTask2, testTask3));
+		// ...but not a full time window earlier
+		taskComparator.setRankingTime(now - POQTListConstants.DEFAULT_TIME_WINDOW * NUM_MILLIS_IN_DAY);
+		assertEquals(1, taskComparator.compare(datedTask, undatedTask));
+	}
+	
+	/*	Test SortedTaskList	*/
+	/**
+	 * Tests that the SortedTaskList keeps order and positions through adds and removes
+	 */
+	public void testSortedTaskList() {
+		Comparator<Task> idComparator = new Comparator<Task>() {
+			@Override
+			public int compare(Task task1, Task task2) {
+				return (task1.getID() < task2.getID()) ? -1 : ((task1.getID() == task2.getID()) ? 0 : 1);
+			}
+		};
+		SortedTaskList sortedList = new SortedTaskList(idComparator);
+		
+		// add out of order; duplicates and nulls are rejected
+		for (long id : new long[]{5, 1, 4, 2, 3, 0}) {
+			assertEquals(true, sortedList.add(new Task(id, GENERIC_DESCRIPTION)));
+		}
+		assertEquals(false, sortedList.add(new Task(3, GENERIC_DESCRIPTION)));
+		assertEquals(false, sortedList.add(null));
+		assertEquals(6, sortedList.size());
+		
+		// positions should follow the comparator
+		for (int index = 0; index < sortedList.size(); index++) {
+			assertEquals(index, sortedList.get(index).getID());
+			assertEquals(index, sortedList.indexOf(new Task(index, GENERIC_DESCRIPTION)));
+		}
+		
+		// removal should shift later positions down
+		assertEquals(true, sortedList.remove(new Task(2, GENERIC_DESCRIPTION)));
+		assertEquals(false, sortedList.remove(new Task(2, GENERIC_DESCRIPTION)));
+		assertEquals(3, sortedList.get(2).getID());
+		assertEquals(-1, sortedList.indexOf(new Task(2, GENERIC_DESCRIPTION)));
+		assertEquals(4, sortedList.indexOf(new Task(5, GENERIC_DESCRIPTION)));
+	}
+	
+	/**
+	 * Tests that a SortedTaskList finds and removes the right Task among Tasks equal on every key but ID
+	 */
+	public void testSortedTaskListEqualKeys() {
+		long dueDate = GENERIC_DUE_DATE.getTimeInMillis();
+		SortedTaskList sortedList = new SortedTaskList(new TaskComparator(m_activity, dueDate));
+		Task[] tasks = new Task[4];
+		for (int id = tasks.length - 1; id >= 0; id--) {
+			tasks[id] = new Task(id, GENERIC_DESCRIPTION, dueDate, GENERIC_PRIORITY);
+			assertEquals(true, sortedList.add(tasks[id]));
+		}
+		assertEquals(tasks.length, sortedList.size());
+		
+		// the ID tie-break places each Task at its own position
+		for (int index = 0; index < tasks.length; index++) {
+			assertEquals(tasks[index], sortedList.get(index));
+			assertEquals(index, sortedList.indexOf(tasks[index]));
+		}
+		
+		// removing one Task must leave its equal-keyed neighbours in place
+		assertEquals(true, sortedList.remove(tasks[1]));
+		assertEquals(false, sortedList.contains(tasks[1]));
+		assertEquals(-1, sortedList.indexOf(tasks[1]));
+		assertEquals(0, sortedList.indexOf(tasks[0]));
+		assertEquals(1, sortedList.indexOf(tasks[2]));
+		assertEquals(2, sortedList.indexOf(tasks[3]));
+	}
+	
+	/**
+	 * Tests that KineticTaskOrder keeps Tasks in urgency order as time passes
+	 */
+	public void testKineticTaskOrder() {
+		final long NUM_MILLIS_IN_DAY = 86400000L;
+		long now = System.currentTimeMillis();
+		
+		long overdueDate = now - NUM_MILLIS_IN_DAY;
+		long laterDate = now + (POQTListConstants.DEFAULT_TIME_WINDOW - 1) * NUM_MILLIS_IN_DAY;
+		
+		Task overdueTask = new Task(0, GENERIC_DESCRIPTION, overdueDate, Task.Priority.LOW_PRIORITY);
+		Task undatedTask = new Task(1, GENERIC_DESCRIPTION, Task.NO_DUE_DATE, Task.Priority.HIGH_PRIORITY);
+		Task laterTask = new Task(2, GENERIC_DESCRIPTION, laterDate, Task.Priority.LOW_PRIORITY);
+		
+		KineticTaskOrder order = new KineticTaskOrder(m_activity);
+		assertEquals(true, order.add(laterTask));
+		assertEquals(true, order.add(undatedTask));
+		assertEquals(true, order.add(overdueTask));
+		assertEquals(false, order.add(undatedTask));
+		assertEquals(3, order.size());
+		
+		// overdue Tasks outrank undated ones, which outrank Tasks due far off
+		assertEquals(overdueTask, order.get(0));
+		assertEquals(undatedTask, order.get(1));
+		assertEquals(laterTask, order.get(2));
+		assertEquals(2, order.indexOf(laterTask));
+		
+		// once the later Task comes due it overtakes the undated one
+		assertEquals(true, order.advance(laterDate));
+		assertEquals(laterTask, order.get(1));
+		assertEquals(undatedTask, order.get(2));
+		
+		assertEquals(true, order.remove(overdueTask));
+		assertEquals(laterTask, order.get(0));
+		assertEquals(-1, order.indexOf(overdueTask));
 	}
 	
 	/*	Test TaskAdapter	*/
@@ -338,6 +617,81 @@ public class POQTListTest extends ActivityInstrumentationTestCase2<POQTListActiv
 		TaskList newList = new TaskList(GENERIC_LIST_NAME, newAdapter);
 	}
 	
+	/**
+	 * Tests that a TaskApparatus can be constructed and cycled on a thread without a Looper
+	 */
+	public void testTaskApparatusOffUiThread() throws InterruptedException {
+		final Throwable[] failure = new Throwable[1];
+		Thread worker = new Thread(new Runnable() {
+			public void run() {
+				try {
+					TaskApparatus apparatus = new TaskApparatus(m_activity);
+					apparatus.cycleLeft();
+					apparatus.cycleRight();
+					apparatus.close();
+				}
+				catch (Throwable exc) {
+					failure[0] = exc;
+				}
+			}
+		});
+		worker.start();
+		worker.join();
+		
+		if (failure[0] != null) {
+			Assert.fail("Constructing a TaskApparatus off the UI thread threw: " + failure[0]);
+		}
+	}
+	
+	/**
+	 * Tests jumping straight to a list, and that the lists after a deleted one move down a position
+	 */
+	public void testTaskApparatusJumpToList() {
+		TaskApparatus apparatus = new TaskApparatus(m_activity);
+		try {
+			int listCount = apparatus.getListCount();
+			assertEquals(true, apparatus.createTaskList(GENERIC_LIST_NAME + " A", GENERIC_ADAPTER_TYPE));
+			assertEquals(true, apparatus.createTaskList(GENERIC_LIST_NAME + " B", GENERIC_ADAPTER_TYPE));
+			assertEquals(listCount + 2, apparatus.getListCount());
+			int firstPosition = listCount;
+			int secondPosition = listCount + 1;
+			
+			// jumps land on the list at the position, whatever was selected before
+			apparatus.jumpToList(0);
+			assertEquals(POQTListConstants.COMPLETED_TASKLIST_NAME, apparatus.getSelectedTitle());
+			assertEquals(0, apparatus.getSelectedPosition());
+			apparatus.jumpToList(firstPosition);
+			assertEquals(GENERIC_LIST_NAME + " A", apparatus.getSelectedTitle());
+			assertEquals(firstPosition, apparatus.getSelectedPosition());
+			assertEquals(TaskApparatus.ListCategory.CUSTOM, apparatus.getListCategory());
+			apparatus.jumpToList(1);
+			assertEquals(POQTListConstants.MAIN_TASKLIST_NAME, apparatus.getSelectedTitle());
+			assertEquals(GENERIC_LIST_NAME + " B", apparatus.getListTitle(secondPosition));
+			
+			try {
+				apparatus.jumpToList(apparatus.getListCount());
+				fail("Jumping past the last list should have thrown an exception");
+			}
+			catch (IllegalArgumentException exc) {
+				// do nothing; test passes
+			}
+			
+			// deleting the first list selects the one after it, which takes over its position
+			apparatus.jumpToList(firstPosition);
+			assertEquals(true, apparatus.deleteTaskList());
+			assertEquals(listCount + 1, apparatus.getListCount());
+			assertEquals(GENERIC_LIST_NAME + " B", apparatus.getSelectedTitle());
+			assertEquals(firstPosition, apparatus.getSelectedPosition());
+			assertEquals(GENERIC_LIST_NAME + " B", apparatus.getListTitle(firstPosition));
+			
+			assertEquals(true, apparatus.deleteTaskList());
+			assertEquals(listCount, apparatus.getListCount());
+		}
+		finally {
+			apparatus.close();
+		}
+	}
+	
 	public void testBasicTaskApparatusFunctions() {
 		TaskApparatus apparatus = new TaskApparatus(m_activity);
 		
@@ -359,6 +713,256 @@ public class POQTListTest extends ActivityInstrumentationTestCase2<POQTListActiv
 		}
 	}
 	
+	/*	Test POQTListSettings	*/
+	/**
+	 * Tests that the settings cache follows preference writes
+	 */
+	public void testPOQTListSettings() {
+		POQTListSettings settings = POQTListSettings.getInstance(m_activity);
+		assertSame(settings, POQTListSettings.getInstance(m_activity.getApplicationContext()));
+		
+		SharedPreferences preferences = m_activity.getSharedPreferences(POQTListConstants.PREFERENCES_FILEPATH, Context.MODE_PRIVATE);
+		int originalTimeWindow = settings.timeWindow;
+		int originalVersion = settings.version;
+		
+		// write through SharedPreferences; the cache should pick it up
+		preferences.edit().putInt(POQTListConstants.PREF_KEY_TIME_WINDOW, originalTimeWindow + 1).commit();
+		assertEquals(originalTimeWindow + 1, settings.timeWindow);
+		assertTrue(settings.version != originalVersion);
+		
+		preferences.edit().putInt(POQTListConstants.PREF_KEY_TIME_WINDOW, originalTimeWindow).commit();
+		assertEquals(originalTimeWindow, settings.timeWindow);
+		
+		// claiming IDs is not a settings change
+		int claimVersion = settings.version;
+		long taskID = settings.claimTaskID();
+		long taskListID = settings.claimTaskListID();
+		assertEquals(claimVersion, settings.version);
+		assertEquals(taskID + 1, settings.claimTaskID());
+		assertEquals(taskListID + 1, settings.claimTaskListID());
+	}
+	
+	/*	Test TaskDBHelper	*/
+	/**
+	 * Tests that upgrading a version 2 database decodes its text due dates into milliseconds without losing Tasks
+	 */
+	public void testDueMillisMigration() {
+		GregorianCalendar eveningDueDate = new GregorianCalendar(2012, 1, 17, 20, 30);
+		GregorianCalendar midnightDueDate = new GregorianCalendar(2012, 1, 18, 0, 5);
+		SimpleDateFormat storageFormat = new SimpleDateFormat(POQTListConstants.DB_DATE_STORAGE_FORMAT);
+		
+		// due dates are written as version 2 wrote them, along with an undated Task and one that cannot be decoded
+		SQLiteDatabase legacyDatabase = createLegacyDatabase(2);
+		insertLegacyTask(legacyDatabase, 1, storageFormat.format(eveningDueDate.getTime()));
+		insertLegacyTask(legacyDatabase, 2, storageFormat.format(midnightDueDate.getTime()));
+		insertLegacyTask(legacyDatabase, 3, null);
+		insertLegacyTask(legacyDatabase, 4, "not a due date");
+		legacyDatabase.close();
+		
+		TaskDBHelper helper = new TaskDBHelper(m_activity, TEST_DB_NAME);
+		try {
+			SQLiteDatabase database = helper.getWritableDatabase();
+			Cursor tasks = database.rawQuery("SELECT " + POQTListConstants.DB_TASK_KEY_ID + ", "
+					+ POQTListConstants.DB_TASK_COLUMN_DESCRIPTION + ", " + POQTListConstants.DB_TASK_COLUMN_DUE_MILLIS
+					+ " FROM " + POQTListConstants.DB_TASK_TABLE_NAME + " ORDER BY " + POQTListConstants.DB_TASK_KEY_ID, null);
+			try {
+				// every Task survives, the one with the undecodable due date included
+				assertEquals(4, tasks.getCount());
+				for (long id = 1; id <= 4; id++) {
+					assertTrue(tasks.moveToNext());
+					assertEquals(id, tasks.getLong(0));
+					assertEquals(GENERIC_DESCRIPTION, tasks.getString(1));
+					
+					if (id == 1) {
+						assertEquals(eveningDueDate.getTimeInMillis(), tasks.getLong(2));
+					}
+					else if (id == 2) {
+						assertEquals(midnightDueDate.getTimeInMillis(), tasks.getLong(2));
+					}
+					else {
+						assertTrue(tasks.isNull(2));
+					}
+				}
+			}
+			finally {
+				tasks.close();
+			}
+		}
+		finally {
+			helper.close();
+			m_activity.deleteDatabase(TEST_DB_NAME);
+		}
+	}
+	
+	/**
+	 * Tests that upgrading a version 3 database drops orphaned memberships and keeps the rest with their rowids
+	 */
+	public void testHasTaskCascadeMigration() {
+		final long LIST_ID = 10;
+		
+		SQLiteDatabase legacyDatabase = createLegacyDatabase(3);
+		insertLegacyTask(legacyDatabase, 1, null);
+		insertLegacyTask(legacyDatabase, 2, null);
+		legacyDatabase.execSQL("INSERT INTO " + POQTListConstants.DB_TASKLIST_TABLE_NAME + " ("
+			+ POQTListConstants.DB_TASKLIST_KEY_ID + ", " + POQTListConstants.DB_TASKLIST_COLUMN_NAME + ", "
+			+ POQTListConstants.DB_TASKLIST_COLUMN_ADAPTERTYPE_ORDINAL + ") VALUES (?, ?, ?);",
+			new Object[]{LIST_ID, GENERIC_LIST_NAME, GENERIC_ADAPTER_TYPE.ordinal()});
+		
+		// two real memberships, then two left behind by deleting a TaskList and a Task
+		insertLegacyMembership(legacyDatabase, 5, LIST_ID, 1);
+		insertLegacyMembership(legacyDatabase, 7, LIST_ID, 2);
+		insertLegacyMembership(legacyDatabase, 8, 99, 1);
+		insertLegacyMembership(legacyDatabase, 9, LIST_ID, 42);
+		legacyDatabase.close();
+		
+		TaskDBHelper helper = new TaskDBHelper(m_activity, TEST_DB_NAME);
+		try {
+			SQLiteDatabase database = helper.getWritableDatabase();
+			
+			// the orphans are gone and the real memberships keep their rowids, which the completed list pages by
+			Cursor memberships = database.rawQuery("SELECT rowid, " + POQTListConstants.DB_HASTASK_KEY_LISTID + ", "
+					+ POQTListConstants.DB_HASTASK_KEY_TASKID + " FROM " + POQTListConstants.DB_HASTASK_TABLE_NAME + " ORDER BY rowid", null);
+			try {
+				assertEquals(2, memberships.getCount());
+				assertTrue(memberships.moveToNext());
+				assertEquals(5, memberships.getLong(0));
+				assertEquals(LIST_ID, memberships.getLong(1));
+				assertEquals(1, memberships.getLong(2));
+				assertTrue(memberships.moveToNext());
+				assertEquals(7, memberships.getLong(0));
+				assertEquals(LIST_ID, memberships.getLong(1));
+				assertEquals(2, memberships.getLong(2));
+			}
+			finally {
+				memberships.close();
+			}
+			
+			// the index dropped with the old table is rebuilt on the new one
+			Cursor index = database.rawQuery("SELECT name FROM sqlite_master WHERE type = 'index' AND name = ?",
+					new String[]{POQTListConstants.DB_HASTASK_INDEX_BY_LIST});
+			try {
+				assertEquals(1, index.getCount());
+			}
+			finally {
+				index.close();
+			}
+		}
+		finally {
+			helper.close();
+			m_activity.deleteDatabase(TEST_DB_NAME);
+		}
+	}
+	
+	/*	Test TaskDBApparatus	*/
+	/**
+	 * Tests that writes report whether they changed anything, which is read back through SELECT changes()
+	 */
+	public void testTaskDBApparatusWriteResults() {
+		POQTListSettings settings = POQTListSettings.getInstance(m_activity);
+		Task task = new Task(settings.claimTaskID(), GENERIC_DESCRIPTION);
+		Task missingTask = new Task(settings.claimTaskID(), GENERIC_DESCRIPTION);
+		TaskList list = new TaskList(settings.claimTaskListID(), GENERIC_LIST_NAME, GENERIC_ADAPTER_TYPE);
+		TaskList missingList = new TaskList(settings.claimTaskListID(), GENERIC_LIST_NAME, GENERIC_ADAPTER_TYPE);
+		
+		TaskDBApparatus apparatus = new TaskDBApparatus(m_activity);
+		try {
+			// a taken ID inserts nothing
+			assertEquals(true, apparatus.addTask(task));
+			assertEquals(false, apparatus.addTask(task));
+			assertEquals(true, apparatus.addTaskList(list));
+			assertEquals(false, apparatus.addTaskList(list));
+			
+			// a membership needs both its TaskList and its Task; one already present still counts as added
+			assertEquals(false, apparatus.addTaskToList(missingTask, list));
+			assertEquals(false, apparatus.addTaskToList(task, missingList));
+			assertEquals(true, apparatus.addTaskToList(task, list));
+			assertEquals(true, apparatus.addTaskToList(task, list));
+			assertEquals(true, apparatus.doesListContain(list.getID(), task.getID()));
+			
+			// deletes report whether there was anything to delete
+			assertEquals(true, apparatus.removeTaskFromList(task, list));
+			assertEquals(false, apparatus.removeTaskFromList(task, list));
+			assertEquals(true, apparatus.deleteTask(task));
+			assertEquals(false, apparatus.deleteTask(task));
+			assertEquals(true, apparatus.deleteTaskList(list));
+			assertEquals(false, apparatus.deleteTaskList(list));
+		}
+		finally {
+			apparatus.deleteTask(task);
+			apparatus.deleteTaskList(list);
+			apparatus.close();
+		}
+	}
+	
+	/**
+	 * Tests that a batch ending without commitBatch() rolls back its writes, and that nested batches commit together
+	 */
+	public void testTaskDBApparatusBatches() {
+		POQTListSettings settings = POQTListSettings.getInstance(m_activity);
+		Task[] tasks = new Task[5];
+		for (int i = 0; i < tasks.length; i++) {
+			tasks[i] = new Task(settings.claimTaskID(), GENERIC_DESCRIPTION);
+		}
+		
+		TaskDBApparatus apparatus = new TaskDBApparatus(m_activity);
+		try {
+			// a batch that is never committed leaves nothing behind
+			apparatus.beginBatch();
+			try {
+				assertEquals(true, apparatus.addTask(tasks[0]));
+			}
+			finally {
+				apparatus.endBatch();
+			}
+			assertEquals(false, apparatus.doesTaskExist(tasks[0].getID()));
+			
+			// nested batches that are all committed keep every write
+			apparatus.beginBatch();
+			try {
+				apparatus.beginBatch();
+				try {
+					apparatus.addTask(tasks[1]);
+					apparatus.commitBatch();
+				}
+				finally {
+					apparatus.endBatch();
+				}
+				apparatus.addTask(tasks[2]);
+				apparatus.commitBatch();
+			}
+			finally {
+				apparatus.endBatch();
+			}
+			assertEquals(true, apparatus.doesTaskExist(tasks[1].getID()));
+			assertEquals(true, apparatus.doesTaskExist(tasks[2].getID()));
+			
+			// an inner batch left uncommitted rolls back the outer one too
+			apparatus.beginBatch();
+			try {
+				apparatus.beginBatch();
+				try {
+					apparatus.addTask(tasks[3]);
+				}
+				finally {
+					apparatus.endBatch();
+				}
+				apparatus.addTask(tasks[4]);
+				apparatus.commitBatch();
+			}
+			finally {
+				apparatus.endBatch();
+			}
+			assertEquals(false, apparatus.doesTaskExist(tasks[3].getID()));
+			assertEquals(false, apparatus.doesTaskExist(tasks[4].getID()));
+		}
+		finally {
+			for (Task task : tasks) {
+				apparatus.deleteTask(task);
+			}
+			apparatus.close();
+		}
+	}
+	
 	/*	Test TaskFactory	*/
 	/**
 	 * Tests valid TaskFactory constructors
@@ -403,4 +1007,91 @@ public class POQTListTest extends ActivityInstrumentationTestCase2<POQTListActiv
 		Task testTask1 = newFactory.buildTask(null, GENERIC_DUE_DATE, GENERIC_PRIORITY);
 		assertEquals(null, testTask1);
 	}
+	
+	
+	// ========== Helper Functions ==========
+	/**
+	 * Creates the test database afresh in the schema of the given version, before any of its migrations ran
+	 * 
+	 * @param version Database version to create (1 to 3)
+	 * @return The open database, for the caller to fill and close
+	 */
+	private SQLiteDatabase createLegacyDatabase(int version) {
+		m_activity.deleteDatabase(TEST_DB_NAME);
+		SQLiteDatabase db = m_activity.openOrCreateDatabase(TEST_DB_NAME, Context.MODE_PRIVATE, null);
+		
+		// version 1 stored due dates as text and its HasTask foreign keys did not cascade
+		db.execSQL("CREATE TABLE " + POQTListConstants.DB_TASK_TABLE_NAME + " ("
+			+ POQTListConstants.DB_TASK_KEY_ID + " INTEGER PRIMARY KEY, "
+			+ POQTListConstants.DB_TASK_COLUMN_DESCRIPTION + " TEXT, "
+			+ POQTListConstants.DB_TASK_COLUMN_DUEDATE + " TEXT, "
+			+ POQTListConstants.DB_TASK_COLUMN_PRIORITY + " INT,"
+			+ POQTListConstants.DB_TASK_COLUMN_ALARM_MILLIS + " INT,"
+			+ POQTListConstants.DB_TASK_COLUMN_ALARM_ORDINAL + " INT);");
+		db.execSQL("CREATE TABLE " + POQTListConstants.DB_TASKLIST_TABLE_NAME + " ("
+			+ POQTListConstants.DB_TASKLIST_KEY_ID + " INTEGER PRIMARY KEY,"
+			+ POQTListConstants.DB_TASKLIST_COLUMN_NAME + " TEXT, "
+			+ POQTListConstants.DB_TASKLIST_COLUMN_ADAPTERTYPE_ORDINAL + " INTEGER);");
+		db.execSQL("CREATE TABLE " + POQTListConstants.DB_HASTASK_TABLE_NAME + " ("
+			+ POQTListConstants.DB_HASTASK_KEY_LISTID + " INTEGER,"
+			+ POQTListConstants.DB_HASTASK_KEY_TASKID + " INTEGER,"
+			+ "PRIMARY KEY (" + POQTListConstants.DB_HASTASK_KEY_LISTID + ", " + POQTListConstants.DB_HASTASK_KEY_TASKID + "), "
+			+ "FOREIGN KEY(" + POQTListConstants.DB_HASTASK_KEY_LISTID + ") REFERENCES "
+				+ POQTListConstants.DB_TASKLIST_TABLE_NAME + "(" + POQTListConstants.DB_TASKLIST_KEY_ID + "), "
+			+ "FOREIGN KEY(" + POQTListConstants.DB_HASTASK_KEY_TASKID + ") REFERENCES "
+				+ POQTListConstants.DB_TASK_TABLE_NAME + "(" + POQTListConstants.DB_TASK_KEY_ID + "));");
+		
+		// version 2 added the index of HasTask by list; version 3 added due dates in milliseconds
+		if (version >= 2) {
+			db.execSQL("CREATE INDEX " + POQTListConstants.DB_HASTASK_INDEX_BY_LIST + " ON "
+				+ POQTListConstants.DB_HASTASK_TABLE_NAME + " (" + POQTListConstants.DB_HASTASK_KEY_LISTID + ");");
+		}
+		if (version >= 3) {
+			db.execSQL("ALTER TABLE " + POQTListConstants.DB_TASK_TABLE_NAME
+				+ " ADD COLUMN " + POQTListConstants.DB_TASK_COLUMN_DUE_MILLIS + " INTEGER;");
+		}
+		
+		db.setVersion(version);
+		return db;
+	}
+	
+	/**
+	 * Finds the slot a key's probe run starts at in a LongObjectMap of the given capacity
+	 * NOTE: Mirrors LongObjectMap's hash, so tests can build keys that collide
+	 * 
+	 * @param key Key to place
+	 * @param capacity Number of slots in the table (a power of 2)
+	 * @return The key's home slot
+	 */
+	private int findLongObjectMapHome(long key, int capacity) {
+		return (int)((key * 0x9E3779B97F4A7C15L) >>> (64 - Integer.numberOfTrailingZeros(capacity)));
+	}
+	
+	/**
+	 * Inserts a HasTask row under the given rowid into a database created by createLegacyDatabase()
+	 * 
+	 * @param db The legacy database
+	 * @param rowid Rowid of the membership
+	 * @param listID ID of the TaskList
+	 * @param taskID ID of the Task
+	 */
+	private void insertLegacyMembership(SQLiteDatabase db, long rowid, long listID, long taskID) {
+		db.execSQL("INSERT INTO " + POQTListConstants.DB_HASTASK_TABLE_NAME + " (rowid, "
+			+ POQTListConstants.DB_HASTASK_KEY_LISTID + ", " + POQTListConstants.DB_HASTASK_KEY_TASKID + ") VALUES (?, ?, ?);",
+			new Object[]{rowid, listID, taskID});
+	}
+	
+	/**
+	 * Inserts a Task row into a database created by createLegacyDatabase()
+	 * 
+	 * @param db The legacy database
+	 * @param id ID of the Task
+	 * @param dueDate Due date as DB_DATE_STORAGE_FORMAT text (null if none)
+	 */
+	private void insertLegacyTask(SQLiteDatabase db, long id, String dueDate) {
+		db.execSQL("INSERT INTO " + POQTListConstants.DB_TASK_TABLE_NAME + " ("
+			+ POQTListConstants.DB_TASK_KEY_ID + ", " + POQTListConstants.DB_TASK_COLUMN_DESCRIPTION + ", "
+			+ POQTListConstants.DB_TASK_COLUMN_DUEDATE + ", " + POQTListConstants.DB_TASK_COLUMN_PRIORITY + ") VALUES (?, ?, ?, ?);",
+			new Object[]{id, GENERIC_DESCRIPTION, dueDate, GENERIC_PRIORITY.ordinal()});
+	}
 }